@@ -25,4 +25,19 @@ public @interface Entity {
      * @return 主键列名
      */
     String primaryKey() default "";
+
+    /**
+     * 表的索引，可以声明组合索引及唯一索引，单列索引也可以直接在字段上标注{@link Index}
+     *
+     * @return 索引
+     */
+    Index[] indices() default {};
+
+    /**
+     * 是否记录查询或写入时的列值，开启后{@code save}只更新发生变化的列，
+     * 没有记录过的数据仍然整行写入
+     *
+     * @return 是否开启变化跟踪
+     */
+    boolean trackChanges() default false;
 }
@@ -0,0 +1,38 @@
+package com.coredata.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 索引注解
+ * <p>
+ * 标注在字段上时为该字段对应的列创建索引；
+ * 组合索引通过{@link Entity#indices()}声明，此时需要指定{@link #value()}
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface Index {
+
+    /**
+     * 索引包含的列名，按顺序组合，标注在字段上时可以不设置
+     *
+     * @return 列名
+     */
+    String[] value() default {};
+
+    /**
+     * 索引名，未设置时为"index_表名_列名"
+     *
+     * @return 索引名
+     */
+    String name() default "";
+
+    /**
+     * 是否是唯一索引
+     *
+     * @return true为唯一索引
+     */
+    boolean unique() default false;
+}
@@ -7,8 +7,67 @@ import java.lang.annotation.Target;
 
 /**
  * 关联注解
+ * <p>
+ * 字段类型为@Entity的类时为对一关联，当前表中保存关联对象的主键；
+ * 字段类型为{@code List<@Entity的类>}时为对多关联，当前表中不保存任何列，
+ * 需要指定{@link #mappedBy()}或{@link #joinTable()}其中之一
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.CLASS)
 public @interface Relation {
-}
\ No newline at end of file
+
+    /**
+     * 关联对象的加载方式
+     */
+    enum FetchType {
+        /**
+         * 查询时立即加载，同一批数据的关联对象统一查询
+         */
+        EAGER,
+        /**
+         * 首次访问时加载，字段类型必须是{@code com.coredata.core.Lazy<关联类型>}，
+         * 同一批查询出的数据中任意一个被访问时，整批的关联对象一起加载
+         */
+        LAZY,
+        /**
+         * 与当前对象在同一条查询中通过LEFT JOIN加载，只支持对一关联，
+         * 且关联的实体自身不能再有关联；查询结果中没有关联表的列时(如通过原始sql查询)自动退回{@link #EAGER}
+         */
+        JOIN
+    }
+
+    /**
+     * 加载方式，默认为{@link FetchType#EAGER}
+     *
+     * @return 加载方式
+     */
+    FetchType fetch() default FetchType.EAGER;
+
+    /**
+     * 一对多关联时，子表中保存当前对象主键的列名，该列由子对象维护
+     *
+     * @return 子表中的列名
+     */
+    String mappedBy() default "";
+
+    /**
+     * 多对多关联时的中间表名，中间表由当前对象维护，写入时按当前对象的列表整体替换
+     *
+     * @return 中间表名
+     */
+    String joinTable() default "";
+
+    /**
+     * 中间表中保存当前对象主键的列名，未设置时为"当前表名_id"
+     *
+     * @return 列名
+     */
+    String joinColumn() default "";
+
+    /**
+     * 中间表中保存关联对象主键的列名，未设置时为"关联表名_id"
+     *
+     * @return 列名
+     */
+    String inverseJoinColumn() default "";
+}
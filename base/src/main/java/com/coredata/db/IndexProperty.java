@@ -0,0 +1,46 @@
+package com.coredata.db;
+
+import java.util.Arrays;
+
+/**
+ * 存储table的索引
+ */
+public class IndexProperty {
+
+    public final String name;
+    public final String[] columns;
+    public final boolean unique;
+
+    public IndexProperty(String name, String[] columns, boolean unique) {
+        this.name = name;
+        this.columns = columns;
+        this.unique = unique;
+    }
+
+    /**
+     * 比较索引名、列及是否唯一，全部一致时数据库中的索引不需要重建
+     *
+     * @param o 给定参数
+     * @return true 为相等，false为不相等
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IndexProperty
+                && this.unique == ((IndexProperty) o).unique
+                && this.name.equals(((IndexProperty) o).name)
+                && Arrays.equals(this.columns, ((IndexProperty) o).columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * @return 索引名
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,30 @@
+package com.coredata.db;
+
+/**
+ * 存储多对多关联的中间表
+ */
+public class JoinTableProperty {
+
+    public final String name;
+    public final String joinColumn;
+    public final Class<?> joinColumnType;
+    public final String inverseJoinColumn;
+    public final Class<?> inverseJoinColumnType;
+
+    public JoinTableProperty(String name, String joinColumn, Class<?> joinColumnType,
+                             String inverseJoinColumn, Class<?> inverseJoinColumnType) {
+        this.name = name;
+        this.joinColumn = joinColumn;
+        this.joinColumnType = joinColumnType;
+        this.inverseJoinColumn = inverseJoinColumn;
+        this.inverseJoinColumnType = inverseJoinColumnType;
+    }
+
+    /**
+     * @return 中间表名
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
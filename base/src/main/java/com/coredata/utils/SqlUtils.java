@@ -1,10 +1,18 @@
 package com.coredata.utils;
 
+import com.coredata.db.IndexProperty;
+import com.coredata.db.JoinTableProperty;
+
 /**
  * sql的工具类
  */
 public class SqlUtils {
 
+    /**
+     * sqlite单条语句中允许的最大绑定参数个数(SQLITE_MAX_VARIABLE_NUMBER)
+     */
+    public static final int MAX_BIND_ARGS = 999;
+
     /**
      * 根据Class类型返回sqlite中对应的类型名称
      *
@@ -22,6 +30,8 @@ public class SqlUtils {
             return "INTEGER";
         } else if (clazz == int.class) {
             return "INT";
+        } else if (clazz == byte[].class) {
+            return "BLOB";
         }
         return "";
     }
@@ -36,11 +46,62 @@ public class SqlUtils {
         return "DROP TABLE IF EXISTS " + tableName;
     }
 
+    /**
+     * 返回创建索引的sql
+     *
+     * @param tableName 表名
+     * @param index     索引
+     * @return sql字符串
+     */
+    public static String getCreateIndexSql(String tableName, IndexProperty index) {
+        StringBuilder sql = new StringBuilder("CREATE ");
+        if (index.unique) {
+            sql.append("UNIQUE ");
+        }
+        sql.append("INDEX IF NOT EXISTS ").append(formatColumnName(index.name))
+                .append(" ON ").append(formatColumnName(tableName)).append(" (");
+        for (int i = 0; i < index.columns.length; i++) {
+            if (i > 0) {
+                sql.append(",");
+            }
+            sql.append(formatColumnName(index.columns[i]));
+        }
+        sql.append(")");
+        return sql.toString();
+    }
+
+    /**
+     * 返回创建多对多中间表的sql，两列组成联合主键，同一对关联只保存一行
+     *
+     * @param joinTable 中间表
+     * @return sql字符串
+     */
+    public static String getCreateJoinTableSql(JoinTableProperty joinTable) {
+        return String.format("CREATE TABLE IF NOT EXISTS %s (%s %s NOT NULL,%s %s NOT NULL,PRIMARY KEY(%s,%s))",
+                formatColumnName(joinTable.name),
+                formatColumnName(joinTable.joinColumn),
+                getSqlTypeByClazz(joinTable.joinColumnType),
+                formatColumnName(joinTable.inverseJoinColumn),
+                getSqlTypeByClazz(joinTable.inverseJoinColumnType),
+                formatColumnName(joinTable.joinColumn),
+                formatColumnName(joinTable.inverseJoinColumn));
+    }
+
+    /**
+     * 返回删除索引的sql
+     *
+     * @param indexName 索引名
+     * @return sql字符串
+     */
+    public static String getDropIndexSql(String indexName) {
+        return "DROP INDEX IF EXISTS " + formatColumnName(indexName);
+    }
+
     public static String formatValue(Object object) {
         if (object == null) {
             return "NULL";
         } else if (object instanceof String) {
-            return "'" + object.toString() + "'";
+            return "'" + object.toString().replace("'", "''") + "'";
 
         } else if (object.getClass().equals(boolean.class)
                 || object.getClass().equals(Boolean.class)) {
@@ -53,6 +114,36 @@ public class SqlUtils {
         return object.toString();
     }
 
+    /**
+     * 将绑定参数转换为字符串形式，用于只支持字符串参数的查询接口
+     *
+     * @param object 参数值，不能为null
+     * @return 字符串形式的参数，boolean转换为1或0
+     */
+    public static String formatBindArg(Object object) {
+        if (object instanceof Boolean) {
+            return (Boolean) object ? "1" : "0";
+        }
+        return object.toString();
+    }
+
+    /**
+     * 将绑定参数数组转换为查询用的字符串参数数组
+     *
+     * @param bindArgs 参数数组
+     * @return 字符串参数数组，参数为空时返回null
+     */
+    public static String[] toSelectionArgs(Object[] bindArgs) {
+        if (bindArgs == null || bindArgs.length == 0) {
+            return null;
+        }
+        String[] selectionArgs = new String[bindArgs.length];
+        for (int i = 0; i < bindArgs.length; i++) {
+            selectionArgs[i] = formatBindArg(bindArgs[i]);
+        }
+        return selectionArgs;
+    }
+
     public static String formatColumnName(String columnName) {
         return "`" + columnName + "`";
     }
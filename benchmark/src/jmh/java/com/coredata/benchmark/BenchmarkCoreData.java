@@ -0,0 +1,71 @@
+package com.coredata.benchmark;
+
+import com.coredata.core.CoreData;
+import com.coredata.core.utils.LogUtils;
+import com.coredata.jdbc.JdbcOpenHelperFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 创建benchmark使用的CoreData实例，每个实例使用独立的临时数据库文件
+ */
+public final class BenchmarkCoreData {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private BenchmarkCoreData() {
+    }
+
+    /**
+     * 创建一个新的CoreData实例
+     *
+     * @param classes 需要注册的实体类
+     * @return 新的实例
+     */
+    public static CoreData create(Class<?>... classes) {
+        return create(false, classes);
+    }
+
+    /**
+     * 创建一个新的CoreData实例
+     *
+     * @param upsert  是否使用UPSERT写入
+     * @param classes 需要注册的实体类
+     * @return 新的实例
+     */
+    public static CoreData create(boolean upsert, Class<?>... classes) {
+        return create(upsert, false, classes);
+    }
+
+    /**
+     * 创建一个新的CoreData实例
+     *
+     * @param upsert            是否使用UPSERT写入
+     * @param writeAheadLogging 是否开启WAL模式
+     * @param classes           需要注册的实体类
+     * @return 新的实例
+     */
+    public static CoreData create(boolean upsert, boolean writeAheadLogging, Class<?>... classes) {
+        // android.util.Log依赖native实现，在JVM上不可用
+        LogUtils.setEnabled(false);
+        File file;
+        try {
+            file = File.createTempFile("coredata_benchmark", ".db");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        file.deleteOnExit();
+        String tag = "benchmark_" + COUNTER.incrementAndGet();
+        CoreData.init(null, CoreData.Builder.builder()
+                .name(file.getAbsolutePath())
+                .version(1)
+                .register(classes)
+                .openHelperFactory(new JdbcOpenHelperFactory())
+                .upsert(upsert)
+                .writeAheadLogging(writeAheadLogging)
+                .tag(tag));
+        return CoreData.instance(tag);
+    }
+}
@@ -0,0 +1,132 @@
+package com.coredata.benchmark;
+
+import com.coredata.benchmark.model.Tag;
+import com.coredata.benchmark.model.TagBinaryCodec;
+import com.coredata.core.converter.BinaryConverter;
+import com.coredata.core.converter.BinaryListConverter;
+import com.coredata.core.converter.SerializableConverter;
+import com.coredata.core.converter.SerializableListConverter;
+import com.coredata.core.converter.StringArrayConverter;
+import com.coredata.core.converter.StringListConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各个PropertyConverter的编码、解码耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConverterBenchmark {
+
+    private static final int LIST_SIZE = 20;
+
+    private final StringArrayConverter stringArrayConverter = new StringArrayConverter();
+    private final StringListConverter stringListConverter = new StringListConverter();
+    private final SerializableConverter<Tag> serializableConverter = new SerializableConverter<>();
+    private final SerializableListConverter<Tag> serializableListConverter = new SerializableListConverter<>();
+    private final BinaryConverter<Tag> binaryConverter = new BinaryConverter<>(TagBinaryCodec.INSTANCE);
+    private final BinaryListConverter<Tag> binaryListConverter = new BinaryListConverter<>(TagBinaryCodec.INSTANCE);
+
+    private String[] stringArray;
+    private List<String> stringList;
+    private Tag tag;
+    private List<Tag> tagList;
+
+    private String encodedStringArray;
+    private String encodedStringList;
+    private String encodedSerializable;
+    private String encodedSerializableList;
+    private byte[] encodedBinary;
+    private byte[] encodedBinaryList;
+
+    @Setup
+    public void setup() {
+        stringArray = new String[LIST_SIZE];
+        stringList = new ArrayList<>();
+        tagList = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            stringArray[i] = "permission_" + i;
+            stringList.add("keyword_" + i);
+            tagList.add(new Tag(i, "tag_" + i));
+        }
+        tag = tagList.get(0);
+
+        encodedStringArray = stringArrayConverter.convertToProperty(stringArray);
+        encodedStringList = stringListConverter.convertToProperty(stringList);
+        encodedSerializable = serializableConverter.convertToProperty(tag);
+        encodedSerializableList = serializableListConverter.convertToProperty(tagList);
+        encodedBinary = binaryConverter.convertToProperty(tag);
+        encodedBinaryList = binaryListConverter.convertToProperty(tagList);
+    }
+
+    @Benchmark
+    public String stringArrayEncode() {
+        return stringArrayConverter.convertToProperty(stringArray);
+    }
+
+    @Benchmark
+    public String[] stringArrayDecode() {
+        return stringArrayConverter.convertToValue(encodedStringArray);
+    }
+
+    @Benchmark
+    public String stringListEncode() {
+        return stringListConverter.convertToProperty(stringList);
+    }
+
+    @Benchmark
+    public List<String> stringListDecode() {
+        return stringListConverter.convertToValue(encodedStringList);
+    }
+
+    @Benchmark
+    public String serializableEncode() {
+        return serializableConverter.convertToProperty(tag);
+    }
+
+    @Benchmark
+    public Tag serializableDecode() {
+        return serializableConverter.convertToValue(encodedSerializable);
+    }
+
+    @Benchmark
+    public String serializableListEncode() {
+        return serializableListConverter.convertToProperty(tagList);
+    }
+
+    @Benchmark
+    public List<Tag> serializableListDecode() {
+        return serializableListConverter.convertToValue(encodedSerializableList);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binaryConverter.convertToProperty(tag);
+    }
+
+    @Benchmark
+    public Tag binaryDecode() {
+        return binaryConverter.convertToValue(encodedBinary);
+    }
+
+    @Benchmark
+    public byte[] binaryListEncode() {
+        return binaryListConverter.convertToProperty(tagList);
+    }
+
+    @Benchmark
+    public List<Tag> binaryListDecode() {
+        return binaryListConverter.convertToValue(encodedBinaryList);
+    }
+}
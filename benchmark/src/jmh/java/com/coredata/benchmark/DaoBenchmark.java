@@ -0,0 +1,125 @@
+package com.coredata.benchmark;
+
+import com.coredata.benchmark.model.Author;
+import com.coredata.benchmark.model.Book;
+import com.coredata.benchmark.model.Tag;
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CoreDao常用读写路径的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DaoBenchmark {
+
+    private static final int BOOK_COUNT = 1000;
+
+    private static final int AUTHOR_COUNT = 100;
+
+    private static final int BATCH_SIZE = 100;
+
+    private CoreDao<Book> bookDao;
+
+    private CoreDao<Author> authorDao;
+
+    private List<Book> batchBooks;
+
+    private Object[] batchKeys;
+
+    private long nextId;
+
+    private int queryIndex;
+
+    @Setup
+    public void setup() {
+        CoreData coreData = BenchmarkCoreData.create(Book.class, Author.class);
+        bookDao = coreData.dao(Book.class);
+        authorDao = coreData.dao(Author.class);
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            books.add(createBook(i));
+        }
+        bookDao.replace(books);
+        nextId = BOOK_COUNT;
+
+        batchBooks = new ArrayList<>(books.subList(0, BATCH_SIZE));
+        batchKeys = new Object[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batchKeys[i] = (long) (i * (BOOK_COUNT / BATCH_SIZE));
+        }
+    }
+
+    private static Book createBook(long id) {
+        Book book = new Book();
+        book.id = id;
+        book.name = "book_" + id;
+        book.price = id % 97;
+        book.keywords = Arrays.asList("java", "android", "sqlite");
+        book.tags = Arrays.asList(new Tag(id, "tag_" + id), new Tag(id + 1, "tag_" + (id + 1)));
+        int authorId = (int) (id % AUTHOR_COUNT);
+        book.author = new Author(authorId, "author_" + authorId);
+        return book;
+    }
+
+    @Benchmark
+    public boolean replaceSingle() {
+        return bookDao.replace(createBook(nextId++ % BOOK_COUNT));
+    }
+
+    @Benchmark
+    public boolean replaceBatch() {
+        return bookDao.replace(batchBooks);
+    }
+
+    /**
+     * 查询全部书籍，包含关联作者的bindCursor
+     */
+    @Benchmark
+    public List<Book> queryAllWithRelation() {
+        return bookDao.queryAll();
+    }
+
+    /**
+     * 没有关联对象的queryAll，作为对照
+     */
+    @Benchmark
+    public List<Author> queryAllPlain() {
+        return authorDao.queryAll();
+    }
+
+    @Benchmark
+    public Book queryByKey() {
+        return bookDao.queryByKey((long) (queryIndex++ % BOOK_COUNT));
+    }
+
+    @Benchmark
+    public List<Book> queryByKeys() {
+        return bookDao.queryByKeys(batchKeys);
+    }
+
+    @Benchmark
+    public Object funcCount() {
+        return bookDao.func().count().result();
+    }
+
+    @Benchmark
+    public Object funcMaxWhere() {
+        return bookDao.func().max("price").where("author_id").lt(AUTHOR_COUNT / 2).result();
+    }
+}
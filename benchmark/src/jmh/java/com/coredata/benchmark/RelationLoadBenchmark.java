@@ -0,0 +1,103 @@
+package com.coredata.benchmark;
+
+import com.coredata.benchmark.model.Author;
+import com.coredata.benchmark.model.Book;
+import com.coredata.benchmark.model.JoinBook;
+import com.coredata.benchmark.model.Tag;
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对一关联两种加载方式的耗时对比
+ * <p>
+ * EAGER先查询书籍，再按作者主键批量查询一次；JOIN通过LEFT JOIN在同一条查询中读出作者，
+ * 少一次查询及主键绑定，但每行都要重复读取作者的列，作者越少、结果越小时JOIN越有优势
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RelationLoadBenchmark {
+
+    private static final int BOOK_COUNT = 1000;
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"EAGER", "JOIN"})
+    public String fetch;
+
+    @Param({"10", "500"})
+    public int authorCount;
+
+    private CoreDao<?> bookDao;
+
+    private int pageIndex;
+
+    @Setup
+    public void setup() {
+        CoreData coreData = BenchmarkCoreData.create(Book.class, JoinBook.class, Author.class);
+        List<Book> books = new ArrayList<>();
+        List<JoinBook> joinBooks = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            Book book = createBook(i);
+            books.add(book);
+            joinBooks.add(toJoinBook(book));
+        }
+        coreData.dao(Book.class).replace(books);
+        coreData.dao(JoinBook.class).replace(joinBooks);
+        bookDao = "JOIN".equals(fetch) ? coreData.dao(JoinBook.class) : coreData.dao(Book.class);
+    }
+
+    private Book createBook(long id) {
+        Book book = new Book();
+        book.id = id;
+        book.name = "book_" + id;
+        book.price = id % 97;
+        book.keywords = Arrays.asList("java", "android", "sqlite");
+        book.tags = Arrays.asList(new Tag(id, "tag_" + id));
+        int authorId = (int) (id % authorCount);
+        book.author = new Author(authorId, "author_" + authorId);
+        return book;
+    }
+
+    private static JoinBook toJoinBook(Book book) {
+        JoinBook joinBook = new JoinBook();
+        joinBook.id = book.id;
+        joinBook.name = book.name;
+        joinBook.price = book.price;
+        joinBook.keywords = book.keywords;
+        joinBook.tags = book.tags;
+        joinBook.author = book.author;
+        return joinBook;
+    }
+
+    /**
+     * 查询全部书籍及其作者
+     */
+    @Benchmark
+    public List<?> queryAll() {
+        return bookDao.queryAll();
+    }
+
+    /**
+     * 按价格分页查询一页书籍及其作者，列表页的典型用法
+     */
+    @Benchmark
+    public List<?> queryPage() {
+        int offset = (pageIndex++ * PAGE_SIZE) % BOOK_COUNT;
+        return bookDao.query().orderBy("price").limit(PAGE_SIZE).offset(offset).result();
+    }
+}
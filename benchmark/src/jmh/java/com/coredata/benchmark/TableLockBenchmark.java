@@ -0,0 +1,85 @@
+package com.coredata.benchmark;
+
+import com.coredata.benchmark.model.Author;
+import com.coredata.benchmark.model.Event;
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个线程持续批量写入author表时，其他线程读取无关的event表的吞吐量
+ * <p>
+ * 表锁保证读event不需要等待author的写锁；未开启WAL时所有读写共用一个连接，
+ * 读操作仍然要等待连接上正在执行的写事务，开启WAL后读操作使用独立的只读连接，
+ * 读吞吐量不再受写入影响
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TableLockBenchmark {
+
+    private static final int EVENT_COUNT = 100;
+
+    private static final int BATCH_SIZE = 200;
+
+    @Param({"false", "true"})
+    public boolean writeAheadLogging;
+
+    private CoreDao<Author> authorDao;
+
+    private CoreDao<Event> eventDao;
+
+    private final AtomicInteger round = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+        CoreData coreData = BenchmarkCoreData.create(false, writeAheadLogging, Author.class, Event.class);
+        authorDao = coreData.dao(Author.class);
+        eventDao = coreData.dao(Event.class);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            events.add(new Event(i, "event_" + i));
+        }
+        eventDao.replace(events);
+    }
+
+    /**
+     * 在一个事务中覆盖写入一批author
+     */
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public boolean writeAuthors() {
+        int current = round.incrementAndGet();
+        List<Author> authors = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            authors.add(new Author(i, "author_" + i + "_" + current));
+        }
+        return authorDao.replace(authors);
+    }
+
+    /**
+     * 读取与写入无关的event表
+     */
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public List<Event> readEvents() {
+        return eventDao.queryAll();
+    }
+}
@@ -0,0 +1,107 @@
+package com.coredata.benchmark;
+
+import com.coredata.benchmark.model.Author;
+import com.coredata.benchmark.model.Book;
+import com.coredata.benchmark.model.Tag;
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 覆盖已存在的数据时，INSERT OR REPLACE与UPSERT的耗时对比
+ * <p>
+ * INSERT OR REPLACE会先删除冲突的行，所有索引都要删除并重新写入；
+ * UPSERT原地更新，只有值发生变化的索引列需要维护，索引越多差距越明显
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpsertBenchmark {
+
+    private static final int BOOK_COUNT = 1000;
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"false", "true"})
+    public boolean upsert;
+
+    /**
+     * 除主键外额外创建的索引数
+     */
+    @Param({"0", "3"})
+    public int indexCount;
+
+    private CoreDao<Book> bookDao;
+
+    private List<List<Book>> batches;
+
+    private int batchIndex;
+
+    private int round;
+
+    @Setup
+    public void setup() {
+        CoreData coreData = BenchmarkCoreData.create(upsert, Book.class, Author.class);
+        bookDao = coreData.dao(Book.class);
+        if (upsert && !coreData.getCoreDataBase().isUpsertSupported()) {
+            throw new IllegalStateException("sqlite " + coreData.getCoreDataBase().querySqliteVersion()
+                    + " does not support upsert");
+        }
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        String[] indexColumns = {"name", "price", "author_id"};
+        for (int i = 0; i < indexCount && i < indexColumns.length; i++) {
+            cdb.execSQL(String.format("CREATE INDEX IF NOT EXISTS idx_book_%s ON book(%s)", indexColumns[i], indexColumns[i]));
+        }
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            books.add(createBook(i));
+        }
+        bookDao.replace(books);
+
+        batches = new ArrayList<>();
+        for (int start = 0; start < BOOK_COUNT; start += BATCH_SIZE) {
+            batches.add(new ArrayList<>(books.subList(start, start + BATCH_SIZE)));
+        }
+    }
+
+    private static Book createBook(long id) {
+        Book book = new Book();
+        book.id = id;
+        book.name = "book_" + id;
+        book.price = id % 97;
+        book.keywords = Arrays.asList("java", "android", "sqlite");
+        book.tags = Arrays.asList(new Tag(id, "tag_" + id));
+        int authorId = (int) (id % 100);
+        book.author = new Author(authorId, "author_" + authorId);
+        return book;
+    }
+
+    /**
+     * 覆盖写入一批已存在的数据，只修改未建索引的列
+     */
+    @Benchmark
+    public boolean overwriteBatch() {
+        List<Book> batch = batches.get(batchIndex);
+        batchIndex = (batchIndex + 1) % batches.size();
+        round++;
+        for (Book book : batch) {
+            book.keywords = Arrays.asList("java", "round_" + round);
+        }
+        return bookDao.replace(batch);
+    }
+}
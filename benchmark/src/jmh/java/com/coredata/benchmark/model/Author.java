@@ -0,0 +1,24 @@
+package com.coredata.benchmark.model;
+
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+
+/**
+ * benchmark使用的作者
+ */
+@Entity(tableName = "author")
+public class Author {
+
+    @PrimaryKey
+    public int id;
+
+    public String name;
+
+    public Author() {
+    }
+
+    public Author(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
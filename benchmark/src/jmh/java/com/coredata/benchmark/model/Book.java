@@ -0,0 +1,35 @@
+package com.coredata.benchmark.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Convert;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+import com.coredata.core.converter.BinaryListConverter;
+import com.coredata.core.converter.StringListConverter;
+
+import java.util.List;
+
+/**
+ * benchmark使用的书，关联了作者，用于测试关联查询
+ */
+@Entity(tableName = "book")
+public class Book {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    public double price;
+
+    @Convert(converter = StringListConverter.class, dbType = String.class)
+    public List<String> keywords;
+
+    @Convert(converter = BinaryListConverter.class, dbType = byte[].class)
+    public List<Tag> tags;
+
+    @Relation
+    @ColumnInfo(name = "author_id")
+    public Author author;
+}
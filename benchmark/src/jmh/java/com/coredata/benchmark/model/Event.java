@@ -0,0 +1,24 @@
+package com.coredata.benchmark.model;
+
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+
+/**
+ * benchmark使用的事件，不关联其他表，用于测试表锁
+ */
+@Entity(tableName = "event")
+public class Event {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    public Event() {
+    }
+
+    public Event(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -0,0 +1,35 @@
+package com.coredata.benchmark.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Convert;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+import com.coredata.core.converter.BinaryListConverter;
+import com.coredata.core.converter.StringListConverter;
+
+import java.util.List;
+
+/**
+ * 与{@link Book}相同，作者通过LEFT JOIN在同一条查询中加载，用于对比关联查询的方式
+ */
+@Entity(tableName = "join_book")
+public class JoinBook {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    public double price;
+
+    @Convert(converter = StringListConverter.class, dbType = String.class)
+    public List<String> keywords;
+
+    @Convert(converter = BinaryListConverter.class, dbType = byte[].class)
+    public List<Tag> tags;
+
+    @Relation(fetch = Relation.FetchType.JOIN)
+    @ColumnInfo(name = "author_id")
+    public Author author;
+}
@@ -0,0 +1,20 @@
+package com.coredata.benchmark.model;
+
+import java.io.Serializable;
+
+/**
+ * benchmark使用的标签，用于测试各个转换器
+ */
+public class Tag implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public long id;
+
+    public String name;
+
+    public Tag(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -20,6 +20,10 @@ public class CipherDatabase extends CoreDatabase {
         this.db = db;
     }
 
+    SQLiteDatabase getSQLiteDatabase() {
+        return db;
+    }
+
     @Override
     public void beginTransaction() {
         db.beginTransaction();
@@ -1,6 +1,7 @@
 package com.coredata.cipher;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import com.coredata.core.CoreData;
 import com.coredata.core.CoreDatabaseManager;
@@ -19,6 +20,12 @@ public class CipherOpenHelper extends SQLiteOpenHelper implements OpenHelperInte
 
     private String password;
     private String instanceTag;
+    private boolean writeAheadLogging;
+
+    /**
+     * 缓存的包装对象，底层SQLiteDatabase不变时复用，避免每次获取都创建新的包装
+     */
+    private CipherDatabase coreDatabase;
 
     public CipherOpenHelper(Context context, String name, int version, String password, String tag) {
         super(context, name, null, version);
@@ -40,12 +47,51 @@ public class CipherOpenHelper extends SQLiteOpenHelper implements OpenHelperInte
     }
 
     @Override
-    public CoreDatabase getWritableCoreDatabase() {
-        return new CipherDatabase(getWritableDatabase(password));
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (writeAheadLogging && !db.isReadOnly()) {
+            // sqlcipher没有提供开启WAL的接口，通过PRAGMA开启，journal_mode会持久化到数据库文件中
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery("PRAGMA journal_mode = WAL", new String[]{});
+                cursor.moveToFirst();
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized CoreDatabase getWritableCoreDatabase() {
+        return wrap(getWritableDatabase(password));
+    }
+
+    @Override
+    public synchronized CoreDatabase getReadableCoreDatabase() {
+        return wrap(getReadableDatabase(password));
+    }
+
+    @Override
+    public void setWriteAheadLogging(boolean enabled) {
+        this.writeAheadLogging = enabled;
     }
 
     @Override
-    public CoreDatabase getReadableCoreDatabase() {
-        return new CipherDatabase(getReadableDatabase(password));
+    public CoreDatabase openReadOnlyCoreDatabase() {
+        String path = getWritableDatabase(password).getPath();
+        return new CipherDatabase(SQLiteDatabase.openDatabase(path, password, null, SQLiteDatabase.OPEN_READONLY));
+    }
+
+    private CipherDatabase wrap(SQLiteDatabase db) {
+        if (coreDatabase == null || coreDatabase.getSQLiteDatabase() != db) {
+            if (coreDatabase != null) {
+                // 底层连接已经变更，旧连接上缓存的语句不再可用
+                coreDatabase.clearStatementCache();
+            }
+            coreDatabase = new CipherDatabase(db);
+        }
+        return coreDatabase;
     }
 }
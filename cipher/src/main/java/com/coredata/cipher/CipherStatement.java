@@ -51,4 +51,14 @@ public final class CipherStatement extends CoreStatement {
     public void bindBlob(int index, byte[] value) {
         statement.bindBlob(index, value);
     }
+
+    @Override
+    public void clearBindings() {
+        statement.clearBindings();
+    }
+
+    @Override
+    public void close() {
+        statement.close();
+    }
 }
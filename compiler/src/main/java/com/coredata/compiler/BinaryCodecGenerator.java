@@ -0,0 +1,537 @@
+package com.coredata.compiler;
+
+import com.coredata.compiler.utils.TextUtils;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * 为Serializable类型生成二进制编解码器，类名为 类名 + BinaryCodec，与原类型在同一个包中
+ * <p>
+ * 支持基本类型及其封装类型、String、byte[]、枚举、List以及可以继续生成编解码器的Serializable类型，
+ * 其他类型的字段退回到Java序列化
+ */
+public class BinaryCodecGenerator {
+
+    private static final ClassName classBinaryCodec = ClassName.bestGuess("com.coredata.core.io.BinaryCodec");
+    private static final ClassName classBinaryWriter = ClassName.bestGuess("com.coredata.core.io.BinaryWriter");
+    private static final ClassName classBinaryReader = ClassName.bestGuess("com.coredata.core.io.BinaryReader");
+
+    private final ProcessingEnvironment processingEnv;
+
+    /**
+     * 已经生成过的类型，Filer不允许重复创建同一个文件
+     */
+    private final Set<String> generatedTypes = new HashSet<>();
+
+    /**
+     * 生成过程中发现的嵌套类型，等待生成
+     */
+    private final LinkedList<TypeElement> pendingTypes = new LinkedList<>();
+
+    public BinaryCodecGenerator(ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+    }
+
+    /**
+     * 编解码器的类名
+     *
+     * @param className 原类型
+     * @return 编解码器类名
+     */
+    public static ClassName codecClassName(ClassName className) {
+        StringBuilder sb = new StringBuilder();
+        for (String simpleName : className.simpleNames()) {
+            if (sb.length() > 0) {
+                sb.append("_");
+            }
+            sb.append(simpleName);
+        }
+        return ClassName.get(className.packageName(), sb.append("BinaryCodec").toString());
+    }
+
+    /**
+     * 生成给定类型及其嵌套类型的编解码器
+     *
+     * @param element 原类型
+     * @throws IOException
+     */
+    public void generate(TypeElement element) throws IOException {
+        if (!isCodecType(element.asType())) {
+            throw new RuntimeException(element.getQualifiedName() + " 无法生成二进制编解码器，必须是非抽象、无泛型参数的Serializable类");
+        }
+        pendingTypes.add(element);
+        while (!pendingTypes.isEmpty()) {
+            TypeElement typeElement = pendingTypes.removeFirst();
+            if (generatedTypes.add(typeElement.getQualifiedName().toString())) {
+                writeCodec(typeElement);
+            }
+        }
+    }
+
+    private void writeCodec(TypeElement element) throws IOException {
+        ClassName classValue = ClassName.get(element);
+        ClassName classCodec = codecClassName(classValue);
+        List<VariableElement> fields = getFields(element);
+        ExecutableElement constructor = findConstructor(element, fields);
+
+        MethodSpec.Builder encodeBuilder = MethodSpec.methodBuilder("encode")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(classBinaryWriter, "writer")
+                .addParameter(classValue, "value");
+        MethodSpec.Builder decodeBuilder = MethodSpec.methodBuilder("decode")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(classValue)
+                .addParameter(classBinaryReader, "reader");
+
+        List<String> constructorFields = new ArrayList<>();
+        if (constructor != null) {
+            for (VariableElement parameter : constructor.getParameters()) {
+                constructorFields.add(parameter.getSimpleName().toString());
+            }
+        }
+
+        // 每个字段写入标签和长度，读取时跳过不认识的标签，缺少的字段保持默认值
+        encodeBuilder.addStatement("writer.writeVarInt($L)", fields.size());
+        encodeBuilder.addStatement("int __mark");
+        if (constructor == null) {
+            decodeBuilder.addStatement("$T value = new $T()", classValue, classValue);
+        } else {
+            for (int i = 0; i < fields.size(); i++) {
+                VariableElement field = fields.get(i);
+                decodeBuilder.addStatement("$T __f$L = $L", TypeName.get(field.asType()), i, defaultValue(field.asType()));
+            }
+        }
+        decodeBuilder.addStatement("int __count = reader.readVarInt()");
+        decodeBuilder.beginControlFlow("for (int __k = 0; __k < __count; __k++)");
+        decodeBuilder.addStatement("int __tag = reader.readVarInt()");
+        decodeBuilder.addStatement("int __end = reader.readFieldEnd()");
+        decodeBuilder.beginControlFlow("switch (__tag)");
+        Set<Integer> tags = new HashSet<>();
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+            int tag = fieldTag(field);
+            if (!tags.add(tag)) {
+                throw new RuntimeException(element.getQualifiedName() + "#" + field.getSimpleName() + " 的字段标签与其他字段重复，请修改字段名");
+            }
+            CodeBlock.Builder encodeBlock = CodeBlock.builder();
+            encodeBlock.addStatement("__mark = writer.beginField($L)", tag);
+            encodeBlock.add("{\n").indent();
+            encodeValue(encodeBlock, field.asType(), fieldGetter(element, field), 0);
+            encodeBlock.unindent().add("}\n");
+            encodeBlock.addStatement("writer.endField(__mark)");
+            encodeBuilder.addCode(encodeBlock.build());
+
+            CodeBlock.Builder decodeBlock = CodeBlock.builder();
+            decodeBlock.add("case $L: {\n", tag).indent();
+            decodeValue(decodeBlock, field.asType(), "__d", 0);
+            if (constructor == null) {
+                decodeBlock.addStatement(fieldSetter(element, field), "__d");
+            } else {
+                decodeBlock.addStatement("__f$L = __d", i);
+            }
+            decodeBlock.addStatement("break");
+            decodeBlock.unindent().add("}\n");
+            decodeBuilder.addCode(decodeBlock.build());
+        }
+        decodeBuilder.addCode("default:\n$>break;\n$<");
+        decodeBuilder.endControlFlow();
+        decodeBuilder.addStatement("reader.skipTo(__end)");
+        decodeBuilder.endControlFlow();
+        if (constructor != null) {
+            StringBuilder args = new StringBuilder();
+            for (String name : constructorFields) {
+                if (args.length() > 0) {
+                    args.append(", ");
+                }
+                args.append("__f").append(indexOfField(fields, name));
+            }
+            decodeBuilder.addStatement("$T value = new $T($L)", classValue, classValue, args.toString());
+            for (int i = 0; i < fields.size(); i++) {
+                VariableElement field = fields.get(i);
+                if (!constructorFields.contains(field.getSimpleName().toString())) {
+                    decodeBuilder.addStatement(fieldSetter(element, field), "__f" + i);
+                }
+            }
+        }
+        decodeBuilder.addStatement("return value");
+
+        TypeSpec codecType = TypeSpec.classBuilder(classCodec)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(ParameterizedTypeName.get(classBinaryCodec, classValue))
+                .addField(FieldSpec.builder(classCodec, "INSTANCE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T()", classCodec)
+                        .build())
+                .addMethod(encodeBuilder.build())
+                .addMethod(decodeBuilder.build())
+                .build();
+        JavaFile.builder(classCodec.packageName(), codecType).build().writeTo(processingEnv.getFiler());
+    }
+
+    /**
+     * 字段标签，由字段名和声明的类型计算，字段改名或改变类型后视为新的字段，旧数据中的该字段被跳过
+     */
+    private static int fieldTag(VariableElement field) {
+        return (field.getSimpleName() + ":" + field.asType()).hashCode();
+    }
+
+    private static String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case BYTE:
+                return "(byte) 0";
+            case SHORT:
+                return "(short) 0";
+            case CHAR:
+                return "(char) 0";
+            case INT:
+                return "0";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0F";
+            case DOUBLE:
+                return "0D";
+            default:
+                return "null";
+        }
+    }
+
+    private static int indexOfField(List<VariableElement> fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getSimpleName().contentEquals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 生成写入一个值的代码
+     *
+     * @param builder 代码
+     * @param type    值的类型
+     * @param expr    取值的表达式
+     * @param depth   嵌套深度，用于生成不重复的局部变量名
+     */
+    private void encodeValue(CodeBlock.Builder builder, TypeMirror type, String expr, int depth) {
+        if (type.getKind().isPrimitive()) {
+            builder.addStatement("writer.$L($L)", writeMethod(type.getKind()), expr);
+            return;
+        }
+        String local = "__v" + depth;
+        TypeName typeName = TypeName.get(type);
+        if (isBytes(type)) {
+            builder.addStatement("writer.writeBytes($L)", expr);
+        } else if (typeName.isBoxedPrimitive()) {
+            TypeKind kind = processingEnv.getTypeUtils().unboxedType(type).getKind();
+            builder.addStatement("$T $L = $L", typeName, local, expr);
+            builder.addStatement("writer.writeBoolean($L != null)", local);
+            builder.beginControlFlow("if ($L != null)", local);
+            builder.addStatement("writer.$L($L)", writeMethod(kind), local);
+            builder.endControlFlow();
+        } else if (isString(type)) {
+            builder.addStatement("writer.writeString($L)", expr);
+        } else if (isEnum(type)) {
+            builder.addStatement("$T $L = $L", typeName, local, expr);
+            builder.addStatement("writer.writeString($L == null ? null : $L.name())", local, local);
+        } else if (isList(type)) {
+            TypeMirror elementType = ((DeclaredType) type).getTypeArguments().get(0);
+            String item = "__e" + depth;
+            builder.addStatement("$T $L = $L", typeName, local, expr);
+            builder.beginControlFlow("if ($L == null)", local);
+            builder.addStatement("writer.writeVarInt(-1)");
+            builder.nextControlFlow("else");
+            builder.addStatement("writer.writeVarInt($L.size())", local);
+            builder.beginControlFlow("for ($T $L : $L)", TypeName.get(elementType), item, local);
+            encodeValue(builder, elementType, item, depth + 1);
+            builder.endControlFlow();
+            builder.endControlFlow();
+        } else if (isCodecType(type)) {
+            TypeElement typeElement = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+            pendingTypes.add(typeElement);
+            builder.addStatement("$T $L = $L", typeName, local, expr);
+            builder.addStatement("writer.writeBoolean($L != null)", local);
+            builder.beginControlFlow("if ($L != null)", local);
+            builder.addStatement("$T.INSTANCE.encode(writer, $L)", codecClassName(ClassName.get(typeElement)), local);
+            builder.endControlFlow();
+        } else if (isSerializable(type)) {
+            builder.addStatement("writer.writeSerializable($L)", expr);
+        } else {
+            throw new RuntimeException(type + " 不是Serializable类型，无法生成二进制编解码器");
+        }
+    }
+
+    /**
+     * 生成读取一个值到局部变量的代码，顺序与{@link #encodeValue(CodeBlock.Builder, TypeMirror, String, int)}一致
+     *
+     * @param builder 代码
+     * @param type    值的类型
+     * @param local   局部变量名
+     * @param depth   嵌套深度，用于生成不重复的局部变量名
+     */
+    private void decodeValue(CodeBlock.Builder builder, TypeMirror type, String local, int depth) {
+        TypeName typeName = TypeName.get(type);
+        if (type.getKind().isPrimitive()) {
+            builder.addStatement("$T $L = $L", typeName, local, readExpr(type.getKind()));
+        } else if (isBytes(type)) {
+            builder.addStatement("$T $L = reader.readBytes()", typeName, local);
+        } else if (typeName.isBoxedPrimitive()) {
+            TypeKind kind = processingEnv.getTypeUtils().unboxedType(type).getKind();
+            builder.addStatement("$T $L = reader.readBoolean() ? $T.valueOf($L) : null", typeName, local, typeName, readExpr(kind));
+        } else if (isString(type)) {
+            builder.addStatement("$T $L = reader.readString()", typeName, local);
+        } else if (isEnum(type)) {
+            String name = "__s" + depth;
+            builder.addStatement("$T $L = reader.readString()", String.class, name);
+            builder.addStatement("$T $L = $L == null ? null : $T.valueOf($L)", typeName, local, name, typeName, name);
+        } else if (isList(type)) {
+            TypeMirror elementType = ((DeclaredType) type).getTypeArguments().get(0);
+            TypeName typeArrayList = ParameterizedTypeName.get(ClassName.get(ArrayList.class), TypeName.get(elementType));
+            String size = "__n" + depth;
+            String index = "__i" + depth;
+            String item = "__e" + depth;
+            builder.addStatement("int $L = reader.readVarInt()", size);
+            builder.addStatement("$T $L = null", typeName, local);
+            builder.beginControlFlow("if ($L >= 0)", size);
+            builder.addStatement("$T __list$L = new $T($L)", typeArrayList, depth, typeArrayList, size);
+            builder.beginControlFlow("for (int $L = 0; $L < $L; $L++)", index, index, size, index);
+            decodeValue(builder, elementType, item, depth + 1);
+            builder.addStatement("__list$L.add($L)", depth, item);
+            builder.endControlFlow();
+            builder.addStatement("$L = __list$L", local, depth);
+            builder.endControlFlow();
+        } else if (isCodecType(type)) {
+            TypeElement typeElement = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+            builder.addStatement("$T $L = reader.readBoolean() ? $T.INSTANCE.decode(reader) : null",
+                    typeName, local, codecClassName(ClassName.get(typeElement)));
+        } else {
+            builder.addStatement("$T $L = reader.readSerializable()", typeName, local);
+        }
+    }
+
+    private static String writeMethod(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "writeBoolean";
+            case BYTE:
+            case SHORT:
+            case INT:
+                return "writeVarInt";
+            case LONG:
+                return "writeVarLong";
+            case CHAR:
+                return "writeChar";
+            case FLOAT:
+                return "writeFloat";
+            case DOUBLE:
+                return "writeDouble";
+            default:
+                throw new RuntimeException("unsupported type " + kind);
+        }
+    }
+
+    private static String readExpr(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "reader.readBoolean()";
+            case BYTE:
+                return "(byte) reader.readVarInt()";
+            case SHORT:
+                return "(short) reader.readVarInt()";
+            case INT:
+                return "reader.readVarInt()";
+            case LONG:
+                return "reader.readVarLong()";
+            case CHAR:
+                return "reader.readChar()";
+            case FLOAT:
+                return "reader.readFloat()";
+            case DOUBLE:
+                return "reader.readDouble()";
+            default:
+                throw new RuntimeException("unsupported type " + kind);
+        }
+    }
+
+    /**
+     * 需要编解码的字段，包括父类的字段，static和transient字段除外
+     */
+    private List<VariableElement> getFields(TypeElement element) {
+        List<VariableElement> fields = new ArrayList<>();
+        TypeMirror superclass = element.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+            if (!superElement.getQualifiedName().contentEquals(Object.class.getCanonicalName())) {
+                fields.addAll(getFields(superElement));
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 优先使用无参构造函数，否则使用参数与字段同名同类型的构造函数
+     */
+    private ExecutableElement findConstructor(TypeElement element, List<VariableElement> fields) {
+        ExecutableElement matched = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (parameters.isEmpty()) {
+                return null;
+            }
+            boolean allMatched = true;
+            for (VariableElement parameter : parameters) {
+                int index = indexOfField(fields, parameter.getSimpleName().toString());
+                if (index < 0 || !processingEnv.getTypeUtils().isSameType(fields.get(index).asType(), parameter.asType())) {
+                    allMatched = false;
+                    break;
+                }
+            }
+            if (allMatched && matched == null) {
+                matched = constructor;
+            }
+        }
+        if (matched == null) {
+            throw new RuntimeException(element.getQualifiedName() + " 生成二进制编解码器需要无参构造函数，或参数与字段同名的构造函数");
+        }
+        return matched;
+    }
+
+    private String fieldGetter(TypeElement owner, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return "value." + name;
+        }
+        String capitalized = capitalize(name);
+        String[] candidates = field.asType().getKind() == TypeKind.BOOLEAN
+                ? new String[]{"is" + capitalized, "get" + capitalized}
+                : new String[]{"get" + capitalized};
+        for (String candidate : candidates) {
+            if (findMethod(owner, candidate, 0) != null) {
+                return "value." + candidate + "()";
+            }
+        }
+        throw new RuntimeException(owner.getQualifiedName() + "#" + name + " 是private字段，需要提供get方法");
+    }
+
+    private String fieldSetter(TypeElement owner, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        Set<Modifier> modifiers = field.getModifiers();
+        if (!modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.FINAL)) {
+            return "value." + name + " = $L";
+        }
+        String setter = "set" + capitalize(name);
+        if (!modifiers.contains(Modifier.FINAL) && findMethod(owner, setter, 1) != null) {
+            return "value." + setter + "($L)";
+        }
+        throw new RuntimeException(owner.getQualifiedName() + "#" + name + " 无法赋值，需要提供set方法或在构造函数中赋值");
+    }
+
+    private ExecutableElement findMethod(TypeElement owner, String name, int parameterCount) {
+        for (Element member : processingEnv.getElementUtils().getAllMembers(owner)) {
+            if (member.getKind() == ElementKind.METHOD
+                    && member.getSimpleName().contentEquals(name)
+                    && !member.getModifiers().contains(Modifier.PRIVATE)
+                    && ((ExecutableElement) member).getParameters().size() == parameterCount) {
+                return (ExecutableElement) member;
+            }
+        }
+        return null;
+    }
+
+    private static String capitalize(String name) {
+        if (TextUtils.isEmpty(name)) {
+            return name;
+        }
+        return name.substring(0, 1).toUpperCase() + name.substring(1);
+    }
+
+    private static boolean isBytes(TypeMirror type) {
+        return type.getKind() == TypeKind.ARRAY
+                && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE;
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && type.toString().equals(String.class.getCanonicalName());
+    }
+
+    private boolean isEnum(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        return processingEnv.getTypeUtils().asElement(type).getKind() == ElementKind.ENUM;
+    }
+
+    private boolean isList(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        DeclaredType declaredType = (DeclaredType) type;
+        if (declaredType.getTypeArguments().size() != 1
+                || declaredType.getTypeArguments().get(0).getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        String rawName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        return rawName.equals(List.class.getCanonicalName())
+                || rawName.equals(ArrayList.class.getCanonicalName());
+    }
+
+    private boolean isSerializable(TypeMirror type) {
+        TypeMirror serializable = processingEnv.getElementUtils().getTypeElement("java.io.Serializable").asType();
+        return type.getKind().isPrimitive() || processingEnv.getTypeUtils().isAssignable(type, serializable);
+    }
+
+    /**
+     * 是否可以为其生成编解码器：非抽象、无泛型参数、非jdk及android自带的Serializable类
+     */
+    private boolean isCodecType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || !isSerializable(type)) {
+            return false;
+        }
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+        String name = element.getQualifiedName().toString();
+        return element.getKind() == ElementKind.CLASS
+                && !element.getModifiers().contains(Modifier.ABSTRACT)
+                && element.getTypeParameters().isEmpty()
+                && !name.startsWith("java.")
+                && !name.startsWith("javax.")
+                && !name.startsWith("android.");
+    }
+}
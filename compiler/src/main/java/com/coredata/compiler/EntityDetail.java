@@ -3,12 +3,19 @@ package com.coredata.compiler;
 import com.coredata.annotation.Convert;
 import com.coredata.annotation.Embedded;
 import com.coredata.annotation.Entity;
+import com.coredata.annotation.Index;
+import com.coredata.annotation.Relation;
 import com.coredata.compiler.utils.TextUtils;
 import com.coredata.compiler.utils.Utils;
+import com.coredata.db.IndexProperty;
+import com.coredata.db.JoinTableProperty;
 import com.coredata.db.Property;
+import com.coredata.utils.SqlUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
@@ -70,6 +77,15 @@ public class EntityDetail {
         return tableName;
     }
 
+    /**
+     * 是否开启变化跟踪
+     *
+     * @return {@link Entity#trackChanges()}
+     */
+    public boolean isTrackChanges() {
+        return entityElement.getAnnotation(Entity.class).trackChanges();
+    }
+
     public Element getPrimaryKey() {
         return primaryKey;
     }
@@ -91,6 +107,237 @@ public class EntityDetail {
         return Utils.getProperties(env, getDbElements(), getPrimaryKey());
     }
 
+    /**
+     * 获取表的索引，包含{@link Entity#indices()}及字段上标注的{@link Index}
+     *
+     * @param env
+     * @return 索引列表
+     */
+    public List<IndexProperty> getIndices(ProcessingEnvironment env) {
+        List<IndexProperty> indexList = new ArrayList<>();
+        for (Index index : entityElement.getAnnotation(Entity.class).indices()) {
+            if (index.value().length == 0) {
+                throw new IllegalStateException(getEntityName() + " @Entity(indices) 中的 @Index 必须指定列名");
+            }
+            indexList.add(createIndex(index, index.value()));
+        }
+        fillFieldIndices(env, getDbElements(), indexList);
+
+        Set<String> columnNames = new HashSet<>();
+        for (Property property : getProperties(env)) {
+            columnNames.add(property.name);
+        }
+        Set<String> indexNames = new HashSet<>();
+        for (IndexProperty index : indexList) {
+            if (!indexNames.add(index.name)) {
+                throw new IllegalStateException(getEntityName() + " 索引名重复：" + index.name);
+            }
+            for (String column : index.columns) {
+                if (!columnNames.contains(column)) {
+                    throw new IllegalStateException(getEntityName() + " 索引 " + index.name + " 中的列 " + column + " 不存在");
+                }
+            }
+        }
+        return indexList;
+    }
+
+    /**
+     * 检查所有对多关联，并获取当前对象维护的多对多中间表
+     *
+     * @param env
+     * @return 中间表列表，没有时为空
+     */
+    public List<JoinTableProperty> getJoinTables(ProcessingEnvironment env) {
+        List<JoinTableProperty> joinTableList = new ArrayList<>();
+        for (Element element : getRelationElements()) {
+            if (!Utils.isToManyRelation(env, element)) {
+                continue;
+            }
+            Relation relation = element.getAnnotation(Relation.class);
+            String fieldName = getEntityName() + "." + element.getSimpleName();
+            if (relation.fetch() == Relation.FetchType.LAZY) {
+                throw new IllegalStateException(fieldName + " 对多关联不支持延迟加载");
+            }
+            if (TextUtils.isEmpty(relation.mappedBy()) == TextUtils.isEmpty(relation.joinTable())) {
+                throw new IllegalStateException(fieldName + " 对多关联必须指定 mappedBy 或 joinTable 其中之一");
+            }
+            Property primaryKeyProperty = getPrimaryKeyProperty(env, this);
+            if (primaryKeyProperty == null) {
+                throw new IllegalStateException(fieldName + " 所在的实体必须有主键才能使用对多关联");
+            }
+            TypeElement relationType = (TypeElement) env.getTypeUtils().asElement(Utils.getRelationEntityType(env, element));
+            if (relationType.getAnnotation(Entity.class) == null) {
+                throw new IllegalStateException(fieldName + " List的泛型参数必须是 @Entity 的类");
+            }
+            EntityDetail relationEntityDetail = EntityDetail.parse(env, relationType);
+            if (!TextUtils.isEmpty(relation.mappedBy())) {
+                boolean found = false;
+                for (Property property : relationEntityDetail.getProperties(env)) {
+                    found |= property.name.equals(relation.mappedBy());
+                }
+                if (!found) {
+                    throw new IllegalStateException(fieldName + " mappedBy 的列 " + relation.mappedBy()
+                            + " 在 " + relationEntityDetail.getTableName() + " 中不存在");
+                }
+                continue;
+            }
+            Property relationPrimaryKeyProperty = getPrimaryKeyProperty(env, relationEntityDetail);
+            if (relationPrimaryKeyProperty == null) {
+                throw new IllegalStateException(fieldName + " 关联的实体必须有主键");
+            }
+            String joinColumn = TextUtils.isEmpty(relation.joinColumn())
+                    ? getTableName() + "_id" : relation.joinColumn();
+            String inverseJoinColumn = TextUtils.isEmpty(relation.inverseJoinColumn())
+                    ? relationEntityDetail.getTableName() + "_id" : relation.inverseJoinColumn();
+            if (joinColumn.equals(inverseJoinColumn)) {
+                throw new IllegalStateException(fieldName + " 中间表的 joinColumn 与 inverseJoinColumn 相同，请分别指定");
+            }
+            for (JoinTableProperty joinTable : joinTableList) {
+                if (joinTable.name.equals(relation.joinTable())) {
+                    throw new IllegalStateException(fieldName + " 中间表重复：" + relation.joinTable());
+                }
+            }
+            joinTableList.add(new JoinTableProperty(relation.joinTable(),
+                    joinColumn, primaryKeyProperty.type,
+                    inverseJoinColumn, relationPrimaryKeyProperty.type));
+        }
+        return joinTableList;
+    }
+
+    /**
+     * 检查并获取通过LEFT JOIN加载的关联字段，字段在列表中的位置决定关联表在查询中的别名
+     *
+     * @param env
+     * @return JOIN加载的关联字段，没有时为空
+     */
+    public List<Element> getJoinFetchElements(ProcessingEnvironment env) {
+        List<Element> elementList = new ArrayList<>();
+        for (Element element : getRelationElements()) {
+            if (!Utils.isJoinFetchRelation(element)) {
+                continue;
+            }
+            String fieldName = getEntityName() + "." + element.getSimpleName();
+            if (Utils.isToManyRelation(env, element)) {
+                throw new IllegalStateException(fieldName + " FetchType.JOIN 只支持对一关联");
+            }
+            TypeElement relationType = (TypeElement) env.getTypeUtils().asElement(element.asType());
+            if (!EntityDetail.parse(env, relationType).getRelationElements().isEmpty()) {
+                throw new IllegalStateException(fieldName + " FetchType.JOIN 关联的实体 "
+                        + relationType.getSimpleName() + " 自身不能再有关联");
+            }
+            elementList.add(element);
+        }
+        return elementList;
+    }
+
+    /**
+     * 获取JOIN加载的关联表在查询中的别名
+     *
+     * @param env
+     * @param element JOIN加载的关联字段
+     * @return 例如"__j0"
+     */
+    public String getJoinFetchAlias(ProcessingEnvironment env, Element element) {
+        return "__j" + getJoinFetchElements(env).indexOf(element);
+    }
+
+    /**
+     * 生成JOIN加载的关联表在查询结果中的列，以别名为前缀重命名，紧接在"SELECT 表名.*"之后
+     *
+     * @param env
+     * @return 例如", __j0.`id` AS `__j0_id`"，没有JOIN加载的关联时为空字符串
+     */
+    public String getJoinFetchColumns(ProcessingEnvironment env) {
+        StringBuilder columns = new StringBuilder();
+        for (Element element : getJoinFetchElements(env)) {
+            String alias = getJoinFetchAlias(env, element);
+            EntityDetail relationEntityDetail = EntityDetail.parse(env, (TypeElement) env.getTypeUtils().asElement(element.asType()));
+            for (Property property : relationEntityDetail.getProperties(env)) {
+                columns.append(", ").append(alias).append(".")
+                        .append(SqlUtils.formatColumnName(property.name))
+                        .append(" AS ")
+                        .append(SqlUtils.formatColumnName(alias + "_" + property.name));
+            }
+        }
+        return columns.toString();
+    }
+
+    /**
+     * 生成通过LEFT JOIN加载关联对象的语句片段，直接关联关联表，可以使用关联表的主键索引
+     *
+     * @param env
+     * @return 语句片段，没有JOIN加载的关联时为空字符串
+     */
+    public String getJoinFetchClause(ProcessingEnvironment env) {
+        StringBuilder clause = new StringBuilder();
+        for (Element element : getJoinFetchElements(env)) {
+            String alias = getJoinFetchAlias(env, element);
+            EntityDetail relationEntityDetail = EntityDetail.parse(env, (TypeElement) env.getTypeUtils().asElement(element.asType()));
+            clause.append(" LEFT JOIN ").append(SqlUtils.formatColumnName(relationEntityDetail.getTableName()))
+                    .append(" AS ").append(alias)
+                    .append(" ON ").append(SqlUtils.formatColumnName(getTableName()))
+                    .append(".").append(SqlUtils.formatColumnName(Utils.getColumnName(element)))
+                    .append(" = ").append(alias).append(".")
+                    .append(SqlUtils.formatColumnName(Utils.getColumnName(relationEntityDetail.getPrimaryKey())));
+        }
+        return clause.toString();
+    }
+
+    /**
+     * 获取对多关联字段对应的中间表
+     *
+     * @param env
+     * @param element 对多关联字段
+     * @return 中间表，mappedBy方式时为null
+     */
+    public JoinTableProperty getJoinTable(ProcessingEnvironment env, Element element) {
+        String joinTableName = element.getAnnotation(Relation.class).joinTable();
+        for (JoinTableProperty joinTable : getJoinTables(env)) {
+            if (joinTable.name.equals(joinTableName)) {
+                return joinTable;
+            }
+        }
+        return null;
+    }
+
+    private static Property getPrimaryKeyProperty(ProcessingEnvironment env, EntityDetail entityDetail) {
+        for (Property property : entityDetail.getProperties(env)) {
+            if (property.primaryKey) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    private void fillFieldIndices(ProcessingEnvironment env, List<Element> elements, List<IndexProperty> indexList) {
+        for (Element element : elements) {
+            Index index = element.getAnnotation(Index.class);
+            if (element.getAnnotation(Embedded.class) != null) {
+                if (index != null) {
+                    throw new IllegalStateException(element.getSimpleName() + " @Embedded 字段不能标注 @Index，请标注在内嵌类的字段上");
+                }
+                List<Element> elementEmbeddedList = new ArrayList<>();
+                Utils.fillElementsForDbAndReturnPrimaryKey(env, elementEmbeddedList, (TypeElement) env.getTypeUtils().asElement(element.asType()));
+                fillFieldIndices(env, elementEmbeddedList, indexList);
+            } else if (index != null) {
+                String[] columns = index.value().length > 0 ? index.value() : new String[]{Utils.getColumnName(element)};
+                indexList.add(createIndex(index, columns));
+            }
+        }
+    }
+
+    private IndexProperty createIndex(Index index, String[] columns) {
+        String name = index.name();
+        if (TextUtils.isEmpty(name)) {
+            StringBuilder nameBuilder = new StringBuilder("index_").append(getTableName());
+            for (String column : columns) {
+                nameBuilder.append("_").append(column);
+            }
+            name = nameBuilder.toString();
+        }
+        return new IndexProperty(name, columns, index.unique());
+    }
+
     private List<Element> getConvertElements(ProcessingEnvironment env, List<Element> elements) {
         List<Element> elementList = new ArrayList<>();
         for (Element element : elements) {
@@ -5,8 +5,11 @@ import com.coredata.compiler.method.BindCursorMethod;
 import com.coredata.compiler.method.BindStatementMethod;
 import com.coredata.compiler.method.CreateConvertStatement;
 import com.coredata.compiler.method.ReplaceInternalMethod;
+import com.coredata.compiler.method.SaveInternalMethod;
 import com.coredata.compiler.utils.SqlBuilder;
 import com.coredata.compiler.utils.Utils;
+import com.coredata.db.IndexProperty;
+import com.coredata.db.JoinTableProperty;
 import com.coredata.db.Property;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
@@ -15,13 +18,16 @@ import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
@@ -44,6 +50,20 @@ public final class EntityProcessor extends AbstractProcessor {
     public static final ClassName classSQLiteStatement = ClassName.bestGuess("com.coredata.core.db.CoreStatement");
     public static final ClassName classSQLiteDatabase = ClassName.bestGuess("com.coredata.core.db.CoreDatabase");
     public static final ClassName classCursor = ClassName.bestGuess("android.database.Cursor");
+    public static final ClassName classLazy = ClassName.bestGuess("com.coredata.core.Lazy");
+    public static final ClassName classLazyLoader = classLazy.nestedClass("Loader");
+    public static final ClassName classRelationGroups = ClassName.bestGuess("com.coredata.core.RelationGroups");
+    public static final ClassName classLongMultimap = ClassName.bestGuess("com.coredata.core.LongMultimap");
+    public static final ClassName classObjectMultimap = ClassName.bestGuess("com.coredata.core.ObjectMultimap");
+    public static final ClassName classRelationContext = ClassName.bestGuess("com.coredata.core.RelationContext");
+
+    private BinaryCodecGenerator binaryCodecGenerator;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        binaryCodecGenerator = new BinaryCodecGenerator(processingEnv);
+    }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
@@ -98,6 +118,14 @@ public final class EntityProcessor extends AbstractProcessor {
             daoTypeBuilder.addStaticBlock(convertStaticBlock);
         }
 
+        // 二进制转换器需要的编解码器
+        for (Element convertElement : convertElements) {
+            ClassName classBinaryValue = CreateConvertStatement.findBinaryValueType(convertElement);
+            if (classBinaryValue != null) {
+                binaryCodecGenerator.generate(processingEnv.getElementUtils().getTypeElement(classBinaryValue.toString()));
+            }
+        }
+
         // 创建convert
         List<FieldSpec> convertFieldSpecs = CreateConvertStatement.bindComvertFields(convertElements);
         if (convertFieldSpecs != null) {
@@ -109,16 +137,28 @@ public final class EntityProcessor extends AbstractProcessor {
         // onCreate方法
         // 创建关联的dao
         List<Element> relationElements = entityDetail.getRelationElements();
+        ParameterizedTypeName typeCoreDaoWildcard = ParameterizedTypeName.get(classCoreDao, WildcardTypeName.subtypeOf(Object.class));
+        ParameterizedTypeName typeListRelationDao = ParameterizedTypeName.get(ClassName.get(ArrayList.class), typeCoreDaoWildcard);
+        // getRelationDaos 方法，返回所有关联的dao，用于计算读写时需要加锁的表
+        MethodSpec.Builder getRelationDaosBuilder = MethodSpec.methodBuilder("getRelationDaos")
+                .addModifiers(Modifier.PROTECTED)
+                .returns(ParameterizedTypeName.get(ClassName.get(List.class), typeCoreDaoWildcard))
+                .addStatement("$T list = new $T()", typeListRelationDao, typeListRelationDao);
         MethodSpec.Builder onCreateMethodBuilder = MethodSpec.methodBuilder("onCreate")
                 .addModifiers(Modifier.PROTECTED)
                 .returns(void.class)
                 .addParameter(classCoreData, "coreData")
                 .addStatement("super.onCreate($N)", "coreData");
+        Set<String> relationDaoNames = new HashSet<>();
         for (Element relationElement : relationElements) {
-            TypeMirror typeMirror = relationElement.asType();
+            TypeMirror typeMirror = Utils.getRelationEntityType(processingEnv, relationElement);
             ClassName classRelation =
                     ClassName.bestGuess(typeMirror.toString());
             String daoFieldName = Utils.relationDaoName(classRelation);
+            if (!relationDaoNames.add(daoFieldName)) {
+                // 多个字段关联同一类型时共用一个dao
+                continue;
+            }
             FieldSpec fieldSpec = FieldSpec.builder(
                     ParameterizedTypeName.get(classCoreDao, classRelation),
                     daoFieldName,
@@ -132,7 +172,9 @@ public final class EntityProcessor extends AbstractProcessor {
                             daoFieldName,
                             classRelation
                     );
+            getRelationDaosBuilder.addStatement("list.add($N)", daoFieldName);
         }
+        getRelationDaosBuilder.addStatement("return list");
 
         MethodSpec onCreateMethod = onCreateMethodBuilder.build();
 
@@ -150,6 +192,13 @@ public final class EntityProcessor extends AbstractProcessor {
                 .addStatement("return $S", Utils.getInsertSql(entityDetail.getTableName(), propertyList))
                 .build();
 
+        // getUpsertSql 方法，用来获取主键冲突时更新的插入语句
+        MethodSpec getUpsertSqlMethod = MethodSpec.methodBuilder("getUpsertSql")
+                .addModifiers(Modifier.PROTECTED)
+                .returns(String.class)
+                .addStatement("return $S", Utils.getUpsertSql(entityDetail.getTableName(), propertyList))
+                .build();
+
         // bindStatement 用来绑定数据
         MethodSpec bindStatementMethod = new BindStatementMethod(processingEnv, entityDetail).build();
 
@@ -170,6 +219,14 @@ public final class EntityProcessor extends AbstractProcessor {
                 .addStatement("return $S", Utils.getColumnName(entityDetail.getPrimaryKey()))
                 .build();
 
+        // 创建 getPrimaryKeyValue 方法，返回实体的主键值，用于对象缓存
+        MethodSpec getPrimaryKeyValueMethod = MethodSpec.methodBuilder("getPrimaryKeyValue")
+                .addModifiers(Modifier.PROTECTED)
+                .returns(Object.class)
+                .addParameter(classEntity, "entity")
+                .addStatement("return $N", Utils.methodGet(entityDetail.getPrimaryKey(), "entity"))
+                .build();
+
         // 创建 bindCursor 方法，绑定游标数据到模型
         MethodSpec bindCursorMethod = new BindCursorMethod(processingEnv, entityDetail).build();
 
@@ -185,17 +242,86 @@ public final class EntityProcessor extends AbstractProcessor {
         }
         getTablePropertiesBuilder.addStatement("return list");
 
+        // 创建 getTableIndices 方法，返回表的所有索引
+        ClassName classIndexProperty = ClassName.get(IndexProperty.class);
+        ParameterizedTypeName listIndexType = ParameterizedTypeName.get(ClassName.get(ArrayList.class), classIndexProperty);
+        MethodSpec.Builder getTableIndicesBuilder =
+                MethodSpec.methodBuilder("getTableIndices")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ParameterizedTypeName.get(ClassName.get(List.class), classIndexProperty));
+        getTableIndicesBuilder.addStatement("$T list = new $T()", listIndexType, listIndexType);
+        for (IndexProperty index : entityDetail.getIndices(processingEnv)) {
+            CodeBlock.Builder columnsBuilder = CodeBlock.builder();
+            for (int i = 0; i < index.columns.length; i++) {
+                columnsBuilder.add(i == 0 ? "$S" : ", $S", index.columns[i]);
+            }
+            getTableIndicesBuilder.addStatement("list.add(new $T($S, new $T[]{$L}, $L))",
+                    classIndexProperty, index.name, String.class, columnsBuilder.build(), index.unique);
+        }
+        getTableIndicesBuilder.addStatement("return list");
+
         daoTypeBuilder
                 .addMethod(onCreateMethod)
                 .addMethod(getTableNameMethod)
                 .addMethod(getPrimaryKeyNameMethod)
+                .addMethod(getPrimaryKeyValueMethod)
                 .addMethod(getTablePropertiesBuilder.build())
+                .addMethod(getTableIndicesBuilder.build())
                 .addMethod(getCreateTableSqlMethod)
                 .addMethod(getInsertSqlMethod)
+                .addMethod(getUpsertSqlMethod)
                 .addMethod(bindStatementMethod)
                 .addMethod(replaceInternalMethod)
                 .addMethod(bindCursorMethod)
+                .addMethod(getRelationDaosBuilder.build())
         ;
+        if (entityDetail.isTrackChanges()) {
+            // isTrackChanges 方法，开启后Dao记录数据的列值
+            daoTypeBuilder.addMethod(MethodSpec.methodBuilder("isTrackChanges")
+                    .addModifiers(Modifier.PROTECTED)
+                    .returns(boolean.class)
+                    .addStatement("return true")
+                    .build());
+            // saveInternal 方法，只更新变化的列
+            daoTypeBuilder.addMethod(new SaveInternalMethod(processingEnv, entityDetail).build());
+        }
+        String joinFetchClause = entityDetail.getJoinFetchClause(processingEnv);
+        if (!joinFetchClause.isEmpty()) {
+            // getJoinFetchClause 方法，查询时通过LEFT JOIN同时读取关联对象
+            daoTypeBuilder.addMethod(MethodSpec.methodBuilder("getJoinFetchClause")
+                    .addModifiers(Modifier.PROTECTED)
+                    .returns(String.class)
+                    .addStatement("return $S", joinFetchClause)
+                    .build());
+            // getJoinFetchColumns 方法，查询结果中JOIN加载的关联表的列
+            daoTypeBuilder.addMethod(MethodSpec.methodBuilder("getJoinFetchColumns")
+                    .addModifiers(Modifier.PROTECTED)
+                    .returns(String.class)
+                    .addStatement("return $S", entityDetail.getJoinFetchColumns(processingEnv))
+                    .build());
+        }
+        if (relationElements.isEmpty()) {
+            // bindRow 方法，作为其他实体JOIN加载的关联对象时，从指定的列绑定一行
+            daoTypeBuilder.addMethod(new BindCursorMethod(processingEnv, entityDetail).buildBindRow());
+        }
+        List<JoinTableProperty> joinTables = entityDetail.getJoinTables(processingEnv);
+        if (!joinTables.isEmpty()) {
+            // getJoinTables 方法，返回当前对象维护的多对多中间表
+            ClassName classJoinTableProperty = ClassName.get(JoinTableProperty.class);
+            ParameterizedTypeName listJoinTableType = ParameterizedTypeName.get(ClassName.get(ArrayList.class), classJoinTableProperty);
+            MethodSpec.Builder getJoinTablesBuilder = MethodSpec.methodBuilder("getJoinTables")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(ParameterizedTypeName.get(ClassName.get(List.class), classJoinTableProperty))
+                    .addStatement("$T list = new $T()", listJoinTableType, listJoinTableType);
+            for (JoinTableProperty joinTable : joinTables) {
+                getJoinTablesBuilder.addStatement("list.add(new $T($S, $S, $T.class, $S, $T.class))",
+                        classJoinTableProperty, joinTable.name,
+                        joinTable.joinColumn, Utils.getTypeNameByType(joinTable.joinColumnType),
+                        joinTable.inverseJoinColumn, Utils.getTypeNameByType(joinTable.inverseJoinColumnType));
+            }
+            getJoinTablesBuilder.addStatement("return list");
+            daoTypeBuilder.addMethod(getJoinTablesBuilder.build());
+        }
         JavaFile javaFile = JavaFile.builder(entityDetail.getEntityPackageName(processingEnv), daoTypeBuilder.build()).build();
         javaFile.writeTo(processingEnv.getFiler());
         System.out.println(element.getSimpleName());
@@ -5,6 +5,7 @@ import com.coredata.annotation.Embedded;
 import com.coredata.annotation.Relation;
 import com.coredata.compiler.EntityDetail;
 import com.coredata.compiler.utils.Utils;
+import com.coredata.db.JoinTableProperty;
 import com.coredata.db.Property;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
@@ -12,16 +13,20 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.type.TypeMirror;
 
 import static com.coredata.compiler.EntityProcessor.classCursor;
+import static com.coredata.compiler.EntityProcessor.classLazy;
+import static com.coredata.compiler.EntityProcessor.classLazyLoader;
+import static com.coredata.compiler.EntityProcessor.classLongMultimap;
+import static com.coredata.compiler.EntityProcessor.classObjectMultimap;
+import static com.coredata.compiler.EntityProcessor.classRelationContext;
+import static com.coredata.compiler.EntityProcessor.classRelationGroups;
 
 /**
  * Created by wangjinpeng on 2017/6/7.
@@ -37,11 +42,36 @@ public class BindCursorMethod extends BaseMethod {
         MethodSpec.Builder builder = MethodSpec.methodBuilder("bindCursor")
                 .addModifiers(Modifier.PROTECTED)
                 .returns(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(entityDetail.getEntityElement().asType())))
-                .addParameter(classCursor, "cursor");
+                .addParameter(classCursor, "cursor")
+                .addParameter(int.class, "maxCount");
         bind(builder);
         return builder.build();
     }
 
+    /**
+     * 生成bindRow方法，从columnIndexes给出的列绑定当前行，只用于没有关联的实体
+     *
+     * @return bindRow方法
+     */
+    public MethodSpec buildBindRow() {
+        TypeName typeNameEntity = ClassName.get(entityDetail.getEntityElement().asType());
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("bindRow")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(typeNameEntity)
+                .addParameter(classCursor, "cursor")
+                .addParameter(int[].class, "columnIndexes");
+        List<Property> properties = entityDetail.getProperties(processingEnv);
+        for (int i = 0; i < properties.size(); i++) {
+            builder.addStatement("int $N = columnIndexes[$L]", "cursorIndexOf" + properties.get(i).name, i);
+        }
+        builder.addStatement("$T entity = new $T()", typeNameEntity, typeNameEntity);
+        for (Element element : entityDetail.getDbElements()) {
+            bindCursorToField(builder, element, "entity");
+        }
+        builder.addStatement("return entity");
+        return builder.build();
+    }
+
     private void bind(MethodSpec.Builder builder) {
 //        final int cursorIndexOfId = cursor.getColumnIndexOrThrow("id");
 //        final int cursorIndexOfName = cursor.getColumnIndexOrThrow("name");
@@ -81,60 +111,161 @@ public class BindCursorMethod extends BaseMethod {
         }
         // 创建自己的列表
         builder.addStatement("$T list = new $T()", typeListEntity, typeListEntity);
+        // 有需要额外查询或JOIN读出的关联时，在本次操作的上下文中共用已经实例化的对象，并限制关联的层数
+        boolean loadRelations = false;
+        for (Element relationElement : relationElements) {
+            loadRelations |= !Utils.isLazyRelation(relationElement);
+        }
+        Element primaryKey = entityDetail.getPrimaryKey();
+        if (loadRelations) {
+            builder.addStatement("$T __newList = new $T()", typeListEntity, typeListEntity);
+            builder.addStatement("$T __context = $T.begin()", classRelationContext, classRelationContext);
+            builder.addCode("try {\n");
+        }
 
         // 创建多个关联数据的hashMap，主键类型为key
         for (Element relationElement : relationElements) {
-            TypeElement typeRelation = (TypeElement) processingEnv.getTypeUtils().asElement(relationElement.asType());
+            if (Utils.isToManyRelation(processingEnv, relationElement)) {
+                continue;
+            }
+            TypeElement typeRelation = (TypeElement) processingEnv.getTypeUtils().asElement(Utils.getRelationEntityType(processingEnv, relationElement));
+            if (Utils.isLazyRelation(relationElement)) {
+                // 延迟加载的关联，本批次共用一个加载器，第一次访问时统一查询
+                ClassName classNameRelation = ClassName.get(typeRelation);
+                ParameterizedTypeName loaderType = ParameterizedTypeName.get(classLazyLoader, classNameRelation);
+                builder.addStatement("$T __$NLoader = $T.loader($N)", loaderType, Utils.getColumnName(relationElement),
+                        classLazy, Utils.relationDaoName(classNameRelation));
+                continue;
+            }
             EntityDetail relationEntityDetail = EntityDetail.parse(processingEnv, typeRelation);
             Element primaryKeyElement = relationEntityDetail.getPrimaryKey();
+            if (Utils.isJoinFetchRelation(relationElement)) {
+                // 查询结果中有JOIN的列时直接绑定，没有时(如原始sql查询)退回按主键批量查询
+                builder.addStatement("int[] __$NJoinIndexes = $N.getJoinColumnIndexes(cursor, $S)",
+                        Utils.getColumnName(relationElement),
+                        Utils.relationDaoName(ClassName.get(typeRelation)),
+                        entityDetail.getJoinFetchAlias(processingEnv, relationElement) + "_");
+            }
             if (primaryKeyElement != null) {
-                TypeMirror typeMirror = primaryKeyElement.asType();
-                ParameterizedTypeName hashMapType = ParameterizedTypeName.get(ClassName.get(HashMap.class), ClassName.get(typeMirror).box(), typeNameEntity);
-                builder.addStatement("$T __$NMap = new $T()", hashMapType, Utils.getColumnName(relationElement), hashMapType);
+                // 多个对象可能引用同一个关联对象，按主键记录所有引用它的对象；整数主键不装箱
+                ParameterizedTypeName multimapType = ParameterizedTypeName.get(
+                        isIntegralKey(primaryKeyElement) ? classLongMultimap : classObjectMultimap, typeNameEntity);
+                builder.addStatement("$T __$NMap = new $T()", multimapType, Utils.getColumnName(relationElement), multimapType);
             }
         }
 
-        builder.addCode("while (cursor.moveToNext()) {\n  ");
+        // 最多绑定maxCount条，关联数据按本批次统一查询
+        builder.addCode("while (list.size() < maxCount && cursor.moveToNext()) {\n  ");
         // 创建一个对象
         String itemName = "entity";
-        builder.addStatement("$T $N = new $T()", typeNameEntity, itemName, typeNameEntity);
+        if (loadRelations && primaryKey != null) {
+            // 本次操作中已经实例化的行直接复用，关联成环时在这里停止
+            builder.addStatement("$T $N = __context.getLoaded(this, $N)", typeNameEntity, itemName,
+                    cursorGetMethod(primaryKey, Utils.getDbType(primaryKey)));
+            builder.addCode("if ($N != null) {\n", itemName);
+            builder.addStatement("  list.add($N)", itemName);
+            builder.addStatement("  continue");
+            builder.addCode("}\n");
+            builder.addStatement("$N = new $T()", itemName, typeNameEntity);
+        } else {
+            builder.addStatement("$T $N = new $T()", typeNameEntity, itemName, typeNameEntity);
+        }
         for (Element element : elementsForDb) {
             bindCursorToField(builder, element, itemName);
         }
+        if (loadRelations) {
+            if (primaryKey != null) {
+                builder.addStatement("__context.putLoaded(this, getPrimaryKeyValue(entity), entity)");
+            }
+            builder.addStatement("__newList.add(entity)");
+        }
         builder.addStatement("list.add(entity)");
         //将对象放入相应关联对象对应的map
 
         builder.addCode("}\n");
+        if (loadRelations) {
+            // 超过层数限制时不再加载关联
+            builder.addCode("if (__context.enterRelations()) {\n");
+            builder.addCode("try {\n");
+        }
 
         // 循环关联对象，赋值给主对象
         for (Element relationElement : relationElements) {
+            if (Utils.isLazyRelation(relationElement) || Utils.isToManyRelation(processingEnv, relationElement)) {
+                continue;
+            }
             ClassName classNameRelation = ClassName.bestGuess(relationElement.asType().toString());
             TypeElement typeRelationElement = (TypeElement) processingEnv.getTypeUtils().asElement(relationElement.asType());
             EntityDetail relationEntityDetail = EntityDetail.parse(processingEnv, typeRelationElement);
             Element primaryKeyElement = relationEntityDetail.getPrimaryKey();
             if (primaryKeyElement != null) {
-                //            List<Author> authorList = __authorCoreDao.queryByKeys(authorIdWithBookMap.keySet().toArray(new Integer[]{}));
-                TypeName primaryTypeName = ClassName.get(primaryKeyElement.asType());
+                //            List<Author> authorList = __authorCoreDao.queryByKeys(authorIdWithBookMap.keyArray());
                 ParameterizedTypeName listRelationType = ParameterizedTypeName.get(ClassName.get(List.class), classNameRelation);
-                String listName = String.format("__%sList", typeRelationElement.getSimpleName());
+                String listName = String.format("__%sList", Utils.getColumnName(relationElement));
                 String mapName = String.format("__%sMap", Utils.getColumnName(relationElement));
-                builder.addStatement("$T $N = $N.queryByKeys($N.keySet().toArray(new $T[]{}))",
+                builder.addStatement("$T $N = $N.queryByKeys($N.keyArray())",
                         listRelationType,
                         listName,
                         Utils.relationDaoName(classNameRelation),
-                        mapName,
-                        primaryTypeName.box());
+                        mapName);
                 builder.addCode("for($T item : $N){\n", classNameRelation, listName);
-                builder.addStatement("  $T entity = $N.get($N)", typeNameEntity, mapName, Utils.methodGet(primaryKeyElement, "item"));
-                builder.addCode("  if(entity != null){\n");
+                builder.addCode("  for (int i = $N.first($N); i >= 0; i = $N.next(i)) {\n",
+                        mapName, Utils.methodGet(primaryKeyElement, "item"), mapName);
+                builder.addStatement("    $T entity = $N.valueAt(i)", typeNameEntity, mapName);
                 builder.addStatement(Utils.methodSetFormat(relationElement, "entity"), "item");
                 builder.addCode("  }\n");
                 builder.addCode("}\n");
             }
         }
+        bindToManyRelations(builder, relationElements, typeNameEntity);
+        if (loadRelations) {
+            builder.addCode("} finally {\n");
+            builder.addStatement("  __context.exitRelations()");
+            builder.addCode("}\n");
+            builder.addCode("}\n");
+            builder.addCode("} finally {\n");
+            builder.addStatement("  __context.end()");
+            builder.addCode("}\n");
+        }
         builder.addStatement("return list");
     }
 
+    /**
+     * 对多关联，本批次新实例化的对象的子对象每个关联只查询一次，再按主键分组赋值
+     */
+    private void bindToManyRelations(MethodSpec.Builder builder, List<Element> relationElements, TypeName typeNameEntity) {
+        boolean hasKeys = false;
+        for (Element relationElement : relationElements) {
+            if (!Utils.isToManyRelation(processingEnv, relationElement)) {
+                continue;
+            }
+            if (!hasKeys) {
+                builder.addStatement("$T[] __primaryKeys = new $T[__newList.size()]", Object.class, Object.class);
+                builder.addCode("for (int i = 0; i < __newList.size(); i++) {\n");
+                builder.addStatement("  __primaryKeys[i] = getPrimaryKeyValue(__newList.get(i))");
+                builder.addCode("}\n");
+                hasKeys = true;
+            }
+            Relation relation = relationElement.getAnnotation(Relation.class);
+            ClassName classNameRelation = ClassName.bestGuess(Utils.getRelationEntityType(processingEnv, relationElement).toString());
+            String relationDaoName = Utils.relationDaoName(classNameRelation);
+            ParameterizedTypeName groupsType = ParameterizedTypeName.get(classRelationGroups, classNameRelation);
+            String groupsName = "__" + relationElement.getSimpleName() + "Groups";
+            JoinTableProperty joinTable = entityDetail.getJoinTable(processingEnv, relationElement);
+            if (joinTable == null) {
+                builder.addStatement("$T $N = $N.queryGroupByColumn($S, __primaryKeys)",
+                        groupsType, groupsName, relationDaoName, relation.mappedBy());
+            } else {
+                builder.addStatement("$T $N = $N.queryGroupByJoinTable($S, $S, $S, __primaryKeys)",
+                        groupsType, groupsName, relationDaoName, joinTable.name, joinTable.joinColumn, joinTable.inverseJoinColumn);
+            }
+            builder.addCode("for (int i = 0; i < __newList.size(); i++) {\n");
+            builder.addStatement("  $T entity = __newList.get(i)", typeNameEntity);
+            builder.addStatement("  " + Utils.methodSetFormat(relationElement, "entity"), groupsName + ".get(__primaryKeys[i])");
+            builder.addCode("}\n");
+        }
+    }
+
     private void bindCursorToField(MethodSpec.Builder builder, Element element, String prefix) {
         // 基本类型
         // String
@@ -179,12 +310,51 @@ public class BindCursorMethod extends BaseMethod {
             }
             Relation relation = element.getAnnotation(Relation.class);
             if (relation != null) {
-                TypeElement typeRelation = (TypeElement) processingEnv.getTypeUtils().asElement(element.asType());
+                if (Utils.isToManyRelation(processingEnv, element)) {
+                    // 对多关联在所有数据绑定完成后统一查询
+                    return;
+                }
+                TypeElement typeRelation = (TypeElement) processingEnv.getTypeUtils().asElement(Utils.getRelationEntityType(processingEnv, element));
                 EntityDetail relationEntityDetail = EntityDetail.parse(processingEnv, typeRelation);
                 Element primaryKeyElement = relationEntityDetail.getPrimaryKey();
+                if (primaryKeyElement != null && Utils.isLazyRelation(element)) {
+                    // 列为null表示没有关联对象
+                    String columnName = Utils.getColumnName(element);
+                    builder.addCode("if(!cursor.isNull(cursorIndexOf$N)){\n  ", columnName);
+                    builder.addStatement(Utils.methodSetFormat(element, prefix),
+                            String.format("__%sLoader.add(%s)", columnName, cursorGetMethod(element, Utils.getDbType(primaryKeyElement))));
+                    builder.addCode("}\n");
+                    return;
+                }
                 if (primaryKeyElement != null) {
                     TypeName typePrimary = ClassName.get(primaryKeyElement.asType());
                     String columnName = Utils.getColumnName(element);
+                    boolean joinFetch = Utils.isJoinFetchRelation(element);
+                    if (joinFetch) {
+                        // LEFT JOIN没有匹配到关联对象时，关联表的主键列为null
+                        int primaryKeyIndex = 0;
+                        List<Property> relationProperties = relationEntityDetail.getProperties(processingEnv);
+                        while (!relationProperties.get(primaryKeyIndex).primaryKey) {
+                            primaryKeyIndex++;
+                        }
+                        String joinIndexes = "__" + columnName + "JoinIndexes";
+                        String relationDaoName = Utils.relationDaoName(ClassName.get(typeRelation));
+                        String joined = "__" + columnName + "Joined";
+                        builder.addCode("if($N != null){\n  ", joinIndexes);
+                        builder.addCode("if(!cursor.isNull($N[$L])){\n  ", joinIndexes, primaryKeyIndex);
+                        // 多行引用同一个关联对象时只实例化一次，与额外查询的关联共用本次操作的上下文
+                        builder.addStatement("$T __$NKey = $L", ClassName.get(primaryKeyElement.asType()), columnName,
+                                cursorGetMethod(joinIndexes + "[" + primaryKeyIndex + "]", Utils.getDbType(primaryKeyElement)));
+                        builder.addStatement("$T $N = __context.getLoaded($N, __$NKey)", ClassName.get(typeRelation),
+                                joined, relationDaoName, columnName);
+                        builder.addCode("if ($N == null) {\n  ", joined);
+                        builder.addStatement("$N = __context.putLoaded($N, __$NKey, $N.bindRow(cursor, $N))",
+                                joined, relationDaoName, columnName, relationDaoName, joinIndexes);
+                        builder.addCode("}\n");
+                        builder.addStatement(Utils.methodSetFormat(element, prefix), joined);
+                        builder.addCode("}\n");
+                        builder.addCode("} else {\n  ");
+                    }
                     if (!typePrimary.isPrimitive()) {
                         builder.addCode("if(!cursor.isNull(cursorIndexOf$N)){\n  ", columnName);
                     }
@@ -192,14 +362,42 @@ public class BindCursorMethod extends BaseMethod {
                     if (!typePrimary.isPrimitive()) {
                         builder.addCode("}");
                     }
+                    if (joinFetch) {
+                        builder.addCode("}\n");
+                    }
                 }
                 return;
             }
         }
     }
 
+    /**
+     * 主键是否为整数类型，整数主键使用{@code LongMultimap}记录引用关系
+     */
+    private static boolean isIntegralKey(Element primaryKeyElement) {
+        TypeName typeName = ClassName.get(primaryKeyElement.asType());
+        if (typeName.isBoxedPrimitive()) {
+            typeName = typeName.unbox();
+        }
+        return TypeName.LONG.equals(typeName) || TypeName.INT.equals(typeName)
+                || TypeName.SHORT.equals(typeName) || TypeName.BYTE.equals(typeName);
+    }
+
     private String cursorGetMethod(Element element, TypeName dbType) {
-//        TypeName typeName = Utils.getDbType(element);
+        return cursorGetMethod("cursorIndexOf" + Utils.getColumnName(element), dbType);
+    }
+
+    /**
+     * 从游标的指定下标读取值的语句
+     *
+     * @param index  下标的表达式
+     * @param dbType 数据库中的类型
+     * @return 例如"cursor.getLong(cursorIndexOfid)"
+     */
+    private String cursorGetMethod(String index, TypeName dbType) {
+        if (Utils.isBlobType(dbType)) {
+            return String.format("cursor.getBlob(%s)", index);
+        }
         TypeName unbox = null;
         try {
             unbox = dbType.unbox();
@@ -221,15 +419,15 @@ public class BindCursorMethod extends BaseMethod {
                 getMethod = "getInt";
             } else if (unbox == TypeName.FLOAT) {
                 getMethod = "getFloat";
-            } else if (unbox == TypeName.FLOAT) {
+            } else if (unbox == TypeName.DOUBLE) {
                 getMethod = "getDouble";
             } else if (unbox == TypeName.BOOLEAN) {
-                return String.format("cursor.getInt(cursorIndexOf%s) != 0 ? true : false", Utils.getColumnName(element));
+                return String.format("cursor.getInt(%s) != 0 ? true : false", index);
             }
         } else {
             getMethod = "getString";
         }
 
-        return String.format("cursor.%s(cursorIndexOf%s)", getMethod, Utils.getColumnName(element));
+        return String.format("cursor.%s(%s)", getMethod, index);
     }
 }
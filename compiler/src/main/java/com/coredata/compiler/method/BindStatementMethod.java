@@ -42,6 +42,10 @@ public class BindStatementMethod extends BaseMethod {
 
     private int bindStatementMethodInternal(MethodSpec.Builder builder, List<Element> elements, int index, String prefix, boolean carePrefix) {
         for (Element element : elements) {
+            if (Utils.isToManyRelation(processingEnv, element)) {
+                // 对多关联在当前表中没有对应的列
+                continue;
+            }
             TypeName typeName = ClassName.get(element.asType());
 
             String fieldGetMethod = Utils.methodGet(element, prefix);
@@ -67,7 +71,7 @@ public class BindStatementMethod extends BaseMethod {
                     if (convert != null) {
                         // 转换
                         ClassName classConverter = ClassName.bestGuess(Utils.getConverterType(convert).toString());
-                        ClassName dbClassName = ClassName.bestGuess(Utils.getConvertDbType(convert).toString());
+                        TypeName dbClassName = Utils.getConvertDbType(convert);
                         if (!carePrefix || TextUtils.isEmpty(prefix)) {
                             builder.addStatement("$T __temp_$N = $N", dbClassName, String.valueOf(index), formatBindMethod(fieldGetMethod, Utils.converterName(element, classConverter)));
                         } else {
@@ -77,12 +81,23 @@ public class BindStatementMethod extends BaseMethod {
                     } else {
                         Relation relation = element.getAnnotation(Relation.class);
                         if (relation != null) {
-                            TypeElement relationType = (TypeElement) processingEnv.getTypeUtils().asElement(element.asType());
+                            TypeElement relationType = (TypeElement) processingEnv.getTypeUtils().asElement(Utils.getRelationEntityType(processingEnv, element));
                             EntityDetail relationEntityDetail = EntityDetail.parse(processingEnv, relationType);
                             Element relationEntityDetailPrimaryKey = relationEntityDetail.getPrimaryKey();
                             if (relationEntityDetailPrimaryKey == null) {
                                 throw new RuntimeException(element.getSimpleName() + "#" + relationType.getSimpleName() + "must add has primaryKey");
                             }
+                            if (Utils.isLazyRelation(element)) {
+                                // 延迟加载的关联，未加载时直接使用查询时记录的主键
+                                String relationDaoName = Utils.relationDaoName(ClassName.get(relationType));
+                                builder.addCode("statement.bindObject($N, ", String.valueOf(index));
+                                if (carePrefix && !TextUtils.isEmpty(prefix)) {
+                                    builder.addCode("$N == null ? null : ", prefix);
+                                }
+                                builder.addStatement("$N == null ? null : $N.getKey($N))", fieldGetMethod, fieldGetMethod, relationDaoName);
+                                index++;
+                                continue;
+                            }
                             TypeName dbClassName = ClassName.get(relationEntityDetailPrimaryKey.asType());
                             builder.addCode("$T __primaryKey_$N = ", dbClassName, String.valueOf(index));
                             if (carePrefix && !TextUtils.isEmpty(prefix)) {
@@ -139,6 +154,9 @@ public class BindStatementMethod extends BaseMethod {
     }
 
     private static String getBindStr(TypeName typeName) {
+        if (Utils.isBlobType(typeName)) {
+            return "bindBlob";
+        }
         TypeName unbox = null;
         try {
             unbox = typeName.unbox();
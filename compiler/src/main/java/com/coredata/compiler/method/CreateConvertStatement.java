@@ -1,6 +1,7 @@
 package com.coredata.compiler.method;
 
 import com.coredata.annotation.Convert;
+import com.coredata.compiler.BinaryCodecGenerator;
 import com.coredata.compiler.utils.Utils;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
@@ -26,6 +27,10 @@ public class CreateConvertStatement {
             = ClassName.bestGuess("com.coredata.core.converter.SerializableConverter");
     private static final ClassName SERIALIZABLE_LIST_CLASS_NAME
             = ClassName.bestGuess("com.coredata.core.converter.SerializableListConverter");
+    private static final ClassName BINARY_CLASS_NAME
+            = ClassName.bestGuess("com.coredata.core.converter.BinaryConverter");
+    private static final ClassName BINARY_LIST_CLASS_NAME
+            = ClassName.bestGuess("com.coredata.core.converter.BinaryListConverter");
     public static final ClassName stringClassName = ClassName.get(String.class);
 
     public static CodeBlock buildConvertStatic(List<Element> convertElements) {
@@ -41,8 +46,11 @@ public class CreateConvertStatement {
             System.out.println("BindConvertStatement----packageName:" + packageName);
             System.out.println("BindConvertStatement----name:" + name);
 
+            // 二进制转换器读取旧的Base64数据时同样需要注册
             if (SERIALIZABLE_CLASS_NAME.equals(classConverter)
-                    || SERIALIZABLE_LIST_CLASS_NAME.equals(classConverter)) {
+                    || SERIALIZABLE_LIST_CLASS_NAME.equals(classConverter)
+                    || BINARY_CLASS_NAME.equals(classConverter)
+                    || BINARY_LIST_CLASS_NAME.equals(classConverter)) {
                 TypeName typeName1 = ClassName.get(convertElement.asType());
 
                 System.out.println("BindConvertStatement----typeName:" + typeName1.toString());
@@ -86,6 +94,9 @@ public class CreateConvertStatement {
                 fieldSpec = createSerializableField(convertElement);
             } else if (SERIALIZABLE_LIST_CLASS_NAME.equals(classConverter)) {
                 fieldSpec = createSerializableListField(convertElement);
+            } else if (BINARY_CLASS_NAME.equals(classConverter)
+                    || BINARY_LIST_CLASS_NAME.equals(classConverter)) {
+                fieldSpec = createBinaryField(convertElement, classConverter);
             } else {
                 fieldSpec = createCommonField(convertElement, classConverter);
             }
@@ -94,6 +105,40 @@ public class CreateConvertStatement {
         return list;
     }
 
+    /**
+     * 找出二进制转换器所转换的类型，List取其元素类型
+     *
+     * @param convertElement 字段
+     * @return 需要生成编解码器的类型，不是二进制转换器时返回null
+     */
+    public static ClassName findBinaryValueType(Element convertElement) {
+        Convert convert = convertElement.getAnnotation(Convert.class);
+        ClassName classConverter = ClassName.bestGuess(Utils.getConverterType(convert).toString());
+        if (!BINARY_CLASS_NAME.equals(classConverter) && !BINARY_LIST_CLASS_NAME.equals(classConverter)) {
+            return null;
+        }
+        TypeName typeName = ClassName.get(convertElement.asType());
+        if (BINARY_LIST_CLASS_NAME.equals(classConverter) && typeName instanceof ParameterizedTypeName) {
+            typeName = ((ParameterizedTypeName) typeName).typeArguments.get(0);
+        }
+        if (!(typeName instanceof ClassName)) {
+            throw new RuntimeException(convertElement.getSimpleName() + " 的类型不支持二进制转换器");
+        }
+        return (ClassName) typeName;
+    }
+
+    private static FieldSpec createBinaryField(Element convertElement, ClassName classConverter) {
+        ClassName classValue = findBinaryValueType(convertElement);
+        ParameterizedTypeName parameterizedTypeName
+                = ParameterizedTypeName.get(classConverter, classValue);
+        return FieldSpec.builder(
+                parameterizedTypeName,
+                Utils.converterName(convertElement, classConverter),
+                Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T($T.INSTANCE)", parameterizedTypeName, BinaryCodecGenerator.codecClassName(classValue))
+                .build();
+    }
+
     private static FieldSpec createCommonField(Element convertElement, ClassName classConverter) {
         return FieldSpec.builder(
                 classConverter,
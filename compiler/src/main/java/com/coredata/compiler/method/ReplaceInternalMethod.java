@@ -2,6 +2,7 @@ package com.coredata.compiler.method;
 
 import com.coredata.compiler.EntityDetail;
 import com.coredata.compiler.utils.Utils;
+import com.coredata.db.JoinTableProperty;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
@@ -9,13 +10,12 @@ import com.squareup.javapoet.TypeName;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.util.Types;
 
 import static com.coredata.compiler.EntityProcessor.classSQLiteDatabase;
 
@@ -25,14 +25,33 @@ import static com.coredata.compiler.EntityProcessor.classSQLiteDatabase;
 
 public class ReplaceInternalMethod extends BaseMethod {
 
+    private final String methodName;
+
+    /**
+     * 写入自身数据调用的方法
+     */
+    private final String ownWriteMethod;
+
+    /**
+     * 写入关联数据调用的关联dao方法
+     */
+    private final String relationWriteMethod;
 
     public ReplaceInternalMethod(ProcessingEnvironment processingEnv, EntityDetail entityDetail) {
+        this(processingEnv, entityDetail, "replaceInternal", "executeInsert", "replace");
+    }
+
+    protected ReplaceInternalMethod(ProcessingEnvironment processingEnv, EntityDetail entityDetail,
+                                    String methodName, String ownWriteMethod, String relationWriteMethod) {
         super(processingEnv, entityDetail);
+        this.methodName = methodName;
+        this.ownWriteMethod = ownWriteMethod;
+        this.relationWriteMethod = relationWriteMethod;
     }
 
     @Override
     public MethodSpec build() {
-        MethodSpec.Builder builder = MethodSpec.methodBuilder("replaceInternal")
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
                 .addModifiers(Modifier.PROTECTED)
                 .returns(boolean.class)
                 .addParameter(
@@ -45,35 +64,66 @@ public class ReplaceInternalMethod extends BaseMethod {
     }
 
     private void bind(MethodSpec.Builder builder) {
-        Types typeUtils = processingEnv.getTypeUtils();
         TypeName typeEntity = ClassName.get(entityDetail.getEntityElement().asType());
         ParameterizedTypeName typeListEntity = ParameterizedTypeName.get(ClassName.get(ArrayList.class), typeEntity);
         builder.addStatement("$T $N = new $T()", typeListEntity, entityDetail.getEntityElement().getSimpleName() + "List", typeListEntity);
         List<Element> relationElements = entityDetail.getRelationElements();
         for (Element relationElement : relationElements) {
-            Element typeRelationElement = typeUtils.asElement(relationElement.asType());
-            TypeName typeRelation = ClassName.get(relationElement.asType());
+            TypeName typeRelation = ClassName.get(Utils.getRelationEntityType(processingEnv, relationElement));
             ParameterizedTypeName typeListRelation = ParameterizedTypeName.get(ClassName.get(ArrayList.class), typeRelation);
-            builder.addStatement("$T $N = new $T()", typeListRelation, typeRelationElement.getSimpleName() + "List", typeListRelation);
+            builder.addStatement("$T $N = new $T()", typeListRelation, relationListName(relationElement), typeListRelation);
+            if (entityDetail.getJoinTable(processingEnv, relationElement) != null) {
+                ParameterizedTypeName typeJoinRows = ParameterizedTypeName.get(ClassName.get(LinkedHashMap.class),
+                        ClassName.get(Object.class), ParameterizedTypeName.get(ClassName.get(List.class), typeRelation));
+                builder.addStatement("$T $N = new $T()", typeJoinRows, joinRowsName(relationElement), typeJoinRows);
+            }
         }
         builder.addCode("for ($T item : collection) {\n  ", typeEntity);
         builder.addStatement("$N.add($N)", entityDetail.getEntityElement().getSimpleName() + "List", "item");
         for (Element relationElement : relationElements) {
-            Element typeRelationElement = typeUtils.asElement(relationElement.asType());
-            TypeName typeRelation = ClassName.get(relationElement.asType());
-            relationElement.getSimpleName();
             String methodGet = Utils.methodGet(relationElement, "item");
-            builder.addCode("if($N != null){\n  ", methodGet);
-            builder.addStatement("$N.add($N)", typeRelationElement.getSimpleName() + "List", methodGet);
+            if (Utils.isToManyRelation(processingEnv, relationElement)) {
+                if (entityDetail.getJoinTable(processingEnv, relationElement) != null) {
+                    // 中间表按列表整体替换，列表为null时也要删除原有的关联
+                    builder.addStatement("$N.put(getPrimaryKeyValue(item), $N)", joinRowsName(relationElement), methodGet);
+                }
+                builder.addCode("if($N != null){\n  ", methodGet);
+                builder.addStatement("$N.addAll($N)", relationListName(relationElement), methodGet);
+            } else if (Utils.isLazyRelation(relationElement)) {
+                // 延迟加载的关联只写入已经加载的对象
+                builder.addCode("if($N != null && $N.peek() != null){\n  ", methodGet, methodGet);
+                builder.addStatement("$N.add($N.peek())", relationListName(relationElement), methodGet);
+            } else {
+                builder.addCode("if($N != null){\n  ", methodGet);
+                builder.addStatement("$N.add($N)", relationListName(relationElement), methodGet);
+            }
             builder.addCode("}\n");
         }
         builder.addCode("}\n");
-        builder.addStatement("executeInsert($N, db)", entityDetail.getEntityElement().getSimpleName() + "List");
+        builder.addStatement("$N($N, db)", ownWriteMethod, entityDetail.getEntityElement().getSimpleName() + "List");
         for (Element relationElement : relationElements) {
-            Element typeRelationElement = typeUtils.asElement(relationElement.asType());
-            ClassName classNameRelation = ClassName.bestGuess(relationElement.asType().toString());
+            ClassName classNameRelation = ClassName.bestGuess(Utils.getRelationEntityType(processingEnv, relationElement).toString());
             String relationDaoName = Utils.relationDaoName(classNameRelation);
-            builder.addStatement("$N.replace($N, db)", relationDaoName, typeRelationElement.getSimpleName() + "List");
+            builder.addStatement("$N.$N($N, db)", relationDaoName, relationWriteMethod, relationListName(relationElement));
+            JoinTableProperty joinTable = entityDetail.getJoinTable(processingEnv, relationElement);
+            if (joinTable != null) {
+                builder.addStatement("replaceJoinRows(db, $S, $S, $S, $N, $N)", joinTable.name,
+                        joinTable.joinColumn, joinTable.inverseJoinColumn, relationDaoName, joinRowsName(relationElement));
+            }
         }
     }
+
+    /**
+     * 多对多关联写入中间表的临时map名
+     */
+    private static String joinRowsName(Element relationElement) {
+        return "__" + relationElement.getSimpleName() + "JoinRows";
+    }
+
+    /**
+     * 关联对象的临时列表名，按字段区分，多个字段关联同一类型时不会重名
+     */
+    private static String relationListName(Element relationElement) {
+        return "__" + relationElement.getSimpleName() + "List";
+    }
 }
@@ -0,0 +1,16 @@
+package com.coredata.compiler.method;
+
+import com.coredata.compiler.EntityDetail;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+/**
+ * 生成saveInternal方法，与replaceInternal结构相同，
+ * 自身数据只更新变化的列，关联数据也通过关联dao的save写入
+ */
+public class SaveInternalMethod extends ReplaceInternalMethod {
+
+    public SaveInternalMethod(ProcessingEnvironment processingEnv, EntityDetail entityDetail) {
+        super(processingEnv, entityDetail, "saveInternal", "executeSave", "save");
+    }
+}
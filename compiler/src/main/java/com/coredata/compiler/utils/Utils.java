@@ -9,6 +9,7 @@ import com.coredata.annotation.PrimaryKey;
 import com.coredata.annotation.Relation;
 import com.coredata.compiler.EntityDetail;
 import com.coredata.db.Property;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.TypeName;
 
@@ -20,7 +21,9 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
@@ -31,6 +34,10 @@ import javax.lang.model.util.Types;
 
 public class Utils {
 
+    private static final String LAZY_CLASS_NAME = "com.coredata.core.Lazy";
+
+    private static final String LIST_CLASS_NAME = "java.util.List";
+
     public static String getInsertSql(String tableName, List<Property> propertyList) {
         String insertFormat = "INSERT OR REPLACE INTO `%s`(%s) VALUES (%s)";
         StringBuilder fieldBuilder = new StringBuilder();
@@ -51,6 +58,36 @@ public class Utils {
         return String.format(insertFormat, tableName, fieldBuilder.toString(), askBuilder.toString());
     }
 
+    /**
+     * 生成UPSERT语句，主键冲突时只更新非主键列，不会删除原有的行，需要SQLite 3.24.0及以上
+     *
+     * @param tableName    表名
+     * @param propertyList 所有列
+     * @return 例如"INSERT INTO `Book`(`id`,`name`) VALUES (?,?) ON CONFLICT(`id`) DO UPDATE SET `name`=excluded.`name`"
+     */
+    public static String getUpsertSql(String tableName, List<Property> propertyList) {
+        String insertSql = getInsertSql(tableName, propertyList).replaceFirst("INSERT OR REPLACE", "INSERT");
+        String primaryKeyName = null;
+        StringBuilder updateBuilder = new StringBuilder();
+        for (Property property : propertyList) {
+            if (property.primaryKey) {
+                primaryKeyName = property.name;
+                continue;
+            }
+            if (updateBuilder.length() > 0) {
+                updateBuilder.append(",");
+            }
+            updateBuilder.append("`").append(property.name).append("`=excluded.`").append(property.name).append("`");
+        }
+        if (primaryKeyName == null) {
+            return getInsertSql(tableName, propertyList);
+        }
+        if (updateBuilder.length() == 0) {
+            return String.format("%s ON CONFLICT(`%s`) DO NOTHING", insertSql, primaryKeyName);
+        }
+        return String.format("%s ON CONFLICT(`%s`) DO UPDATE SET %s", insertSql, primaryKeyName, updateBuilder.toString());
+    }
+
     private static List<Class<?>> baseTypeList = new ArrayList<>();
 
     static {
@@ -105,6 +142,17 @@ public class Utils {
         return false;
     }
 
+    /**
+     * 判断是否是byte[]，对应数据库中的BLOB
+     *
+     * @param typeName
+     * @return
+     */
+    public static boolean isBlobType(TypeName typeName) {
+        return typeName instanceof ArrayTypeName
+                && TypeName.BYTE.equals(((ArrayTypeName) typeName).componentType);
+    }
+
     public static TypeName getTypeNameByType(Class aClass) {
         if (aClass == boolean.class) {
             return TypeName.BOOLEAN;
@@ -122,11 +170,16 @@ public class Utils {
             return TypeName.FLOAT;
         } else if (aClass == double.class) {
             return TypeName.DOUBLE;
+        } else if (aClass.isArray()) {
+            return ArrayTypeName.of(aClass.getComponentType());
         }
         return ClassName.get(aClass);
     }
 
     public static Class getTypeByTypeName(TypeName typeName) {
+        if (isBlobType(typeName)) {
+            return byte[].class;
+        }
         try {
             TypeName unbox = typeName.unbox();
             if (unbox == TypeName.BOOLEAN) {
@@ -189,6 +242,68 @@ public class Utils {
         return null;
     }
 
+    /**
+     * 是否是延迟加载的关联字段
+     *
+     * @param element 字段
+     * @return 添加了@Relation(fetch = FetchType.LAZY)时为true
+     */
+    public static boolean isLazyRelation(Element element) {
+        Relation relation = element.getAnnotation(Relation.class);
+        return relation != null && relation.fetch() == Relation.FetchType.LAZY;
+    }
+
+    /**
+     * 是否是通过LEFT JOIN加载的关联字段
+     *
+     * @param element 字段
+     * @return 添加了@Relation(fetch = FetchType.JOIN)时为true
+     */
+    public static boolean isJoinFetchRelation(Element element) {
+        Relation relation = element.getAnnotation(Relation.class);
+        return relation != null && relation.fetch() == Relation.FetchType.JOIN;
+    }
+
+    /**
+     * 是否是对多关联的字段
+     *
+     * @param env     ProcessingEnvironment
+     * @param element 字段
+     * @return 添加了@Relation且类型为List时为true
+     */
+    public static boolean isToManyRelation(ProcessingEnvironment env, Element element) {
+        return element.getAnnotation(Relation.class) != null
+                && element.asType().getKind() == TypeKind.DECLARED
+                && LIST_CLASS_NAME.equals(env.getTypeUtils().erasure(element.asType()).toString());
+    }
+
+    /**
+     * 获取关联字段对应的实体类型，延迟加载的字段取Lazy的泛型参数，对多关联的字段取List的泛型参数
+     *
+     * @param env     ProcessingEnvironment
+     * @param element 添加了@Relation的字段
+     * @return 关联实体的类型
+     */
+    public static TypeMirror getRelationEntityType(ProcessingEnvironment env, Element element) {
+        TypeMirror typeMirror = element.asType();
+        String wrapperClassName;
+        if (isLazyRelation(element)) {
+            wrapperClassName = LAZY_CLASS_NAME;
+        } else if (isToManyRelation(env, element)) {
+            wrapperClassName = LIST_CLASS_NAME;
+        } else {
+            return typeMirror;
+        }
+        if (typeMirror.getKind() == TypeKind.DECLARED
+                && wrapperClassName.equals(env.getTypeUtils().erasure(typeMirror).toString())) {
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) typeMirror).getTypeArguments();
+            if (typeArguments.size() == 1) {
+                return typeArguments.get(0);
+            }
+        }
+        throw new IllegalStateException(element.getSimpleName() + " 的类型必须是 " + wrapperClassName + "<关联类型>");
+    }
+
     public static List<Element> getRelationElements(List<Element> elements) {
         List<Element> elementList = new ArrayList<>();
         for (Element element : elements) {
@@ -259,6 +374,10 @@ public class Utils {
         List<Property> propertyList = new ArrayList<>();
 
         for (Element element : elements) {
+            if (isToManyRelation(env, element)) {
+                // 对多关联保存在子表或中间表中，当前表没有对应的列
+                continue;
+            }
             String columnName = Utils.getColumnName(element);
 
             TypeName dbBaseType;
@@ -271,6 +390,7 @@ public class Utils {
                 Relation annotationRelation = element.getAnnotation(Relation.class);
                 if (annotationRelation != null) {
                     // 关联数据
+                    elementFieldType = (TypeElement) typeUtils.asElement(getRelationEntityType(env, element));
                     Entity relationEntity = elementFieldType.getAnnotation(Entity.class);
                     if (relationEntity == null) {
                         throw new IllegalStateException("@Relation 添加的属性必须是 @Entity 的类");
@@ -298,7 +418,7 @@ public class Utils {
                         Convert convert = element.getAnnotation(Convert.class);
                         if (convert != null) {
                             TypeName classConvertDb = Utils.getConvertDbType(convert);
-                            if (Utils.isBaseType(classConvertDb)) {
+                            if (Utils.isBaseType(classConvertDb) || Utils.isBlobType(classConvertDb)) {
                                 dbBaseType = classConvertDb;
                             } else {
                                 throw new IllegalStateException(element.getSimpleName()
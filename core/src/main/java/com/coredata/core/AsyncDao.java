@@ -0,0 +1,170 @@
+package com.coredata.core;
+
+import com.coredata.core.async.Callback;
+import com.coredata.core.async.CoreExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * {@link CoreDao}的异步版本，通过{@link CoreDao#async()}获取
+ * <p>
+ * 写操作在单个写线程中按调用顺序执行，读操作在读线程池中并行执行；
+ * 每个方法都返回{@link Future}，也可以传入{@link Callback}接收结果
+ *
+ * @param <T> 对应的实体类型
+ */
+public final class AsyncDao<T> {
+
+    private final CoreDao<T> coreDao;
+
+    private final CoreExecutor executor;
+
+    AsyncDao(CoreDao<T> coreDao, CoreExecutor executor) {
+        this.coreDao = coreDao;
+        this.executor = executor;
+    }
+
+    /**
+     * 在读线程池中执行自定义的读操作
+     *
+     * @param callable 读操作
+     * @param callback 结果回调，可以为null
+     * @param <R>      结果类型
+     * @return 操作结果
+     */
+    public <R> Future<R> read(Callable<R> callable, Callback<R> callback) {
+        return executor.submitRead(callable, callback);
+    }
+
+    /**
+     * 在写线程中执行自定义的写操作，与其他写操作按提交顺序依次执行
+     *
+     * @param callable 写操作
+     * @param callback 结果回调，可以为null
+     * @param <R>      结果类型
+     * @return 操作结果
+     */
+    public <R> Future<R> write(Callable<R> callable, Callback<R> callback) {
+        return executor.submitWrite(callable, callback);
+    }
+
+    public Future<Boolean> replace(T t) {
+        return replace(t, null);
+    }
+
+    public Future<Boolean> replace(final T t, Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.replace(t);
+            }
+        }, callback);
+    }
+
+    public Future<Boolean> replace(Collection<T> tCollection) {
+        return replace(tCollection, null);
+    }
+
+    public Future<Boolean> replace(final Collection<T> tCollection, Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.replace(tCollection);
+            }
+        }, callback);
+    }
+
+    public Future<Boolean> save(T t) {
+        return save(t, null);
+    }
+
+    public Future<Boolean> save(final T t, Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.save(t);
+            }
+        }, callback);
+    }
+
+    public Future<List<T>> queryAll() {
+        return queryAll(null);
+    }
+
+    public Future<List<T>> queryAll(Callback<List<T>> callback) {
+        return read(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return coreDao.queryAll();
+            }
+        }, callback);
+    }
+
+    public Future<T> queryByKey(Object key) {
+        return queryByKey(key, null);
+    }
+
+    public Future<T> queryByKey(final Object key, Callback<T> callback) {
+        return read(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return coreDao.queryByKey(key);
+            }
+        }, callback);
+    }
+
+    public Future<List<T>> queryByKeys(Object[] keys) {
+        return queryByKeys(keys, null);
+    }
+
+    public Future<List<T>> queryByKeys(final Object[] keys, Callback<List<T>> callback) {
+        return read(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return coreDao.queryByKeys(keys);
+            }
+        }, callback);
+    }
+
+    public Future<Boolean> deleteAll() {
+        return deleteAll(null);
+    }
+
+    public Future<Boolean> deleteAll(Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.deleteAll();
+            }
+        }, callback);
+    }
+
+    public Future<Boolean> deleteByKey(Object key) {
+        return deleteByKey(key, null);
+    }
+
+    public Future<Boolean> deleteByKey(final Object key, Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.deleteByKey(key);
+            }
+        }, callback);
+    }
+
+    public Future<Boolean> deleteByKeys(Object[] keys) {
+        return deleteByKeys(keys, null);
+    }
+
+    public Future<Boolean> deleteByKeys(final Object[] keys, Callback<Boolean> callback) {
+        return write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return coreDao.deleteByKeys(keys);
+            }
+        }, callback);
+    }
+}
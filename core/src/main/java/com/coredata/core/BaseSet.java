@@ -2,6 +2,9 @@ package com.coredata.core;
 
 import com.coredata.core.db.SetInterface;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Created by wangjinpeng on 2017/6/27.
  */
@@ -12,9 +15,12 @@ public class BaseSet<T> implements SetInterface<T> {
 
     private final StringBuilder sqlBuilder;
 
+    private final List<Object> bindArgs;
+
     BaseSet(CoreDao<T> coreDao) {
         this.coreDao = coreDao;
         sqlBuilder = new StringBuilder();
+        bindArgs = new ArrayList<>();
     }
 
     protected CoreDao<T> getCoreDao() {
@@ -27,7 +33,37 @@ public class BaseSet<T> implements SetInterface<T> {
         return this;
     }
 
+    @Override
+    public final SetInterface<T> appendBindArg(Object arg) {
+        bindArgs.add(arg);
+        return this;
+    }
+
+    @Override
+    public final int getBindArgCount() {
+        return bindArgs.size();
+    }
+
+    /**
+     * 条件中的列名，查询包含JOIN时加上当前表名, 内部使用
+     *
+     * @param column 列名
+     * @return 列名
+     */
+    public String qualifyColumn(String column) {
+        return column;
+    }
+
     protected String getSql() {
         return sqlBuilder.toString();
     }
+
+    /**
+     * 获取sql中"?"占位符对应的参数
+     *
+     * @return 按顺序排列的参数
+     */
+    protected Object[] getBindArgs() {
+        return bindArgs.toArray();
+    }
 }
@@ -1,20 +1,33 @@
 package com.coredata.core;
 
-import android.content.ContentValues;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.database.SQLException;
-import android.util.Log;
 
+import com.coredata.core.async.CoreExecutor;
 import com.coredata.core.db.CoreDatabase;
 import com.coredata.core.db.CoreStatement;
+import com.coredata.core.db.InvalidationTracker;
+import com.coredata.core.db.Order;
+import com.coredata.core.db.TableLockManager;
+import com.coredata.core.utils.LogUtils;
 import com.coredata.db.DbProperty;
+import com.coredata.db.IndexProperty;
+import com.coredata.db.JoinTableProperty;
 import com.coredata.db.Property;
 import com.coredata.utils.SqlUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 /**
  * Dao，实体都会拥有一个Dao实例，可进行增删改查
@@ -29,9 +42,66 @@ public abstract class CoreDao<T> {
     public static final String RESULT_AVG = "result_avg";
     public static final String RESULT_SUM = "result_sum";
 
-    private static final Object lock = new Object();
+    /**
+     * 按主键列表查询或删除时，每批的主键数量，需小于sqlite的绑定参数上限
+     */
+    private static final int KEY_BATCH_SIZE = 500;
+
+    /**
+     * 按主键列表删除时，主键数量超过此值时先将主键写入临时表，再通过子查询关联，避免拼接过长的sql；
+     * 查询只在只读连接上分批执行，不使用临时表
+     */
+    private static final int KEY_TEMP_TABLE_THRESHOLD = 5000;
+
+    private static final AtomicInteger tempKeyTableIndex = new AtomicInteger();
+
+    /**
+     * 多对多分组查询时，父对象主键在结果中的列名
+     */
+    private static final String GROUP_KEY_COLUMN = "__coredata_group_key";
+
+    /**
+     * 单独的列名，可以带反引号
+     */
+    private static final Pattern COLUMN_NAME_PATTERN = Pattern.compile("`[^`]+`|[A-Za-z_][A-Za-z0-9_]*");
+
+    /**
+     * 升级时逐行复制数据，每批读取的行数
+     */
+    private static final int MIGRATION_CHUNK_SIZE = 1000;
+
+    /**
+     * 开启变化跟踪时最多记录的数据条数，超出或被回收的数据{@link #save(Object)}时整行写入
+     */
+    private static final int CHANGE_SNAPSHOT_MAX_SIZE = 2000;
+
     private CoreData cdInstance;
 
+    /**
+     * 读写时需要加锁的表，包含自身及所有关联的表，按表名排序
+     */
+    private volatile String[] relationLockTables;
+
+    /**
+     * 对象缓存，未开启时为null
+     */
+    private EntityCache<T> entityCache;
+
+    /**
+     * 异步操作入口，第一次调用{@link #async()}时创建
+     */
+    private AsyncDao<T> asyncDao;
+
+    /**
+     * 延迟写入缓冲区，未开启时为null
+     */
+    private WriteBehindBuffer<T> writeBehindBuffer;
+
+    /**
+     * 变化跟踪，以主键为key记录数据库中每行的列值，未开启时为null
+     */
+    private EntityCache<Object[]> changeSnapshots;
+
     /**
      * 数据库创建
      *
@@ -39,330 +109,1700 @@ public abstract class CoreDao<T> {
      */
     void onDataBaseCreate(CoreDatabase db) {
         db.execSQL(getCreateTableSql());
+        for (IndexProperty index : getTableIndices()) {
+            db.execSQL(SqlUtils.getCreateIndexSql(getTableName(), index));
+        }
+        createJoinTables(db);
+    }
+
+    /**
+     * 创建当前对象维护的多对多中间表，已存在时不做修改
+     *
+     * @param db 数据库
+     */
+    private void createJoinTables(CoreDatabase db) {
+        for (JoinTableProperty joinTable : getJoinTables()) {
+            db.execSQL(SqlUtils.getCreateJoinTableSql(joinTable));
+        }
+    }
+
+    /**
+     * 计算升级时当前表的迁移计划，只读取表结构，不做任何修改
+     *
+     * @param db 数据库
+     * @return 迁移计划
+     */
+    TableMigration planUpgrade(CoreDatabase db) {
+        // 升级在OpenHelper打开数据库的过程中执行，此时其他线程无法拿到数据库，无需加表锁
+        List<DbProperty> dbProperties = queryDbProperties(db);
+        if (dbProperties.isEmpty()) {
+            // 如果找不到建表语句，则删除旧表重新创建
+            return planCreate();
+        }
+        // 解析原始表创建语句，分析字段对应类型及主键是否一致
+        List<DbProperty> newDbProperties = new ArrayList<>();
+        for (Property property : getTableProperties()) {
+            newDbProperties.add(
+                    new DbProperty(property.name,
+                            SqlUtils.getSqlTypeByClazz(property.type),
+                            property.primaryKey));
+        }
+        List<DbProperty> addedProperties = findAddedProperties(dbProperties, newDbProperties);
+        TableMigration.Action action;
+        if (addedProperties == null) {
+            action = TableMigration.Action.REBUILD;
+        } else if (addedProperties.isEmpty()) {
+            action = TableMigration.Action.NONE;
+        } else {
+            action = TableMigration.Action.ADD_COLUMNS;
+        }
+        return new TableMigration(getTableName(), action, this, dbProperties, newDbProperties, addedProperties);
+    }
+
+    /**
+     * 数据库中不存在当前表时的迁移计划
+     *
+     * @return 迁移计划
+     */
+    TableMigration planCreate() {
+        return new TableMigration(getTableName(), TableMigration.Action.CREATE, this, null, null, null);
+    }
+
+    /**
+     * 执行{@link #planUpgrade(CoreDatabase)}计算出的迁移计划
+     *
+     * @param db         {@link CoreDatabaseManager#onUpgrade(CoreDatabase, int, int)}
+     * @param migration  迁移计划
+     * @param oldVersion 老版本
+     */
+    void executeUpgrade(CoreDatabase db, TableMigration migration, int oldVersion) {
+        switch (migration.getAction()) {
+            case CREATE:
+                db.execSQL(SqlUtils.getDropTableSql(getTableName()));
+                onDataBaseCreate(db);
+                return;
+            case ADD_COLUMNS:
+                // 只新增了非主键列，直接修改表结构，不需要迁移数据
+                for (DbProperty property : migration.addedProperties) {
+                    db.execSQL(String.format("ALTER TABLE %s ADD COLUMN %s %s",
+                            SqlUtils.formatColumnName(getTableName()),
+                            SqlUtils.formatColumnName(property.name),
+                            property.type));
+                }
+                break;
+            case REBUILD:
+                rebuildTable(db, migration.dbProperties, migration.newDbProperties, oldVersion);
+                break;
+            default:
+                break;
+        }
+        // 重建表时旧索引随临时表一起删除，这里统一补齐
+        upgradeTableIndices(db);
+        createJoinTables(db);
+    }
+
+    /**
+     * 通过PRAGMA TABLE_INFO查询数据库中的表结构
+     *
+     * @param db 数据库
+     * @return 表结构，表不存在时为空
+     */
+    private List<DbProperty> queryDbProperties(CoreDatabase db) {
+        List<DbProperty> dbProperties = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(String.format("PRAGMA TABLE_INFO(%s)", getTableName()), null);
+            int nameCursorIndex = cursor.getColumnIndex("name");
+            int typeCursorIndex = cursor.getColumnIndex("type");
+            int primaryKeyCursorIndex = cursor.getColumnIndex("pk");
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(nameCursorIndex);
+                String type = cursor.getString(typeCursorIndex);
+                boolean primaryKey = cursor.getInt(primaryKeyCursorIndex) == 1;
+                dbProperties.add(new DbProperty(name, type, primaryKey));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            closeCursor(cursor);
+        }
+        return dbProperties;
+    }
+
+    /**
+     * 判断新表结构是否只是在旧表的基础上增加了列
+     *
+     * @param dbProperties    数据库中的表结构
+     * @param newDbProperties 实体对应的表结构
+     * @return 新增的列，没有变化时为空；有列被删除、类型或主键发生变化时为null，此时需要重建表
+     */
+    private static List<DbProperty> findAddedProperties(List<DbProperty> dbProperties, List<DbProperty> newDbProperties) {
+        for (DbProperty dbProperty : dbProperties) {
+            int index = newDbProperties.indexOf(dbProperty);
+            if (index < 0 || newDbProperties.get(index).primaryKey != dbProperty.primaryKey) {
+                return null;
+            }
+        }
+        List<DbProperty> addedProperties = new ArrayList<>();
+        for (DbProperty newDbProperty : newDbProperties) {
+            if (!dbProperties.contains(newDbProperty)) {
+                // ADD COLUMN 不能添加主键
+                if (newDbProperty.primaryKey) {
+                    return null;
+                }
+                addedProperties.add(newDbProperty);
+            }
+        }
+        return addedProperties;
+    }
+
+    /**
+     * 重建表：将旧表改名为临时表，创建新表后复制同名列的数据，最后删除临时表
+     *
+     * @param db              数据库
+     * @param dbProperties    数据库中的表结构
+     * @param newDbProperties 实体对应的表结构
+     * @param oldVersion      老版本
+     */
+    private void rebuildTable(CoreDatabase db, List<DbProperty> dbProperties, List<DbProperty> newDbProperties, int oldVersion) {
+        // 修改老表到临时表
+        String tempTableName = getTableName() + "_" + oldVersion;
+        try {
+            db.execSQL(String.format("ALTER TABLE %s RENAME TO %s", getTableName(), tempTableName));
+        } catch (SQLException e) {
+            // 修改表结构失败
+            db.execSQL(SqlUtils.getDropTableSql(getTableName()));
+            db.execSQL(getCreateTableSql());
+            return;
+        }
+        // 创建新的表
+        db.execSQL(getCreateTableSql());
+
+        // 同名的列都进行迁移，类型变化的列由SQLite按新列的类型转换
+        Set<String> dbColumnNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (DbProperty dbProperty : dbProperties) {
+            dbColumnNames.add(dbProperty.name);
+        }
+        List<String> columnNames = new ArrayList<>();
+        boolean isJoinPrimaryKey = false;
+        for (DbProperty newDbProperty : newDbProperties) {
+            if (dbColumnNames.contains(newDbProperty.name)) {
+                columnNames.add(newDbProperty.name);
+                isJoinPrimaryKey |= newDbProperty.primaryKey;
+            }
+        }
+        // 如果主键不一致，说明数据没有迁移的必要
+        if (isJoinPrimaryKey) {
+            copyTableData(db, tempTableName, columnNames);
+        }
+        // 删除旧表
+        db.execSQL(SqlUtils.getDropTableSql(tempTableName));
+    }
+
+    /**
+     * 通过一条INSERT ... SELECT在数据库内部复制数据，不需要将数据读入内存
+     *
+     * @param db            数据库
+     * @param fromTableName 旧数据所在的临时表
+     * @param columnNames   需要复制的列
+     */
+    private void copyTableData(CoreDatabase db, String fromTableName, List<String> columnNames) {
+        StringBuilder columnsBuilder = new StringBuilder();
+        for (String columnName : columnNames) {
+            if (columnsBuilder.length() > 0) {
+                columnsBuilder.append(",");
+            }
+            columnsBuilder.append(SqlUtils.formatColumnName(columnName));
+        }
+        String columns = columnsBuilder.toString();
+        db.beginTransaction();
+        try {
+            try {
+                db.execSQL(String.format("INSERT OR REPLACE INTO %s (%s) SELECT %s FROM %s",
+                        SqlUtils.formatColumnName(getTableName()), columns, columns,
+                        SqlUtils.formatColumnName(fromTableName)));
+            } catch (SQLException e) {
+                // 有值无法转换为新的类型时整条语句失败，例如INTEGER主键中存在非整数的值，改为分批逐行复制
+                LogUtils.d("CoreData", "CoreDao--copyTableData--fallback:" + e.getMessage());
+                copyTableDataByChunk(db, fromTableName, columns, columnNames.size());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 按rowid分批读取并逐行插入，跳过无法转换的行，内存中最多只有一批数据
+     *
+     * @param db            数据库
+     * @param fromTableName 旧数据所在的临时表
+     * @param columns       逗号分隔的列
+     * @param columnCount   列数
+     */
+    private void copyTableDataByChunk(CoreDatabase db, String fromTableName, String columns, int columnCount) {
+        StringBuilder askBuilder = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            askBuilder.append(i == 0 ? "?" : ",?");
+        }
+        String selectSql = String.format("SELECT rowid, %s FROM %s WHERE rowid > ? ORDER BY rowid LIMIT %d",
+                columns, SqlUtils.formatColumnName(fromTableName), MIGRATION_CHUNK_SIZE);
+        CoreStatement cs = db.compileStatement(String.format("INSERT OR REPLACE INTO %s (%s) VALUES (%s)",
+                SqlUtils.formatColumnName(getTableName()), columns, askBuilder.toString()));
+        int skipCount = 0;
+        try {
+            Object[] values = new Object[columnCount];
+            long lastRowId = Long.MIN_VALUE;
+            int rowCount;
+            do {
+                rowCount = 0;
+                Cursor cursor = null;
+                try {
+                    cursor = db.rawQuery(selectSql, new String[]{String.valueOf(lastRowId)});
+                    while (cursor.moveToNext()) {
+                        rowCount++;
+                        lastRowId = cursor.getLong(0);
+                        for (int i = 0; i < columnCount; i++) {
+                            values[i] = getCursorValue(cursor, i + 1);
+                        }
+                        cs.bindAllArgs(values);
+                        try {
+                            cs.executeInsert();
+                        } catch (SQLException e) {
+                            skipCount++;
+                        }
+                    }
+                } finally {
+                    closeCursor(cursor);
+                }
+            } while (rowCount == MIGRATION_CHUNK_SIZE);
+        } finally {
+            cs.close();
+        }
+        if (skipCount > 0) {
+            LogUtils.d("CoreData", "CoreDao--copyTableDataByChunk--skip:" + skipCount);
+        }
+    }
+
+    /**
+     * 比较数据库中已有的索引与声明的索引，删除不再声明或定义变化的索引，创建缺少的索引，不需要重建表
+     *
+     * @param db 数据库
+     */
+    private void upgradeTableIndices(CoreDatabase db) {
+        List<IndexProperty> indices = getTableIndices();
+        List<IndexProperty> dbIndices = queryDbIndices(db);
+        for (IndexProperty dbIndex : dbIndices) {
+            if (!indices.contains(dbIndex)) {
+                db.execSQL(SqlUtils.getDropIndexSql(dbIndex.name));
+            }
+        }
+        for (IndexProperty index : indices) {
+            if (!dbIndices.contains(index)) {
+                db.execSQL(SqlUtils.getCreateIndexSql(getTableName(), index));
+            }
+        }
+    }
+
+    /**
+     * 通过PRAGMA INDEX_LIST查询表上已有的索引，忽略主键及唯一约束自动创建的索引
+     *
+     * @param db 数据库
+     * @return 索引列表
+     */
+    private List<IndexProperty> queryDbIndices(CoreDatabase db) {
+        List<String> names = new ArrayList<>();
+        List<Boolean> uniques = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(String.format("PRAGMA INDEX_LIST(%s)", SqlUtils.formatColumnName(getTableName())), null);
+            int nameCursorIndex = cursor.getColumnIndex("name");
+            int uniqueCursorIndex = cursor.getColumnIndex("unique");
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(nameCursorIndex);
+                if (name.startsWith("sqlite_autoindex_")) {
+                    continue;
+                }
+                names.add(name);
+                uniques.add(cursor.getInt(uniqueCursorIndex) == 1);
+            }
+        } finally {
+            closeCursor(cursor);
+        }
+        List<IndexProperty> dbIndices = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            List<String> columns = new ArrayList<>();
+            try {
+                cursor = db.rawQuery(String.format("PRAGMA INDEX_INFO(%s)", SqlUtils.formatColumnName(names.get(i))), null);
+                int nameCursorIndex = cursor.getColumnIndex("name");
+                while (cursor.moveToNext()) {
+                    columns.add(cursor.getString(nameCursorIndex));
+                }
+            } finally {
+                closeCursor(cursor);
+            }
+            dbIndices.add(new IndexProperty(names.get(i), columns.toArray(new String[columns.size()]), uniques.get(i)));
+        }
+        return dbIndices;
+    }
+
+    /**
+     * 数据库降级
+     *
+     * @param db         {@link CoreDatabaseManager#onDowngrade(CoreDatabase, int, int)}
+     * @param oldVersion 老版本
+     * @param newVersion 新版本
+     */
+    void onDataBaseDowngrade(CoreDatabase db, int oldVersion, int newVersion) {
+        db.execSQL(SqlUtils.getDropTableSql(getTableName()));
+        onDataBaseCreate(db);
+    }
+
+    /**
+     * 数据库创建
+     *
+     * @param coreData CoreData实例
+     */
+    protected void onCreate(CoreData coreData) {
+        this.cdInstance = coreData;
+        if (isTrackChanges()) {
+            changeSnapshots = new EntityCache<>(CHANGE_SNAPSHOT_MAX_SIZE, true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void setEntityCache(EntityCache<?> entityCache) {
+        this.entityCache = (EntityCache<T>) entityCache;
+    }
+
+    @SuppressWarnings("unchecked")
+    void setWriteBehindBuffer(WriteBehindBuffer<?> writeBehindBuffer) {
+        this.writeBehindBuffer = (WriteBehindBuffer<T>) writeBehindBuffer;
+        if (writeBehindBuffer != null) {
+            this.writeBehindBuffer.attach(this);
+        }
+    }
+
+    /**
+     * 获取延迟写入缓冲区
+     *
+     * @return 缓冲区，未开启时为null
+     */
+    public WriteBehindBuffer<T> getWriteBehindBuffer() {
+        return writeBehindBuffer;
+    }
+
+    /**
+     * 立即写入延迟写入缓冲区中的数据，返回后可以查询到之前{@link #replace(Object)}的所有数据，
+     * 未开启延迟写入时不做任何操作
+     */
+    public void flush() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.flush();
+        }
+    }
+
+    /**
+     * 其他写操作执行前先写入缓冲区中的数据，避免缓冲区中较早的数据覆盖之后的写操作；
+     * 当前线程已经持有本表写锁时说明外层操作已经写入过，不再重复写入
+     */
+    private void flushWriteBehind() {
+        if (writeBehindBuffer != null
+                && !getTableLockManager().isWriteLockedByCurrentThread(getTableName())) {
+            writeBehindBuffer.flush();
+        }
+    }
+
+    /**
+     * 级联写入关联对象前，先写入所有关联Dao缓冲区中的数据，避免缓冲区中较早的数据之后覆盖级联写入的数据；
+     * 需要在对本次写入的表加锁之前调用
+     */
+    private void flushRelationWriteBehind() {
+        Set<CoreDao<?>> relationDaos = new HashSet<>();
+        fillRelationDaos(this, relationDaos);
+        for (CoreDao<?> relationDao : relationDaos) {
+            if (relationDao != this) {
+                relationDao.flushWriteBehind();
+            }
+        }
+    }
+
+    private static void fillRelationDaos(CoreDao<?> coreDao, Set<CoreDao<?>> daoSet) {
+        for (CoreDao<?> relationDao : coreDao.getRelationDaos()) {
+            if (relationDao != null && daoSet.add(relationDao)) {
+                fillRelationDaos(relationDao, daoSet);
+            }
+        }
+    }
+
+    /**
+     * 获取当前实例的异步执行器
+     *
+     * @return 异步执行器
+     */
+    CoreExecutor getCoreExecutor() {
+        return cdInstance.getCoreExecutor();
+    }
+
+    /**
+     * 获取对象缓存，可用于查看命中情况
+     *
+     * @return 对象缓存，未开启时为null
+     */
+    public EntityCache<T> getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * 获取异步操作入口，写操作按调用顺序在单个线程中执行，读操作并行执行
+     *
+     * @return 异步Dao
+     */
+    public synchronized AsyncDao<T> async() {
+        if (asyncDao == null) {
+            asyncDao = new AsyncDao<>(this, getCoreExecutor());
+        }
+        return asyncDao;
+    }
+
+    /**
+     * 写操作提交后调用，只通知本次操作实际写入的表：写入了对象的实体表及写入了关联的中间表，
+     * 各实体表附带写入的主键
+     *
+     * @param context 本次写操作的上下文
+     */
+    private void notifyWritten(RelationContext context) {
+        Set<String> tables = new HashSet<>(context.getWrittenJoinTables());
+        Map<String, Collection<?>> changedKeys = new HashMap<>();
+        boolean hasObservers = getInvalidationTracker().hasObservers();
+        for (Map.Entry<CoreDao<?>, Set<Object>> entry : context.getWrittenMap().entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            CoreDao<?> coreDao = entry.getKey();
+            tables.add(coreDao.getTableName());
+            if (hasObservers || coreDao.entityCache != null || coreDao.changeSnapshots != null) {
+                changedKeys.put(coreDao.getTableName(), coreDao.getPrimaryKeyValues(entry.getValue()));
+            }
+        }
+        if (!tables.isEmpty()) {
+            notifyTablesChanged(tables.toArray(new String[tables.size()]), changedKeys);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> getPrimaryKeyValues(Collection<Object> entities) {
+        List<Object> keys = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+            keys.add(getPrimaryKeyValue((T) entity));
+        }
+        return keys;
+    }
+
+    /**
+     * 写操作提交后调用，使相关的对象缓存失效，并通知监听了这些表的observer
+     *
+     * @param changedTables 发生变化的表
+     * @param keys          当前表中变化的主键，无法确定时为null
+     */
+    private void notifyTablesChanged(String[] changedTables, Collection<?> keys) {
+        Map<String, Collection<?>> changedKeys = new HashMap<>();
+        if (keys != null) {
+            changedKeys.put(getTableName(), keys);
+        }
+        notifyTablesChanged(changedTables, changedKeys);
+    }
+
+    /**
+     * 写操作提交后调用，使相关的对象缓存失效，并通知监听了这些表的observer
+     *
+     * @param changedTables 发生变化的表
+     * @param changedKeys   以表名为key的变化的主键，不包含的表无法确定变化的主键
+     */
+    private void notifyTablesChanged(String[] changedTables, Map<String, Collection<?>> changedKeys) {
+        cdInstance.invalidateEntityCaches(changedTables, changedKeys);
+        getInvalidationTracker().notifyTablesChanged(changedTables, changedKeys);
+    }
+
+    /**
+     * 是否开启变化跟踪，由{@link com.coredata.annotation.Entity#trackChanges()}决定，开启时生成的Dao覆盖此方法
+     *
+     * @return 是否开启
+     */
+    protected boolean isTrackChanges() {
+        return false;
+    }
+
+    /**
+     * 记录查询或写入后数据库中的列值
+     *
+     * @param tCollection 实体集合
+     * @param generation  查询或写入前通过{@link #getSnapshotGeneration()}取得的值
+     */
+    private void recordSnapshots(Collection<T> tCollection, long generation) {
+        EntityCache<Object[]> snapshots = changeSnapshots;
+        if (snapshots == null) {
+            return;
+        }
+        for (T t : tCollection) {
+            snapshots.put(getPrimaryKeyValue(t), RowSnapshot.of(this, t), generation);
+        }
+    }
+
+    private long getSnapshotGeneration() {
+        EntityCache<Object[]> snapshots = changeSnapshots;
+        return snapshots != null ? snapshots.getGeneration() : 0;
+    }
+
+    /**
+     * 表数据变化后移除记录的列值，自身表的主键无法确定时全部移除
+     *
+     * @param changedTables 发生变化的表
+     * @param changedKeys   以表名为key的变化的主键
+     */
+    void invalidateChangeSnapshots(String[] changedTables, Map<String, Collection<?>> changedKeys) {
+        EntityCache<Object[]> snapshots = changeSnapshots;
+        if (snapshots == null) {
+            return;
+        }
+        Collection<?> keys = changedKeys.get(getTableName());
+        if (keys != null) {
+            snapshots.remove(keys);
+            return;
+        }
+        for (String table : changedTables) {
+            if (table.equals(getTableName())) {
+                snapshots.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取表名
+     *
+     * @return
+     */
+    public abstract String getTableName();
+
+    /**
+     * 获取主键的名字
+     *
+     * @return
+     */
+    public abstract String getPrimaryKeyName();
+
+    /**
+     * 获取实体的主键值
+     *
+     * @param entity 实体对象
+     * @return 主键值
+     */
+    protected abstract Object getPrimaryKeyValue(T entity);
+
+    /**
+     * 获取table所有的fields
+     *
+     * @return
+     */
+    public abstract List<Property> getTableProperties();
+
+    /**
+     * 获取table所有的索引
+     *
+     * @return 索引列表，没有索引时为空
+     */
+    public abstract List<IndexProperty> getTableIndices();
+
+    protected abstract String getCreateTableSql();
+
+    /**
+     * 获取插入语句
+     *
+     * @return 返回插入数据库语句，例如"INSERT OR REPLACE INTO `Book`(`id`,`name`,`tags`,`author_id`,`desc_content`,`desc_email`) VALUES (?,?,?,?,?,?)"
+     */
+    protected abstract String getInsertSql();
+
+    /**
+     * 获取UPSERT插入语句，主键冲突时更新原有的行而不是删除后重新插入，
+     * 通过{@link CoreData.Builder#upsert(boolean)}开启
+     *
+     * @return 例如"INSERT INTO `Book`(`id`,`name`) VALUES (?,?) ON CONFLICT(`id`) DO UPDATE SET `name`=excluded.`name`"
+     */
+    protected abstract String getUpsertSql();
+
+    protected abstract void bindStatement(CoreStatement statement, T t);
+
+    protected abstract boolean replaceInternal(Collection<T> tCollection, CoreDatabase db);
+
+    /**
+     * 保存数据，自身只更新变化的列，开启变化跟踪时由生成的Dao覆盖，默认与{@link #replaceInternal(Collection, CoreDatabase)}相同
+     *
+     * @param tCollection 实体集合
+     * @param db          数据库连接
+     * @return 是否保存成功
+     */
+    protected boolean saveInternal(Collection<T> tCollection, CoreDatabase db) {
+        return replaceInternal(tCollection, db);
+    }
+
+    /**
+     * 从游标当前位置开始绑定数据，最多绑定maxCount条，关联数据按本批次统一查询
+     *
+     * @param cursor   游标
+     * @param maxCount 最多绑定的条数
+     * @return 实体对象List
+     */
+    protected abstract List<T> bindCursor(Cursor cursor, int maxCount);
+
+    /**
+     * 绑定游标中剩余的所有数据
+     *
+     * @param cursor 游标
+     * @return 实体对象List
+     */
+    protected List<T> bindCursor(Cursor cursor) {
+        return bindCursor(cursor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取所有关联对象对应的dao
+     *
+     * @return 关联的dao列表，没有关联时返回空列表
+     */
+    protected abstract List<CoreDao<?>> getRelationDaos();
+
+    /**
+     * 通过LEFT JOIN加载关联对象的语句片段，紧接在"FROM 表名"之后，
+     * 有{@link com.coredata.annotation.Relation.FetchType#JOIN}的关联时生成的Dao覆盖此方法
+     *
+     * @return 例如" LEFT JOIN `author` AS __j0 ON `book`.`author_id` = __j0.`id`"，没有时为空字符串
+     */
+    protected String getJoinFetchClause() {
+        return "";
+    }
+
+    /**
+     * JOIN加载的关联表在查询结果中的列，以"__j序号_"为前缀重命名，与{@link #getJoinFetchClause()}一起覆盖
+     *
+     * @return 例如", __j0.`id` AS `__j0_id`"，没有时为空字符串
+     */
+    protected String getJoinFetchColumns() {
+        return "";
+    }
+
+    /**
+     * 查询当前表的语句开头，有JOIN加载的关联时同时选出关联表的列, 内部使用
+     *
+     * @return 例如"SELECT * FROM `book`"
+     */
+    String getSelectSql() {
+        String tableName = SqlUtils.formatColumnName(getTableName());
+        String joinFetchClause = getJoinFetchClause();
+        if (joinFetchClause.isEmpty()) {
+            return "SELECT * FROM " + tableName;
+        }
+        return "SELECT " + tableName + ".*" + getJoinFetchColumns() + " FROM " + tableName + joinFetchClause;
+    }
+
+    /**
+     * 有JOIN加载的关联时，为条件中的列名加上当前表名，避免与关联表的同名列产生歧义, 内部使用
+     *
+     * @param column 列名，可以带反引号；不是单独的列名时原样返回
+     * @return 列名
+     */
+    String qualifyColumn(String column) {
+        if (getJoinFetchClause().isEmpty() || !COLUMN_NAME_PATTERN.matcher(column).matches()) {
+            return column;
+        }
+        return SqlUtils.formatColumnName(getTableName()) + "." + column;
+    }
+
+    /**
+     * 获取JOIN查询结果中当前表各列的下标, 内部使用
+     *
+     * @param cursor 游标
+     * @param prefix 当前表的列在结果中的前缀
+     * @return 按{@link #getTableProperties()}的顺序排列，结果中没有这些列时为null
+     */
+    public int[] getJoinColumnIndexes(Cursor cursor, String prefix) {
+        List<Property> properties = getTableProperties();
+        int[] columnIndexes = new int[properties.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            columnIndexes[i] = cursor.getColumnIndex(prefix + properties.get(i).name);
+            if (columnIndexes[i] < 0) {
+                return null;
+            }
+        }
+        return columnIndexes;
+    }
+
+    /**
+     * 从游标的当前行绑定一个实体，列的位置由columnIndexes给出，只有没有关联的实体会生成此方法, 内部使用
+     *
+     * @param cursor        游标
+     * @param columnIndexes 按{@link #getTableProperties()}的顺序排列的列下标
+     * @return 实体对象
+     */
+    public T bindRow(Cursor cursor, int[] columnIndexes) {
+        throw new UnsupportedOperationException(getTableName() + " has relations and cannot be bound from a joined row");
+    }
+
+    /**
+     * 获取当前对象维护的多对多中间表，有{@link com.coredata.annotation.Relation#joinTable()}时生成的Dao覆盖此方法
+     *
+     * @return 中间表列表，没有时为空
+     */
+    public List<JoinTableProperty> getJoinTables() {
+        return Collections.emptyList();
+    }
+
+    private TableLockManager getTableLockManager() {
+        return cdInstance.getCoreDataBase().getTableLockManager();
+    }
+
+    InvalidationTracker getInvalidationTracker() {
+        return cdInstance.getCoreDataBase().getInvalidationTracker();
+    }
+
+    /**
+     * 获取需要加锁的表，包含自身及递归关联的所有表
+     *
+     * @return 排好序的表名数组
+     */
+    String[] getRelationLockTables() {
+        String[] tables = relationLockTables;
+        if (tables == null) {
+            Set<String> tableSet = new TreeSet<>();
+            fillRelationTables(this, tableSet);
+            tables = tableSet.toArray(new String[tableSet.size()]);
+            relationLockTables = tables;
+        }
+        return tables;
+    }
+
+    private static void fillRelationTables(CoreDao<?> coreDao, Set<String> tableSet) {
+        if (coreDao == null || !tableSet.add(coreDao.getTableName())) {
+            return;
+        }
+        for (JoinTableProperty joinTable : coreDao.getJoinTables()) {
+            tableSet.add(joinTable.name);
+        }
+        for (CoreDao<?> relationDao : coreDao.getRelationDaos()) {
+            fillRelationTables(relationDao, tableSet);
+        }
+    }
+
+    /**
+     * 读操作加读锁，WAL模式下读操作在独立连接上读取已提交的快照，不需要等待写操作
+     *
+     * @param lockTables 需要加锁的表
+     */
+    private void beginRead(String[] lockTables) {
+        if (!cdInstance.getCoreDataBase().isWriteAheadLogging()) {
+            getTableLockManager().lockRead(lockTables);
+        }
+    }
+
+    /**
+     * 释放{@link #beginRead(String[])}加的读锁
+     *
+     * @param lockTables 需要释放的表
+     */
+    private void endRead(String[] lockTables) {
+        if (!cdInstance.getCoreDataBase().isWriteAheadLogging()) {
+            getTableLockManager().unlockRead(lockTables);
+        }
+    }
+
+    /**
+     * 仅包含自身表的锁，用于不涉及关联表的操作
+     *
+     * @return 只有当前表名的数组
+     */
+    private String[] getSelfLockTables() {
+        return new String[]{getTableName()};
+    }
+
+    /**
+     * 删除时需要加锁的表，包含自身及自身维护的中间表
+     *
+     * @return 排好序的表名数组
+     */
+    private String[] getDeleteLockTables() {
+        List<JoinTableProperty> joinTables = getJoinTables();
+        if (joinTables.isEmpty()) {
+            return getSelfLockTables();
+        }
+        Set<String> tableSet = new TreeSet<>();
+        tableSet.add(getTableName());
+        for (JoinTableProperty joinTable : joinTables) {
+            tableSet.add(joinTable.name);
+        }
+        return tableSet.toArray(new String[tableSet.size()]);
+    }
+
+    /**
+     * 单条数据插入 内部使用
+     *
+     * @param t   实体对象
+     * @param cdb SQLiteDatabase对象
+     * @return 是否插入成功
+     */
+    protected boolean replace(T t, CoreDatabase cdb) {
+        // 查找出 所有关联的对象对应的dao，以及所对应的dao
+        ArrayList<T> tList = new ArrayList<>();
+        tList.add(t);
+        return replace(tList, cdb);
+    }
+
+    /**
+     * 插入集合数据, 内部使用
+     * <p>
+     * 同一次操作中已经写入的对象不再重复写入，关联成环时不会无限递归
+     *
+     * @param tCollection 实体集合
+     * @param cdb         SQLiteDatabase对象
+     * @return 是否插入成功
+     */
+    public boolean replace(Collection<T> tCollection, CoreDatabase cdb) {
+        RelationContext context = RelationContext.begin();
+        try {
+            List<T> tList = context.filterUnwritten(this, tCollection);
+            return tList.isEmpty() || replaceInternal(tList, cdb);
+        } finally {
+            context.end();
+        }
+    }
+
+    /**
+     * 绑定数据并提交插入, 内部使用
+     *
+     * @param tList 实例List
+     * @param cdb   SQLiteDatabase对象
+     * @return 是否插入成功
+     */
+    protected boolean executeInsert(List<T> tList, CoreDatabase cdb) {
+        String insertSql = cdInstance.isUpsertEnabled() ? getUpsertSql() : getInsertSql();
+        CoreStatement cs = cdb.acquireStatement(insertSql);
+        try {
+            for (T t : tList) {
+                bindStatement(cs, t);
+                cs.addBatch();
+            }
+            cs.executeBatch();
+        } finally {
+            cdb.releaseStatement(insertSql, cs);
+        }
+        return true;
+    }
+
+    /**
+     * 与记录的列值比较，只更新变化的列，没有记录或数据库中已不存在的数据整行插入, 内部使用
+     *
+     * @param tList 实例List
+     * @param cdb   SQLiteDatabase对象
+     * @return 是否保存成功
+     */
+    protected boolean executeSave(List<T> tList, CoreDatabase cdb) {
+        EntityCache<Object[]> snapshots = changeSnapshots;
+        if (snapshots == null) {
+            return executeInsert(tList, cdb);
+        }
+        List<Property> properties = getTableProperties();
+        List<T> insertList = new ArrayList<>();
+        // 变化的列组合各不相同，不放入语句缓存，只在本次保存中复用相同的语句
+        Map<String, CoreStatement> updateStatements = new HashMap<>();
+        try {
+            for (T t : tList) {
+                Object[] previous = snapshots.get(getPrimaryKeyValue(t));
+                if (previous == null) {
+                    insertList.add(t);
+                    continue;
+                }
+                Object[] current = RowSnapshot.of(this, t);
+                StringBuilder sqlBuilder = new StringBuilder("UPDATE ")
+                        .append(SqlUtils.formatColumnName(getTableName()))
+                        .append(" SET ");
+                List<Object> bindArgs = new ArrayList<>();
+                Object keyValue = null;
+                for (int i = 0; i < current.length; i++) {
+                    Property property = properties.get(i);
+                    if (property.primaryKey) {
+                        keyValue = current[i];
+                    } else if (i >= previous.length || !RowSnapshot.valueEquals(previous[i], current[i])) {
+                        if (!bindArgs.isEmpty()) {
+                            sqlBuilder.append(",");
+                        }
+                        sqlBuilder.append(SqlUtils.formatColumnName(property.name)).append("=?");
+                        bindArgs.add(current[i]);
+                    }
+                }
+                if (bindArgs.isEmpty()) {
+                    // 没有变化的列，不需要写入
+                    continue;
+                }
+                sqlBuilder.append(" WHERE ").append(SqlUtils.formatColumnName(getPrimaryKeyName())).append("=?");
+                bindArgs.add(keyValue);
+                String updateSql = sqlBuilder.toString();
+                CoreStatement cs = updateStatements.get(updateSql);
+                if (cs == null) {
+                    cs = cdb.compileStatement(updateSql);
+                    updateStatements.put(updateSql, cs);
+                }
+                cs.bindAllArgs(bindArgs.toArray());
+                if (cs.executeUpdateDelete() <= 0) {
+                    // 数据已被删除，整行插入
+                    insertList.add(t);
+                }
+            }
+        } finally {
+            for (CoreStatement cs : updateStatements.values()) {
+                cs.close();
+            }
+        }
+        if (!insertList.isEmpty()) {
+            executeInsert(insertList, cdb);
+        }
+        return true;
+    }
+
+    /**
+     * 整体替换父对象在中间表中的关联，列表为null时只删除原有的关联, 内部使用
+     *
+     * @param cdb               SQLiteDatabase对象
+     * @param joinTable         中间表名
+     * @param joinColumn        中间表中保存当前对象主键的列
+     * @param inverseJoinColumn 中间表中保存关联对象主键的列
+     * @param relationDao       关联对象的dao
+     * @param relations         以当前对象主键为key的关联对象列表
+     * @param <R>               关联对象的类型
+     */
+    protected <R> void replaceJoinRows(CoreDatabase cdb, String joinTable, String joinColumn, String inverseJoinColumn,
+                                       CoreDao<R> relationDao, Map<Object, List<R>> relations) {
+        if (relations.isEmpty()) {
+            return;
+        }
+        RelationContext context = RelationContext.current();
+        if (context != null) {
+            context.markJoinTableWritten(joinTable);
+        }
+        String deleteSql = String.format("DELETE FROM %s WHERE %s=?",
+                SqlUtils.formatColumnName(joinTable),
+                SqlUtils.formatColumnName(joinColumn));
+        CoreStatement deleteStatement = cdb.acquireStatement(deleteSql);
+        try {
+            for (Object key : relations.keySet()) {
+                deleteStatement.bindAllArgs(new Object[]{key});
+                deleteStatement.executeUpdateDelete();
+            }
+        } finally {
+            cdb.releaseStatement(deleteSql, deleteStatement);
+        }
+        // 列表中重复的关联对象只保存一行
+        String insertSql = String.format("INSERT OR IGNORE INTO %s(%s,%s) VALUES (?,?)",
+                SqlUtils.formatColumnName(joinTable),
+                SqlUtils.formatColumnName(joinColumn),
+                SqlUtils.formatColumnName(inverseJoinColumn));
+        CoreStatement insertStatement = cdb.acquireStatement(insertSql);
+        try {
+            for (Map.Entry<Object, List<R>> entry : relations.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                for (R r : entry.getValue()) {
+                    if (r == null) {
+                        continue;
+                    }
+                    insertStatement.bindObject(1, entry.getKey());
+                    insertStatement.bindObject(2, relationDao.getPrimaryKeyValue(r));
+                    insertStatement.addBatch();
+                }
+            }
+            insertStatement.executeBatch();
+        } finally {
+            cdb.releaseStatement(insertSql, insertStatement);
+        }
+    }
+
+    /**
+     * 单条数据插入
+     *
+     * @param t 实体对象
+     * @return 是否插入成功
+     */
+    public boolean replace(T t) {
+        if (t == null) {
+            return false;
+        }
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.add(t);
+            return true;
+        }
+        flushRelationWriteBehind();
+        String[] lockTables = getRelationLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        lockManager.lockWrite(lockTables);
+        RelationContext context = RelationContext.begin();
+        try {
+            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
+            cdb.beginTransaction();
+            try {
+                replace(t, cdb);
+                cdb.setTransactionSuccessful();
+            } finally {
+                cdb.endTransaction();
+            }
+            notifyWritten(context);
+            recordSnapshots(Collections.singletonList(t), getSnapshotGeneration());
+        } finally {
+            context.end();
+            lockManager.unlockWrite(lockTables);
+        }
+        return true;
+    }
+
+    /**
+     * 插入集合数据
+     *
+     * @param tCollection 实体集合
+     * @return 是否插入成功
+     */
+    public boolean replace(Collection<T> tCollection) {
+        flushWriteBehind();
+        return replaceNow(tCollection);
+    }
+
+    /**
+     * 在一个事务中插入集合数据，不经过延迟写入缓冲区
+     *
+     * @param tCollection 实体集合
+     * @return 是否插入成功
+     */
+    boolean replaceNow(Collection<T> tCollection) {
+        flushRelationWriteBehind();
+        String[] lockTables = getRelationLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        lockManager.lockWrite(lockTables);
+        RelationContext context = RelationContext.begin();
+        try {
+            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
+            cdb.beginTransaction();
+            try {
+                replace(tCollection, cdb);
+                cdb.setTransactionSuccessful();
+            } finally {
+                cdb.endTransaction();
+            }
+            notifyWritten(context);
+            recordSnapshots(tCollection, getSnapshotGeneration());
+        } finally {
+            context.end();
+            lockManager.unlockWrite(lockTables);
+        }
+        return true;
+    }
+
+    /**
+     * 保存单条数据，实体开启{@link com.coredata.annotation.Entity#trackChanges()}时
+     * 只更新与上次查询或写入相比发生变化的列，数据不存在时插入；未开启时与{@link #replace(Object)}相同
+     *
+     * @param t 实体对象
+     * @return 是否保存成功
+     */
+    public boolean save(T t) {
+        if (t == null) {
+            return false;
+        }
+        return save(Collections.singletonList(t));
+    }
+
+    /**
+     * 在一个事务中保存集合数据，参见{@link #save(Object)}
+     *
+     * @param tCollection 实体集合
+     * @return 是否保存成功
+     */
+    public boolean save(Collection<T> tCollection) {
+        // 缓冲区中的数据还未写入，记录的列值不是数据库中的值
+        flushWriteBehind();
+        flushRelationWriteBehind();
+        String[] lockTables = getRelationLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        lockManager.lockWrite(lockTables);
+        RelationContext context = RelationContext.begin();
+        try {
+            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
+            cdb.beginTransaction();
+            try {
+                save(tCollection, cdb);
+                cdb.setTransactionSuccessful();
+            } finally {
+                cdb.endTransaction();
+            }
+            notifyWritten(context);
+            recordSnapshots(tCollection, getSnapshotGeneration());
+        } finally {
+            context.end();
+            lockManager.unlockWrite(lockTables);
+        }
+        return true;
+    }
+
+    /**
+     * 保存集合数据, 内部使用
+     * <p>
+     * 同一次操作中已经写入的对象不再重复写入，关联成环时不会无限递归
+     *
+     * @param tCollection 实体集合
+     * @param cdb         SQLiteDatabase对象
+     * @return 是否保存成功
+     */
+    public boolean save(Collection<T> tCollection, CoreDatabase cdb) {
+        RelationContext context = RelationContext.begin();
+        try {
+            List<T> tList = context.filterUnwritten(this, tCollection);
+            return tList.isEmpty() || saveInternal(tList, cdb);
+        } finally {
+            context.end();
+        }
+    }
+
+    /**
+     * 查询所有数据
+     *
+     * @return 实体对象List
+     */
+    public List<T> queryAll() {
+        return query().result();
+    }
+
+    /**
+     * 根据主键查询数据
+     *
+     * @param key 主键value
+     * @return 实体对象，可能为null
+     */
+    public T queryByKey(Object key) {
+        EntityCache<T> cache = entityCache;
+        long generation = 0;
+        if (cache != null) {
+            T t = cache.get(key);
+            if (t != null) {
+                return t;
+            }
+            generation = cache.getGeneration();
+        }
+        List<T> tList = query()
+                .where(getPrimaryKeyName()).eq(key)
+                .result();
+        if (tList != null && !tList.isEmpty()) {
+            T t = tList.get(0);
+            if (cache != null && isCacheable(RelationContext.current())) {
+                cache.put(getPrimaryKeyValue(t), t, generation);
+            }
+            return t;
+        }
+        return null;
+    }
+
+    /**
+     * 根据给定的主键列表查询数据
+     * <p>
+     * 主键较多时自动分批查询并合并结果，各批次在同一个读锁范围内、同一个读连接上执行，WAL模式下在同一个读事务中执行(取决于驱动，参见{@link CoreDatabase#beginReadTransaction()})；
+     * 开启对象缓存时只查询缓存中没有的主键；在关联加载中调用时，本次操作已经实例化的对象直接复用
+     *
+     * @param keys 主键values
+     * @return 实体对象List
+     */
+    public List<T> queryByKeys(Object[] keys) {
+        return queryByKeys(keys, false);
+    }
+
+    /**
+     * 根据给定的主键列表查询数据，参见{@link #queryByKeys(Object[])}
+     *
+     * @param keys         主键values
+     * @param throwOnError 查询失败时是否抛出异常，为false时返回空列表
+     * @return 实体对象List
+     */
+    List<T> queryByKeys(Object[] keys, boolean throwOnError) {
+        if (keys == null || keys.length <= 0) {
+            return new ArrayList<>();
+        }
+        RelationContext context = RelationContext.current();
+        if (context == null) {
+            return queryByKeysCached(keys, throwOnError);
+        }
+        List<T> tList = new ArrayList<>(keys.length);
+        List<Object> missKeys = new ArrayList<>();
+        for (Object key : keys) {
+            T t = context.getLoaded(this, key);
+            if (t != null) {
+                tList.add(t);
+            } else {
+                missKeys.add(key);
+            }
+        }
+        if (!missKeys.isEmpty()) {
+            for (T t : queryByKeysCached(missKeys.toArray(), throwOnError)) {
+                tList.add(context.putLoaded(this, getPrimaryKeyValue(t), t));
+            }
+        }
+        return tList;
     }
 
     /**
-     * 数据库升级
+     * 先从对象缓存中查找，再从数据库中查询缓存中没有的主键
      *
-     * @param db         {@link CoreDatabaseManager#onUpgrade(CoreDatabase, int, int)}
-     * @param oldVersion 老版本
-     * @param newVersion 新版本
+     * @param keys         主键values
+     * @param throwOnError 查询失败时是否抛出异常
+     * @return 实体对象List
      */
-    void onDataBaseUpgrade(CoreDatabase db, int oldVersion, int newVersion) {
-        synchronized (lock) {
-            List<DbProperty> dbProperties = new ArrayList<>();
-            Cursor cursor = null;
-            try {
-                cursor = db.rawQuery(String.format("PRAGMA TABLE_INFO(%s)", getTableName()), null);
-                int nameCursorIndex = cursor.getColumnIndex("name");
-                int typeCursorIndex = cursor.getColumnIndex("type");
-                int nonNullCursorIndex = cursor.getColumnIndex("notnull");
-                int defValCursorIndex = cursor.getColumnIndex("dflt_value");
-                int primaryKeyCursorIndex = cursor.getColumnIndex("pk");
-                while (cursor.moveToNext()) {
-                    String name = cursor.getString(nameCursorIndex);
-                    String type = cursor.getString(typeCursorIndex);
-                    boolean primaryKey = cursor.getInt(primaryKeyCursorIndex) == 1;
-                    dbProperties.add(new DbProperty(name, type, primaryKey));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                closeCursor(cursor);
-            }
-
-            if (dbProperties.isEmpty()) {
-                // 如果找不到建表语句，则删除旧表重新创建
-                db.execSQL(SqlUtils.getDropTableSql(getTableName()));
-                db.execSQL(getCreateTableSql());
+    private List<T> queryByKeysCached(Object[] keys, boolean throwOnError) {
+        EntityCache<T> cache = entityCache;
+        if (cache == null) {
+            return queryByKeysInternal(keys, throwOnError);
+        }
+        List<T> tList = new ArrayList<>(keys.length);
+        List<Object> missKeys = new ArrayList<>();
+        for (Object key : keys) {
+            T t = cache.get(key);
+            if (t != null) {
+                tList.add(t);
             } else {
-                // 解析原始表创建语句，分析字段对应类型及主键，索引等参数是否一致，并进行修改
-
-                // 匹配相交的数据
-                List<Property> tableProperties = getTableProperties();
-                List<DbProperty> newDbProperties = new ArrayList<>();
-                for (Property property : tableProperties) {
-                    newDbProperties.add(
-                            new DbProperty(property.name,
-                                    SqlUtils.getSqlTypeByClazz(property.type),
-                                    property.primaryKey));
-                }
-
-                // 以新表为基准求交集，如果新表是旧表的子集，并且size相等，说明不需要迁移表，不需要做任何处理
-                // 如果求交集数据有变化，或者新旧表列数不相等，则需要迁移
-                if (newDbProperties.retainAll(dbProperties)
-                        || tableProperties.size() != dbProperties.size()) {
-                    // 修改老表到临时表
-                    String tempTableName = getTableName() + "_" + oldVersion;
-                    boolean needMoveData = true;
-                    try {
-                        db.execSQL(String.format("ALTER TABLE %s RENAME TO %s", getTableName(), tempTableName));
-                    } catch (SQLException e) {
-                        // 修改表结构失败
-                        db.execSQL(SqlUtils.getDropTableSql(getTableName()));
-                        needMoveData = false;
-                    }
-                    // 创建新的表
-                    db.execSQL(getCreateTableSql());
-                    // 交集不为空则进行数据迁移
-
-                    if (needMoveData && !newDbProperties.isEmpty()) {
-                        try {
-                            // 取出老的数据
-                            boolean isJoinPrimaryKey = false;
-                            for (DbProperty dbProperty : newDbProperties) {
-                                if (dbProperty.primaryKey) {
-                                    isJoinPrimaryKey = true;
-                                    break;
-                                }
-                            }
-                            // 如果交集中有主键，则需要数据迁移
-                            // 如果主键不一致，说明数据没有迁移的必要
-                            if (isJoinPrimaryKey) {
-                                // 从老表中取出所有交集的数据
-                                StringBuilder sqlBuilder = new StringBuilder("SELECT ");
-                                boolean isFirst = true;
-                                for (DbProperty dbProperty : newDbProperties) {
-                                    if (!isFirst) {
-                                        sqlBuilder.append(", ");
-                                    }
-                                    isFirst = false;
-                                    sqlBuilder.append(dbProperty.name);
-                                }
-                                sqlBuilder.append(" FROM ").append(tempTableName);
-                                List<ContentValues> contentValuesList = new ArrayList<>();
-                                Cursor cursorData = null;
-                                try {
-                                    // 取出所有相交的数据，并转换为ContentValues
-                                    cursorData = db.rawQuery(sqlBuilder.toString(), null);
-                                    while (cursorData.moveToNext()) {
-                                        ContentValues contentValues = new ContentValues();
-                                        DatabaseUtils.cursorRowToContentValues(cursorData, contentValues);
-                                        contentValuesList.add(contentValues);
-                                    }
-                                } finally {
-                                    closeCursor(cursorData);
-                                }
-                                // 插入新表
-                                if (!contentValuesList.isEmpty()) {
-                                    db.beginTransaction();
-                                    for (ContentValues cv : contentValuesList) {
-                                        db.replace(getTableName(), null, cv);
-                                    }
-                                    db.setTransactionSuccessful();
-                                    db.endTransaction();
-                                }
-                            }
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    // 删除旧表
-                    db.execSQL(SqlUtils.getDropTableSql(tempTableName));
+                missKeys.add(key);
+            }
+        }
+        if (!missKeys.isEmpty()) {
+            long generation = cache.getGeneration();
+            List<T> missList = queryByKeysInternal(missKeys.toArray(), throwOnError);
+            if (isCacheable(RelationContext.current())) {
+                for (T t : missList) {
+                    cache.put(getPrimaryKeyValue(t), t, generation);
                 }
             }
+            tList.addAll(missList);
         }
+        return tList;
     }
 
     /**
-     * 数据库降级
+     * 本次操作读出的对象是否可以放入对象缓存，受层数限制没有加载关联的对象不完整，不能缓存
      *
-     * @param db         {@link CoreDatabaseManager#onDowngrade(CoreDatabase, int, int)}
-     * @param oldVersion 老版本
-     * @param newVersion 新版本
+     * @param context 当前操作的上下文，可以为null
+     * @return true为可以缓存
      */
-    void onDataBaseDowngrade(CoreDatabase db, int oldVersion, int newVersion) {
-        db.execSQL(SqlUtils.getDropTableSql(getTableName()));
-        onDataBaseCreate(db);
+    private boolean isCacheable(RelationContext context) {
+        return context == null || !context.isTruncated() || getRelationDaos().isEmpty();
     }
 
     /**
-     * 数据库创建
+     * 从数据库中根据主键列表查询
      *
-     * @param coreData CoreData实例
+     * @param keys         主键values
+     * @param throwOnError 查询失败时是否抛出异常
+     * @return 实体对象List
      */
-    protected void onCreate(CoreData coreData) {
-        this.cdInstance = coreData;
+    private List<T> queryByKeysInternal(Object[] keys, boolean throwOnError) {
+        if (keys.length <= KEY_BATCH_SIZE) {
+            return queryByKeyBatch(keys, throwOnError);
+        }
+        String[] lockTables = getRelationLockTables();
+        beginRead(lockTables);
+        try {
+            // 各批次的查询复用当前线程持有的连接；WAL模式下读操作不加表锁，
+            // 在读连接上开启读事务，各批次之间提交的写事务不会被读到
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            CoreDatabase cdb = cdbManager.acquireReadableDatabase();
+            boolean readTransaction = cdbManager.isWriteAheadLogging();
+            try {
+                if (readTransaction) {
+                    cdb.beginReadTransaction();
+                }
+                try {
+                    List<T> tList = new ArrayList<>(keys.length);
+                    for (int start = 0; start < keys.length; start += KEY_BATCH_SIZE) {
+                        Object[] batchKeys = Arrays.copyOfRange(keys, start, Math.min(start + KEY_BATCH_SIZE, keys.length));
+                        tList.addAll(queryByKeyBatch(batchKeys, throwOnError));
+                    }
+                    return tList;
+                } finally {
+                    if (readTransaction) {
+                        cdb.endReadTransaction();
+                    }
+                }
+            } finally {
+                cdbManager.releaseReadableDatabase(cdb);
+            }
+        } finally {
+            endRead(lockTables);
+        }
     }
 
-    /**
-     * 获取表名
-     *
-     * @return
-     */
-    public abstract String getTableName();
+    private List<T> queryByKeyBatch(Object[] keys, boolean throwOnError) {
+        ResultSet<T> resultSet = query();
+        resultSet.where(getPrimaryKeyName()).in(keys);
+        return resultSet.result(throwOnError);
+    }
 
     /**
-     * 获取主键的名字
+     * 创建临时表并写入主键，需要在事务中调用，用完后需删除
      *
-     * @return
+     * @param cdb  写连接
+     * @param keys 主键values
+     * @return 临时表名
      */
-    public abstract String getPrimaryKeyName();
+    private String createTempKeyTable(CoreDatabase cdb, Object[] keys) {
+        String tempTableName = "__coredata_keys_" + tempKeyTableIndex.incrementAndGet();
+        String keyType = "";
+        for (Property property : getTableProperties()) {
+            if (property.primaryKey) {
+                keyType = SqlUtils.getSqlTypeByClazz(property.type);
+                break;
+            }
+        }
+        cdb.execSQL(String.format("CREATE TEMP TABLE %s (key_value %s PRIMARY KEY)", tempTableName, keyType));
+        // 临时表名每次都不同，不放入语句缓存
+        CoreStatement cs = cdb.compileStatement(String.format("INSERT OR IGNORE INTO %s (key_value) VALUES (?)", tempTableName));
+        try {
+            Object[] bindArgs = new Object[1];
+            for (Object key : keys) {
+                if (key != null) {
+                    bindArgs[0] = key;
+                    cs.bindAllArgs(bindArgs);
+                    cs.executeInsert();
+                }
+            }
+        } finally {
+            cs.close();
+        }
+        return tempTableName;
+    }
 
     /**
-     * 获取table所有的fields
+     * 根据给定的条件进行查询
      *
-     * @return
+     * @param sql      sql语句
+     * @param bindArgs sql中"?"对应的参数
+     * @return 实体对象List
      */
-    public abstract List<Property> getTableProperties();
-
-    protected abstract String getCreateTableSql();
+    List<T> querySqlInternal(String sql, Object[] bindArgs) {
+        return querySqlInternal(sql, bindArgs, false);
+    }
 
     /**
-     * 获取插入语句
+     * 根据给定的条件进行查询
      *
-     * @return 返回插入数据库语句，例如"INSERT OR REPLACE INTO `Book`(`id`,`name`,`tags`,`author_id`,`desc_content`,`desc_email`) VALUES (?,?,?,?,?,?)"
+     * @param sql          sql语句
+     * @param bindArgs     sql中"?"对应的参数
+     * @param throwOnError 查询失败时是否抛出异常，为false时打印异常并返回空列表
+     * @return 实体对象List
      */
-    protected abstract String getInsertSql();
-
-    protected abstract void bindStatement(CoreStatement statement, T t);
-
-    protected abstract boolean replaceInternal(Collection<T> tCollection, CoreDatabase db);
-
-    protected abstract List<T> bindCursor(Cursor cursor);
+    List<T> querySqlInternal(String sql, Object[] bindArgs, boolean throwOnError) {
+        // bindCursor会查询关联表，这里一次性对所有关联表加读锁
+        String[] lockTables = getRelationLockTables();
+        beginRead(lockTables);
+        try {
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            // 取不到连接时直接抛出，不能当作查询结果为空
+            CoreDatabase cdb = cdbManager.acquireReadableDatabase();
+            try {
+                return querySqlInternal(cdb, sql, bindArgs);
+            } catch (RuntimeException e) {
+                if (throwOnError) {
+                    throw e;
+                }
+                e.printStackTrace();
+            } finally {
+                cdbManager.releaseReadableDatabase(cdb);
+            }
+            return new ArrayList<>();
+        } finally {
+            endRead(lockTables);
+        }
+    }
 
     /**
-     * 单条数据插入 内部使用
+     * 在给定的连接上查询，调用方负责加锁
      *
-     * @param t   实体对象
-     * @param cdb SQLiteDatabase对象
-     * @return 是否插入成功
+     * @param cdb      数据库连接
+     * @param sql      sql语句
+     * @param bindArgs sql中"?"对应的参数
+     * @return 实体对象List
      */
-    protected boolean replace(T t, CoreDatabase cdb) {
-        // 查找出 所有关联的对象对应的dao，以及所对应的dao
-        ArrayList<T> tList = new ArrayList<>();
-        tList.add(t);
-        return replace(tList, cdb);
+    private List<T> querySqlInternal(CoreDatabase cdb, String sql, Object[] bindArgs) {
+        LogUtils.d("CoreData", "CoreDao--querySqlInternal--sql:" + sql);
+        Cursor cursor = null;
+        try {
+            long generation = getSnapshotGeneration();
+            cursor = cdb.rawQuery(sql, SqlUtils.toSelectionArgs(bindArgs));
+            List<T> tList = bindCursor(cursor);
+            recordSnapshots(tList, generation);
+            return tList;
+        } finally {
+            closeCursor(cursor);
+        }
     }
 
     /**
-     * 插入集合数据, 内部使用
+     * 一对多关联，按子表中保存父对象主键的列查询出所有父对象的子对象, 内部使用
+     * <p>
+     * 所有父对象的子对象分批合并查询，不会每个父对象查询一次
      *
-     * @param tCollection 实体集合
-     * @param cdb         SQLiteDatabase对象
-     * @return 是否插入成功
+     * @param column 子表中保存父对象主键的列
+     * @param keys   父对象的主键
+     * @return 以父对象主键分组的子对象
      */
-    public boolean replace(Collection<T> tCollection, CoreDatabase cdb) {
-        return replaceInternal(tCollection, cdb);
+    public RelationGroups<T> queryGroupByColumn(String column, Object[] keys) {
+        String sqlFormat = String.format("SELECT * FROM %s WHERE %s IN (%%s)",
+                SqlUtils.formatColumnName(getTableName()),
+                SqlUtils.formatColumnName(column));
+        return queryGroups(sqlFormat, column, keys);
     }
 
     /**
-     * 绑定数据并提交插入, 内部使用
+     * 多对多关联，通过中间表查询出所有父对象的关联对象, 内部使用
+     * <p>
+     * 所有父对象的关联对象分批合并查询，按写入中间表的顺序排列
      *
-     * @param tList 实例List
-     * @param cdb   SQLiteDatabase对象
-     * @return 是否插入成功
+     * @param joinTable         中间表名
+     * @param joinColumn        中间表中保存父对象主键的列
+     * @param inverseJoinColumn 中间表中保存当前对象主键的列
+     * @param keys              父对象的主键
+     * @return 以父对象主键分组的关联对象
      */
-    protected boolean executeInsert(List<T> tList, CoreDatabase cdb) {
-        CoreStatement cs = cdb.compileStatement(getInsertSql());
-        for (T t : tList) {
-            bindStatement(cs, t);
-            cs.executeInsert();
-        }
-        return true;
+    public RelationGroups<T> queryGroupByJoinTable(String joinTable, String joinColumn, String inverseJoinColumn, Object[] keys) {
+        String sqlFormat = String.format("SELECT __c.*, __j.%s AS %s FROM %s AS __c INNER JOIN %s AS __j ON __c.%s = __j.%s WHERE __j.%s IN (%%s) ORDER BY __j.rowid",
+                SqlUtils.formatColumnName(joinColumn),
+                GROUP_KEY_COLUMN,
+                SqlUtils.formatColumnName(getTableName()),
+                SqlUtils.formatColumnName(joinTable),
+                SqlUtils.formatColumnName(getPrimaryKeyName()),
+                SqlUtils.formatColumnName(inverseJoinColumn),
+                SqlUtils.formatColumnName(joinColumn));
+        return queryGroups(sqlFormat, GROUP_KEY_COLUMN, keys);
     }
 
     /**
-     * 单条数据插入
+     * 分批执行分组查询，各批次在同一个读锁范围内执行<br>
+     * 查询失败时直接抛出异常，不能把失败当成"没有子对象"返回，
+     * 否则父对象再次保存时会按空列表删除中间表中原有的关联
      *
-     * @param t 实体对象
-     * @return 是否插入成功
+     * @param sqlFormat   查询语句，"%s"处填入主键的占位符
+     * @param groupColumn 结果中父对象主键所在的列
+     * @param keys        父对象的主键
+     * @return 分组结果
      */
-    public boolean replace(T t) {
-        if (t == null) {
-            return false;
+    private RelationGroups<T> queryGroups(String sqlFormat, String groupColumn, Object[] keys) {
+        RelationGroups<T> groups = new RelationGroups<>();
+        if (keys == null || keys.length == 0) {
+            return groups;
         }
-        synchronized (lock) {
-            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
-            cdb.beginTransaction();
-            replace(t, cdb);
-            cdb.setTransactionSuccessful();
-            cdb.endTransaction();
+        String[] lockTables = getRelationLockTables();
+        beginRead(lockTables);
+        try {
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            CoreDatabase cdb = cdbManager.acquireReadableDatabase();
+            try {
+                for (int start = 0; start < keys.length; start += KEY_BATCH_SIZE) {
+                    Object[] batchKeys = Arrays.copyOfRange(keys, start, Math.min(start + KEY_BATCH_SIZE, keys.length));
+                    StringBuilder placeholders = new StringBuilder();
+                    for (int i = 0; i < batchKeys.length; i++) {
+                        placeholders.append(i == 0 ? "?" : ",?");
+                    }
+                    queryGroups(cdb, String.format(sqlFormat, placeholders), batchKeys, groupColumn, groups);
+                }
+            } finally {
+                cdbManager.releaseReadableDatabase(cdb);
+            }
+            return groups;
+        } finally {
+            endRead(lockTables);
         }
-        return true;
     }
 
     /**
-     * 插入集合数据
-     *
-     * @param tCollection 实体集合
-     * @return 是否插入成功
+     * 绑定一批分组查询的结果，绑定完成后重新遍历游标读出每行所属的父对象主键
      */
-    public boolean replace(Collection<T> tCollection) {
-        synchronized (lock) {
-            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
-            cdb.beginTransaction();
-            replace(tCollection, cdb);
-            cdb.setTransactionSuccessful();
-            cdb.endTransaction();
+    private void queryGroups(CoreDatabase cdb, String sql, Object[] bindArgs, String groupColumn, RelationGroups<T> groups) {
+        LogUtils.d("CoreData", "CoreDao--queryGroups--sql:" + sql);
+        Cursor cursor = null;
+        try {
+            long generation = getSnapshotGeneration();
+            cursor = cdb.rawQuery(sql, SqlUtils.toSelectionArgs(bindArgs));
+            List<T> tList = bindCursor(cursor);
+            recordSnapshots(tList, generation);
+            int groupIndex = cursor.getColumnIndexOrThrow(groupColumn);
+            cursor.moveToPosition(-1);
+            RelationContext context = RelationContext.current();
+            for (T t : tList) {
+                cursor.moveToNext();
+                if (context != null) {
+                    t = context.putLoaded(this, getPrimaryKeyValue(t), t);
+                }
+                groups.add(getCursorValue(cursor, groupIndex), t);
+            }
+        } finally {
+            closeCursor(cursor);
         }
-        return true;
     }
 
     /**
-     * 查询所有数据
+     * 打开游标进行逐条迭代，游标和连接在迭代器关闭前一直被占用
      *
-     * @return 实体对象List
+     * @param sql      sql语句
+     * @param bindArgs sql中"?"对应的参数
+     * @param maxDepth 最多加载的关联层数
+     * @return 迭代器，使用完毕后必须关闭
      */
-    public List<T> queryAll() {
-        return query().result();
+    ResultIterator<T> iterateSqlInternal(String sql, Object[] bindArgs, int maxDepth) {
+        String[] lockTables = getSelfLockTables();
+        beginRead(lockTables);
+        try {
+            LogUtils.d("CoreData", "CoreDao--iterateSqlInternal--sql:" + sql);
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            // 迭代器可能在其他线程继续使用，连接不绑定到当前线程
+            CoreDatabase cdb = cdbManager.acquireDetachedReadableDatabase();
+            try {
+                Cursor cursor = cdb.rawQuery(sql, SqlUtils.toSelectionArgs(bindArgs));
+                return new ResultIterator<>(this, cdb, cursor, maxDepth);
+            } catch (RuntimeException e) {
+                cdbManager.releaseReadableDatabase(cdb);
+                throw e;
+            }
+        } finally {
+            endRead(lockTables);
+        }
     }
 
     /**
-     * 根据主键查询数据
+     * 从游标中取出下一批数据，只在绑定期间加读锁，不会在迭代的调用方代码执行时持有锁；
+     * 绑定期间迭代器的连接绑定到当前线程，关联加载在同一个连接上读取
      *
-     * @param key 主键value
-     * @return 实体对象，可能为null
+     * @param cdb      迭代器持有的连接
+     * @param cursor   游标
+     * @param maxCount 最多绑定的条数
+     * @param maxDepth 最多加载的关联层数
+     * @return 实体对象List，没有更多数据时为空
      */
-    public T queryByKey(Object key) {
-        List<T> tList = query()
-                .where(getPrimaryKeyName()).eq(key)
-                .result();
-        if (tList != null && !tList.isEmpty()) {
-            return tList.get(0);
+    List<T> bindCursorBatch(CoreDatabase cdb, Cursor cursor, int maxCount, int maxDepth) {
+        String[] lockTables = getRelationLockTables();
+        beginRead(lockTables);
+        CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+        boolean attached = cdbManager.attachReadableDatabase(cdb);
+        RelationContext context = RelationContext.begin(maxDepth);
+        try {
+            return bindCursor(cursor, maxCount);
+        } finally {
+            context.end();
+            if (attached) {
+                cdbManager.detachReadableDatabase(cdb);
+            }
+            endRead(lockTables);
         }
-        return null;
     }
 
     /**
-     * 根据给定的主键列表查询数据
+     * 归还迭代器占用的连接
      *
-     * @param keys 主键values
-     * @return 实体对象List
+     * @param cdb 连接
      */
-    public List<T> queryByKeys(Object[] keys) {
-        if (keys == null || keys.length <= 0) {
-            return new ArrayList<>();
-        }
-        return query()
-                .where(getPrimaryKeyName()).in(keys)
-                .result();
+    void releaseIterateDatabase(CoreDatabase cdb) {
+        cdInstance.getCoreDataBase().releaseReadableDatabase(cdb);
     }
 
     /**
-     * 根据给定的条件进行查询
+     * 查询一页数据，并读出最后一行中用于定位下一页的列值
      *
-     * @param sql sql语句
-     * @return 实体对象List
+     * @param sql        sql语句
+     * @param bindArgs   sql中"?"对应的参数
+     * @param keyColumns 定位下一页所用的列
+     * @return 本页数据，查询失败时数据为空
      */
-    List<T> querySqlInternal(String sql) {
-        synchronized (lock) {
-            Log.d("CoreData", "CoreDao--querySqlInternal--sql:" + sql);
-            CoreDatabase cdb;
+    Pager.PageResult<T> queryPageInternal(String sql, Object[] bindArgs, String[] keyColumns) {
+        String[] lockTables = getRelationLockTables();
+        beginRead(lockTables);
+        try {
+            LogUtils.d("CoreData", "CoreDao--queryPageInternal--sql:" + sql);
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            CoreDatabase cdb = cdbManager.acquireReadableDatabase();
             Cursor cursor = null;
             try {
-                cdb = cdInstance.getCoreDataBase().getReadableDatabase();
-                cursor = cdb.rawQuery(sql, null);
-                return bindCursor(cursor);
+                long generation = getSnapshotGeneration();
+                cursor = cdb.rawQuery(sql, SqlUtils.toSelectionArgs(bindArgs));
+                List<T> list = bindCursor(cursor);
+                recordSnapshots(list, generation);
+                Object[] lastKeys = null;
+                if (!list.isEmpty() && cursor.moveToLast()) {
+                    lastKeys = new Object[keyColumns.length];
+                    for (int i = 0; i < keyColumns.length; i++) {
+                        lastKeys[i] = getCursorValue(cursor, cursor.getColumnIndexOrThrow(keyColumns[i]));
+                    }
+                }
+                return new Pager.PageResult<>(list, lastKeys);
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
                 closeCursor(cursor);
+                cdbManager.releaseReadableDatabase(cdb);
             }
-            return new ArrayList<>();
+            return new Pager.PageResult<>(new ArrayList<T>(), null);
+        } finally {
+            endRead(lockTables);
+        }
+    }
+
+    private static Object getCursorValue(Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            case Cursor.FIELD_TYPE_STRING:
+                return cursor.getString(index);
+            case Cursor.FIELD_TYPE_BLOB:
+                return cursor.getBlob(index);
+            default:
+                return null;
         }
     }
 
+    /**
+     * 按主键分页，查询主键大于afterKey的下一页数据
+     * <p>
+     * 与{@link ResultSet#offset(int)}不同，查询代价不会随着翻页的深度增长
+     *
+     * @param afterKey 上一页最后一条数据的主键，为null时查询第一页
+     * @param size     每页条数
+     * @return 实体对象List
+     */
+    public List<T> page(Object afterKey, int size) {
+        return pager(size).startAfter(afterKey).next();
+    }
+
+    /**
+     * 创建一个按主键升序的分页器
+     *
+     * @param pageSize 每页条数
+     * @return 分页器
+     */
+    public Pager<T> pager(int pageSize) {
+        return new Pager<>(this, getPrimaryKeyName(), Order.ASC, pageSize);
+    }
+
+    /**
+     * 创建一个按给定列排序的分页器，列值相同时以主键区分先后
+     *
+     * @param columnName 排序的列，列值不能为NULL
+     * @param order      排序方式
+     * @param pageSize   每页条数
+     * @return 分页器
+     */
+    public Pager<T> pager(String columnName, Order order, int pageSize) {
+        return new Pager<>(this, columnName, order, pageSize);
+    }
+
     /**
      * 查询，生成一个查询用的结构处理集
      *
@@ -379,16 +1819,34 @@ public abstract class CoreDao<T> {
      * @return 实体对象List
      */
     public Cursor querySqlCursor(String sql) {
-        synchronized (lock) {
-            Log.d("CoreData", "CoreDao--querySqlInternal--sql:" + sql);
-            CoreDatabase cdb;
+        return querySqlCursor(sql, null);
+    }
+
+    /**
+     * 根据给定的条件进行查询
+     *
+     * @param sql      sql语句
+     * @param bindArgs sql中"?"对应的参数
+     * @return 游标
+     */
+    public Cursor querySqlCursor(String sql, Object[] bindArgs) {
+        String[] lockTables = getSelfLockTables();
+        beginRead(lockTables);
+        try {
+            LogUtils.d("CoreData", "CoreDao--querySqlInternal--sql:" + sql);
+            CoreDatabaseManager cdbManager = cdInstance.getCoreDataBase();
+            CoreDatabase cdb = cdbManager.acquireReadableDatabase();
             try {
-                cdb = cdInstance.getCoreDataBase().getReadableDatabase();
-                return cdb.rawQuery(sql, null);
+                // 数据库对象本身是线程安全的，连接归还后游标仍然可以继续使用
+                return cdb.rawQuery(sql, SqlUtils.toSelectionArgs(bindArgs));
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                cdbManager.releaseReadableDatabase(cdb);
             }
             return null;
+        } finally {
+            endRead(lockTables);
         }
     }
 
@@ -408,13 +1866,15 @@ public abstract class CoreDao<T> {
      * @return 是否删除成功
      */
     public boolean deleteByKey(Object key) {
-        return delete()
-                .where(getPrimaryKeyName()).eq(key)
-                .execute();
+        return deleteByKeys(new Object[]{key});
     }
 
     /**
      * 根据给定主键列表删除
+     * <p>
+     * 主键较多时在同一个事务中分批删除；
+     * 超过{@link #KEY_TEMP_TABLE_THRESHOLD}时改为临时表关联删除；
+     * 中间表中被删除对象的关联在同一个事务中一起删除
      *
      * @param keys 主键value列表
      * @return 是否删除成功
@@ -423,9 +1883,53 @@ public abstract class CoreDao<T> {
         if (keys == null || keys.length <= 0) {
             return false;
         }
-        return delete()
-                .where(getPrimaryKeyName()).in(keys)
-                .execute();
+        flushWriteBehind();
+        if (keys.length <= KEY_BATCH_SIZE) {
+            DeleteSet<T> deleteSet = delete();
+            deleteSet.where(getPrimaryKeyName()).in(keys);
+            return deleteInternal(deleteSet.getSql(), deleteSet.getKeySql(), deleteSet.getBindArgs(), Arrays.asList(keys));
+        }
+        String[] lockTables = getDeleteLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        lockManager.lockWrite(lockTables);
+        try {
+            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
+            boolean deleted = false;
+            cdb.beginTransaction();
+            try {
+                if (keys.length > KEY_TEMP_TABLE_THRESHOLD) {
+                    String tempTableName = createTempKeyTable(cdb, keys);
+                    deleteJoinRows(cdb, "SELECT key_value FROM " + tempTableName, null);
+                    CoreStatement cs = cdb.compileStatement(
+                            String.format("DELETE FROM %s WHERE %s IN (SELECT key_value FROM %s)",
+                                    SqlUtils.formatColumnName(getTableName()),
+                                    SqlUtils.formatColumnName(getPrimaryKeyName()),
+                                    tempTableName));
+                    try {
+                        deleted = cs.executeUpdateDelete() > 0;
+                    } finally {
+                        cs.close();
+                    }
+                    cdb.execSQL(SqlUtils.getDropTableSql(tempTableName));
+                } else {
+                    for (int start = 0; start < keys.length; start += KEY_BATCH_SIZE) {
+                        Object[] batchKeys = Arrays.copyOfRange(keys, start, Math.min(start + KEY_BATCH_SIZE, keys.length));
+                        deleted |= delete()
+                                .where(getPrimaryKeyName()).in(batchKeys)
+                                .execute();
+                    }
+                }
+                cdb.setTransactionSuccessful();
+            } finally {
+                cdb.endTransaction();
+            }
+            if (deleted) {
+                notifyTablesChanged(lockTables, Arrays.asList(keys));
+            }
+            return deleted;
+        } finally {
+            lockManager.unlockWrite(lockTables);
+        }
     }
 
     public DeleteSet<T> delete() {
@@ -441,18 +1945,122 @@ public abstract class CoreDao<T> {
         return new UpdateSet<>(this);
     }
 
+    /**
+     * 删除数据，当前对象维护中间表时，在同一个事务中删除被删除对象在中间表中的关联
+     *
+     * @param sql         删除语句
+     * @param keySql      查询被删除对象主键的语句，与删除语句使用相同的参数
+     * @param bindArgs    sql中"?"对应的参数
+     * @param changedKeys 可能变化的主键，无法确定时为null
+     * @return 是否有数据变化
+     */
+    boolean deleteInternal(String sql, String keySql, Object[] bindArgs, Collection<?> changedKeys) {
+        if (getJoinTables().isEmpty()) {
+            return updateDeleteInternal(sql, bindArgs, changedKeys);
+        }
+        flushWriteBehind();
+        String[] lockTables = getDeleteLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        boolean nested = lockManager.isWriteLockedByCurrentThread(getTableName());
+        lockManager.lockWrite(lockTables);
+        try {
+            LogUtils.d("CoreData", "CoreDao--deleteInternal--sql:" + sql);
+            CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
+            boolean changed;
+            cdb.beginTransaction();
+            try {
+                // 先删除中间表，删除对象后就查不到它们的主键了
+                changed = deleteJoinRows(cdb, keySql, bindArgs);
+                CoreStatement cs = cdb.acquireStatement(sql);
+                try {
+                    cs.bindAllArgs(bindArgs);
+                    changed |= cs.executeUpdateDelete() > 0;
+                } finally {
+                    cdb.releaseStatement(sql, cs);
+                }
+                cdb.setTransactionSuccessful();
+            } finally {
+                cdb.endTransaction();
+            }
+            if (changed && !nested) {
+                notifyTablesChanged(lockTables, changedKeys);
+            }
+            return changed;
+        } finally {
+            lockManager.unlockWrite(lockTables);
+        }
+    }
+
+    /**
+     * 删除当前对象维护的中间表中，属于给定父对象的关联
+     *
+     * @param cdb      数据库，调用方需已开启事务
+     * @param keySql   查询父对象主键的语句
+     * @param bindArgs keySql中"?"对应的参数
+     * @return 是否删除了关联
+     */
+    private boolean deleteJoinRows(CoreDatabase cdb, String keySql, Object[] bindArgs) {
+        boolean deleted = false;
+        for (JoinTableProperty joinTable : getJoinTables()) {
+            String sql = String.format("DELETE FROM %s WHERE %s IN (%s)",
+                    SqlUtils.formatColumnName(joinTable.name),
+                    SqlUtils.formatColumnName(joinTable.joinColumn),
+                    keySql);
+            CoreStatement cs = cdb.compileStatement(sql);
+            try {
+                cs.bindAllArgs(bindArgs);
+                deleted |= cs.executeUpdateDelete() > 0;
+            } finally {
+                cs.close();
+            }
+        }
+        return deleted;
+    }
+
     /**
      * 给定sql更新或者删除
      *
-     * @param sql
+     * @param sql      sql语句
+     * @param bindArgs sql中"?"对应的参数
      * @return 是否删除成功
      */
-    boolean updateDeleteInternal(String sql) {
-        synchronized (lock) {
-            Log.d("CoreData", "CoreDao--updateDeleteInternal--sql:" + sql);
+    boolean updateDeleteInternal(String sql, Object[] bindArgs) {
+        return updateDeleteInternal(sql, bindArgs, null);
+    }
+
+    /**
+     * 给定sql更新或者删除
+     *
+     * @param sql         sql语句
+     * @param bindArgs    sql中"?"对应的参数
+     * @param changedKeys 可能变化的主键，无法确定时为null
+     * @return 是否有数据变化
+     */
+    private boolean updateDeleteInternal(String sql, Object[] bindArgs, Collection<?> changedKeys) {
+        flushWriteBehind();
+        // 更新和不涉及中间表的删除只涉及当前表
+        String[] lockTables = getSelfLockTables();
+        TableLockManager lockManager = getTableLockManager();
+        // 已经持有写锁时是在外层的事务中执行，由外层操作在提交后统一通知
+        boolean nested = lockManager.isWriteLockedByCurrentThread(getTableName());
+        lockManager.lockWrite(lockTables);
+        try {
+            LogUtils.d("CoreData", "CoreDao--updateDeleteInternal--sql:" + sql);
             CoreDatabase cdb = cdInstance.getCoreDataBase().getWritableDatabase();
-            CoreStatement cs = cdb.compileStatement(sql);
-            return cs.executeUpdateDelete() > 0;
+            CoreStatement cs = cdb.acquireStatement(sql);
+            boolean changed;
+            try {
+                cs.bindAllArgs(bindArgs);
+                changed = cs.executeUpdateDelete() > 0;
+            } finally {
+                cdb.releaseStatement(sql, cs);
+            }
+            if (changed && !nested) {
+                notifyTablesChanged(lockTables, changedKeys);
+            }
+            return changed;
+        } finally {
+            lockManager.unlockWrite(lockTables);
         }
     }
 
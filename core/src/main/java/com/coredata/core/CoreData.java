@@ -2,17 +2,22 @@ package com.coredata.core;
 
 import android.app.Application;
 
+import com.coredata.core.async.CoreExecutor;
 import com.coredata.core.db.Migration;
+import com.coredata.core.db.OpenHelperFactory;
 import com.coredata.core.io.ObjectInputStreamWrap;
 import com.coredata.core.utils.ReflectUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * CoreData核心类，用于构建实例，初始化配置等等
@@ -20,6 +25,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public final class CoreData {
 
     public static class Builder {
+
+        /**
+         * 默认的只读连接池大小
+         */
+        public static final int DEFAULT_READER_POOL_SIZE = 4;
+
+        /**
+         * 默认的异步读线程数
+         */
+        public static final int DEFAULT_ASYNC_READER_THREADS = 2;
+
         private String tag = TAG_DEFAULT_INSTANCE;
         private ArrayList<Class<?>> coreObjectTypeList;
         private String name;
@@ -28,6 +44,16 @@ public final class CoreData {
         @Deprecated
         private Migration migration;
         private List<Migration> migrations = new ArrayList<>();
+        private boolean writeAheadLogging;
+        private int readerPoolSize = DEFAULT_READER_POOL_SIZE;
+        private HashMap<Class<?>, EntityCache<?>> entityCacheMap = new HashMap<>();
+        private OpenHelperFactory openHelperFactory;
+        private HashMap<Class<?>, WriteBehindBuffer<?>> writeBehindMap = new HashMap<>();
+        private WriteBehindListener writeBehindListener;
+        private int asyncReaderThreads = DEFAULT_ASYNC_READER_THREADS;
+        private Executor callbackExecutor;
+        private boolean upsert;
+        private MigrationListener migrationListener;
 
         public static Builder builder() {
             return new Builder();
@@ -98,6 +124,138 @@ public final class CoreData {
             return this;
         }
 
+        /**
+         * 开启WAL(write-ahead logging)模式，开启后读操作使用独立的只读连接，
+         * 可以与正在执行的写事务并发进行
+         *
+         * @param enabled 是否开启
+         * @return
+         */
+        public Builder writeAheadLogging(boolean enabled) {
+            this.writeAheadLogging = enabled;
+            return this;
+        }
+
+        /**
+         * 只读连接池的大小，只在开启WAL模式时生效，默认为{@link #DEFAULT_READER_POOL_SIZE}
+         *
+         * @param size 最大只读连接数，小于等于0时不使用连接池
+         * @return
+         */
+        public Builder readerPoolSize(int size) {
+            this.readerPoolSize = size;
+            return this;
+        }
+
+        /**
+         * 为实体开启对象缓存，按主键查询时优先从缓存中读取
+         *
+         * @param clazz   实体类型
+         * @param maxSize 最多缓存的对象数
+         * @return
+         */
+        public Builder entityCache(Class<?> clazz, int maxSize) {
+            return entityCache(clazz, maxSize, false);
+        }
+
+        /**
+         * 为实体开启对象缓存，按主键查询时优先从缓存中读取
+         *
+         * @param clazz          实体类型
+         * @param maxSize        最多缓存的对象数
+         * @param softReferences 是否以软引用持有对象，内存不足时可被回收
+         * @return
+         */
+        public Builder entityCache(Class<?> clazz, int maxSize, boolean softReferences) {
+            entityCacheMap.put(clazz, new EntityCache<>(maxSize, softReferences));
+            return this;
+        }
+
+        /**
+         * 为实体开启延迟写入，{@link CoreDao#replace(Object)}先写入缓冲区，
+         * 缓冲的对象数达到maxPending或距第一次写入超过flushDelayMillis时批量写入
+         *
+         * @param clazz            实体类型
+         * @param maxPending       缓冲的最大对象数
+         * @param flushDelayMillis 最长延迟时间，单位毫秒
+         * @return
+         */
+        public Builder writeBehind(Class<?> clazz, int maxPending, long flushDelayMillis) {
+            writeBehindMap.put(clazz, new WriteBehindBuffer<>(maxPending, flushDelayMillis));
+            return this;
+        }
+
+        /**
+         * 延迟写入失败的回调，失败的对象会放回缓冲区并自动重试
+         *
+         * @param listener 失败回调
+         * @return
+         */
+        public Builder writeBehindListener(WriteBehindListener listener) {
+            this.writeBehindListener = listener;
+            return this;
+        }
+
+        /**
+         * 自定义数据库的打开方式，设置后{@link #password(String)}不再生效
+         *
+         * @param factory OpenHelper的创建方式
+         * @return
+         */
+        public Builder openHelperFactory(OpenHelperFactory factory) {
+            this.openHelperFactory = factory;
+            return this;
+        }
+
+        /**
+         * 异步操作读线程池的大小，默认为{@link #DEFAULT_ASYNC_READER_THREADS}，
+         * 写操作始终在单个线程中按顺序执行
+         *
+         * @param threads 读线程数
+         * @return
+         */
+        public Builder asyncReaderThreads(int threads) {
+            this.asyncReaderThreads = threads;
+            return this;
+        }
+
+        /**
+         * 异步操作回调所在的线程，默认在主线程回调
+         *
+         * @param executor 执行回调的Executor
+         * @return
+         */
+        public Builder callbackExecutor(Executor executor) {
+            this.callbackExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 数据库升级的进度回调，可以获取每个表的迁移方式及耗时
+         *
+         * @param listener 进度回调
+         * @return
+         */
+        public Builder migrationListener(MigrationListener listener) {
+            this.migrationListener = listener;
+            return this;
+        }
+
+        /**
+         * 写入时使用UPSERT(INSERT ... ON CONFLICT DO UPDATE)代替INSERT OR REPLACE，
+         * 主键冲突时原地更新，不会删除原有的行，不触发删除触发器，未映射的列也会保留；
+         * 需要SQLite 3.24.0及以上，版本过低时仍然使用INSERT OR REPLACE
+         * <p>
+         * 注意除主键以外的唯一约束冲突时不再删除冲突的行，而是抛出异常
+         *
+         * @param enabled 是否开启
+         * @return
+         */
+        public Builder upsert(boolean enabled) {
+            this.upsert = enabled;
+            return this;
+        }
+
         /**
          * 添加tag，用于区分CoreData实例，用于动态创建CoreData实例
          *
@@ -175,6 +333,11 @@ public final class CoreData {
 
     private Builder builder;
 
+    /**
+     * 异步执行器，第一次使用异步操作时创建
+     */
+    private CoreExecutor coreExecutor;
+
     /**
      * 私有界面，创建数据库入口
      *
@@ -191,7 +354,14 @@ public final class CoreData {
     private void onCreate(Application application) {
         // 此处找到相应的dao
         for (Class<?> entityClass : builder.coreObjectTypeList) {
-            coreDaoHashMap.put(entityClass, initializeDao(entityClass));
+            CoreDao<?> coreDao = initializeDao(entityClass);
+            coreDao.setEntityCache(builder.entityCacheMap.get(entityClass));
+            WriteBehindBuffer<?> writeBehindBuffer = builder.writeBehindMap.get(entityClass);
+            if (writeBehindBuffer != null) {
+                writeBehindBuffer.setListener(builder.writeBehindListener);
+            }
+            coreDao.setWriteBehindBuffer(writeBehindBuffer);
+            coreDaoHashMap.put(entityClass, coreDao);
         }
         coreDataBaseManager = new CoreDatabaseManager(
                 application,
@@ -200,7 +370,11 @@ public final class CoreData {
                 coreDaoHashMap,
                 builder.password,
                 builder.migrations,
-                builder.tag);
+                builder.tag,
+                builder.writeAheadLogging,
+                builder.readerPoolSize,
+                builder.openHelperFactory,
+                builder.migrationListener);
         for (Map.Entry<Class, CoreDao> entry : coreDaoHashMap.entrySet()) {
             entry.getValue().onCreate(this);
         }
@@ -211,7 +385,62 @@ public final class CoreData {
         return coreDaoHashMap.get(clazz);
     }
 
+    /**
+     * 表数据变化后使相关的对象缓存及变化跟踪记录的列值失效，缓存的对象关联的表发生变化时整体清空，
+     * 只有自身表变化且主键已知时只移除变化的主键
+     *
+     * @param changedTables 发生变化的表
+     * @param changedKeys   以表名为key的变化的主键，不包含的表无法确定变化的主键
+     */
+    void invalidateEntityCaches(String[] changedTables, Map<String, Collection<?>> changedKeys) {
+        for (CoreDao<?> coreDao : coreDaoHashMap.values()) {
+            coreDao.invalidateChangeSnapshots(changedTables, changedKeys);
+            EntityCache<?> cache = coreDao.getEntityCache();
+            if (cache == null) {
+                continue;
+            }
+            String tableName = coreDao.getTableName();
+            String[] cacheTables = coreDao.getRelationLockTables();
+            boolean selfChanged = false;
+            boolean relationChanged = false;
+            for (String table : changedTables) {
+                if (table.equals(tableName)) {
+                    selfChanged = true;
+                } else if (Arrays.binarySearch(cacheTables, table) >= 0) {
+                    relationChanged = true;
+                }
+            }
+            Collection<?> keys = changedKeys.get(tableName);
+            if (relationChanged || (selfChanged && keys == null)) {
+                cache.clear();
+            } else if (selfChanged) {
+                cache.remove(keys);
+            }
+        }
+    }
+
+    /**
+     * 是否使用UPSERT写入，开启了{@link Builder#upsert(boolean)}且当前SQLite版本支持
+     *
+     * @return 是否使用
+     */
+    boolean isUpsertEnabled() {
+        return builder.upsert && coreDataBaseManager.isUpsertSupported();
+    }
+
     public CoreDatabaseManager getCoreDataBase() {
         return coreDataBaseManager;
     }
+
+    /**
+     * 获取当前实例的异步执行器
+     *
+     * @return 异步执行器
+     */
+    public synchronized CoreExecutor getCoreExecutor() {
+        if (coreExecutor == null) {
+            coreExecutor = new CoreExecutor(builder.tag, builder.asyncReaderThreads, builder.callbackExecutor);
+        }
+        return coreExecutor;
+    }
 }
@@ -3,12 +3,17 @@ package com.coredata.core;
 import android.content.Context;
 import android.database.Cursor;
 import android.text.TextUtils;
-import android.util.Log;
 
 import com.coredata.core.db.CoreDatabase;
+import com.coredata.core.db.InvalidationTracker;
 import com.coredata.core.db.Migration;
+import com.coredata.core.db.OpenHelperFactory;
 import com.coredata.core.db.OpenHelperInterface;
+import com.coredata.core.db.ReaderConnectionPool;
+import com.coredata.core.db.TableLockManager;
 import com.coredata.core.normal.NormalOpenHelper;
+import com.coredata.core.utils.LogUtils;
+import com.coredata.db.JoinTableProperty;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -28,20 +33,60 @@ public class CoreDatabaseManager {
 
     private static final String CIPHER_HELPER_CLASS = "com.coredata.cipher.CipherOpenHelper";
 
+    /**
+     * 支持UPSERT语法的最低SQLite版本
+     */
+    private static final int[] UPSERT_MIN_VERSION = {3, 24, 0};
+
     private List<Migration> migrations;
 
     private String instanceTag;
 
+    private final TableLockManager tableLockManager = new TableLockManager();
+
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+
+    private final boolean writeAheadLogging;
+
+    /**
+     * 只读连接池，只有开启WAL模式时才会创建
+     */
+    private ReaderConnectionPool readerConnectionPool;
+
+    /**
+     * 当前线程正在使用的只读连接，同一线程内嵌套的读操作(例如关联加载)复用该连接，
+     * 不会在持有一个连接时再等待连接池，同时父对象与关联对象读取的是同一个快照
+     */
+    private final ThreadLocal<ReaderLease> readerLease = new ThreadLocal<>();
+
+    /**
+     * 升级进度回调，可以为null
+     */
+    private final MigrationListener migrationListener;
+
+    /**
+     * 当前SQLite是否支持UPSERT，第一次使用时检查
+     */
+    private volatile Boolean upsertSupported;
+
     public CoreDatabaseManager(Context context,
                                String name,
                                int version,
                                HashMap<Class, CoreDao> coreDaoHashMap,
                                String password,
-                               List<Migration> migrations, String tag) {
+                               List<Migration> migrations, String tag,
+                               boolean writeAheadLogging,
+                               int readerPoolSize,
+                               OpenHelperFactory openHelperFactory,
+                               MigrationListener migrationListener) {
         this.coreDaoHashMap = coreDaoHashMap;
+        this.migrationListener = migrationListener;
+        this.writeAheadLogging = writeAheadLogging;
         this.migrations = migrations;
         instanceTag = tag;
-        if (TextUtils.isEmpty(password)) {
+        if (openHelperFactory != null) {
+            openHelper = openHelperFactory.create(context, name, version, instanceTag);
+        } else if (TextUtils.isEmpty(password)) {
             openHelper = new NormalOpenHelper(context, name, version, instanceTag);
         } else {
             Class<?> aClass;
@@ -60,6 +105,10 @@ public class CoreDatabaseManager {
                 throw new IllegalStateException("if you want to use sqlite by password, you must dependencies coredata-cipher");
             }
         }
+        openHelper.setWriteAheadLogging(writeAheadLogging);
+        if (writeAheadLogging && readerPoolSize > 0) {
+            readerConnectionPool = new ReaderConnectionPool(openHelper, readerPoolSize);
+        }
         if (migrations != null) {
             Collections.sort(migrations, new Comparator<Migration>() {
                 @Override
@@ -78,11 +127,178 @@ public class CoreDatabaseManager {
         return openHelper.getReadableCoreDatabase();
     }
 
+    /**
+     * 取出一个用于读操作的连接，开启WAL模式时从只读连接池中取出，当前线程已经持有连接时直接复用，
+     * 使用完毕后必须在当前线程调用{@link #releaseReadableDatabase(CoreDatabase)}归还
+     *
+     * @return 可读的数据库连接
+     */
+    public CoreDatabase acquireReadableDatabase() {
+        if (readerConnectionPool == null) {
+            return getReadableDatabase();
+        }
+        ReaderLease lease = readerLease.get();
+        if (lease == null) {
+            lease = new ReaderLease(readerConnectionPool.acquire(), false);
+            readerLease.set(lease);
+        }
+        lease.count++;
+        return lease.cdb;
+    }
+
+    /**
+     * 归还{@link #acquireReadableDatabase()}取出的连接，当前线程最外层的读操作归还时才放回连接池
+     *
+     * @param cdb 数据库连接
+     */
+    public void releaseReadableDatabase(CoreDatabase cdb) {
+        if (readerConnectionPool == null || cdb == null) {
+            return;
+        }
+        ReaderLease lease = readerLease.get();
+        if (lease == null || lease.cdb != cdb) {
+            readerConnectionPool.release(cdb);
+            return;
+        }
+        if (--lease.count == 0) {
+            readerLease.remove();
+            if (!lease.attached) {
+                readerConnectionPool.release(cdb);
+            }
+        }
+    }
+
+    /**
+     * 取出一个不属于当前线程的只读连接，用于可能跨线程使用的迭代器，
+     * 使用完毕后调用{@link #releaseReadableDatabase(CoreDatabase)}归还
+     *
+     * @return 可读的数据库连接
+     */
+    CoreDatabase acquireDetachedReadableDatabase() {
+        if (readerConnectionPool == null) {
+            return getReadableDatabase();
+        }
+        return readerConnectionPool.acquire();
+    }
+
+    /**
+     * 将{@link #acquireDetachedReadableDatabase()}取出的连接临时绑定到当前线程，
+     * 绑定期间当前线程的读操作复用该连接，结束后调用{@link #detachReadableDatabase(CoreDatabase)}
+     *
+     * @param cdb 数据库连接
+     * @return 是否绑定，当前线程已经持有连接时不绑定
+     */
+    boolean attachReadableDatabase(CoreDatabase cdb) {
+        if (readerConnectionPool == null || readerLease.get() != null) {
+            return false;
+        }
+        ReaderLease lease = new ReaderLease(cdb, true);
+        lease.count++;
+        readerLease.set(lease);
+        return true;
+    }
+
+    /**
+     * 解除{@link #attachReadableDatabase(CoreDatabase)}的绑定，连接仍由调用方持有
+     *
+     * @param cdb 数据库连接
+     */
+    void detachReadableDatabase(CoreDatabase cdb) {
+        releaseReadableDatabase(cdb);
+    }
+
+    /**
+     * 是否开启了WAL模式，开启后读操作在独立的连接上读取快照，不需要等待写事务
+     *
+     * @return true为开启
+     */
+    public boolean isWriteAheadLogging() {
+        return writeAheadLogging;
+    }
+
+    /**
+     * 当前SQLite是否支持UPSERT语法(3.24.0及以上)
+     *
+     * @return true为支持
+     */
+    public boolean isUpsertSupported() {
+        Boolean supported = upsertSupported;
+        if (supported == null) {
+            supported = compareVersion(querySqliteVersion(), UPSERT_MIN_VERSION) >= 0;
+            upsertSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * 查询SQLite的版本号
+     *
+     * @return 例如"3.28.0"，查询失败时为null
+     */
+    public String querySqliteVersion() {
+        Cursor cursor = null;
+        try {
+            cursor = getWritableDatabase().rawQuery("SELECT sqlite_version()", null);
+            if (cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 比较两个点分的版本号，无法解析的版本视为最低
+     *
+     * @return 小于0表示version较低
+     */
+    static int compareVersion(String version, int[] target) {
+        if (version == null) {
+            return -1;
+        }
+        String[] parts = version.split("\\.");
+        for (int i = 0; i < target.length; i++) {
+            int value;
+            try {
+                value = i < parts.length ? Integer.parseInt(parts[i].trim()) : 0;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            if (value != target[i]) {
+                return value < target[i] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 获取当前实例的表级读写锁
+     *
+     * @return 表锁管理
+     */
+    public TableLockManager getTableLockManager() {
+        return tableLockManager;
+    }
+
+    /**
+     * 获取当前实例的表变化通知
+     *
+     * @return 表变化通知
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
     public void onCreate(CoreDatabase cdb) {
         for (Map.Entry<Class, CoreDao> entry : coreDaoHashMap.entrySet()) {
             entry.getValue().onDataBaseCreate(cdb);
         }
-        Log.d("wanpg", "CoreDataBaseHelper----onCreate");
+        LogUtils.d("wanpg", "CoreDataBaseHelper----onCreate");
     }
 
     public void onUpgrade(CoreDatabase cdb, int oldVersion, int newVersion) {
@@ -94,21 +310,30 @@ public class CoreDatabaseManager {
                 }
             }
         }
-        // 先取出老的表结构
-        List<String> originTableList = originTableList(cdb);
-        // 如果存在执行升级，不存在执行创建
-        for (Map.Entry<Class, CoreDao> entry : coreDaoHashMap.entrySet()) {
-            CoreDao value = entry.getValue();
-            boolean remove = originTableList.remove(value.getTableName());
-            if (remove) {
-                value.onDataBaseUpgrade(cdb, oldVersion, newVersion);
+        long startTime = System.nanoTime();
+        List<TableMigration> tableMigrations = planUpgrade(cdb);
+        if (migrationListener != null) {
+            migrationListener.onStart(Collections.unmodifiableList(tableMigrations));
+        }
+        // 整个升级在OpenHelper的事务中执行，任何一个表失败时全部回滚
+        int finishedCount = 0;
+        for (TableMigration tableMigration : tableMigrations) {
+            long tableStartTime = System.nanoTime();
+            if (tableMigration.getAction() == TableMigration.Action.DROP) {
+                cdb.execSQL("DROP TABLE " + tableMigration.getTableName());
             } else {
-                value.onDataBaseCreate(cdb);
+                tableMigration.coreDao.executeUpgrade(cdb, tableMigration, oldVersion);
+            }
+            tableMigration.setCostMillis((System.nanoTime() - tableStartTime) / 1000000);
+            finishedCount++;
+            LogUtils.d("CoreData", "CoreDatabaseManager--onUpgrade--" + tableMigration);
+            if (migrationListener != null) {
+                migrationListener.onProgress(tableMigration, finishedCount, tableMigrations.size());
             }
         }
-        // 剩下的删除表
-        for (String leftTableName : originTableList) {
-            cdb.execSQL("DROP TABLE " + leftTableName);
+        if (migrationListener != null) {
+            migrationListener.onFinish(Collections.unmodifiableList(tableMigrations),
+                    (System.nanoTime() - startTime) / 1000000);
         }
         if (migrations != null) {
             for (Migration migration : migrations) {
@@ -119,7 +344,48 @@ public class CoreDatabaseManager {
             }
             migrations.clear();
         }
-        Log.d("wanpg", "CoreDataBaseHelper----onUpgrade");
+        LogUtils.d("wanpg", "CoreDataBaseHelper----onUpgrade");
+    }
+
+    /**
+     * 在修改任何表之前计算所有表的迁移计划，执行顺序为：删除表，不需要复制数据的修改，重建表
+     *
+     * @param cdb 数据库
+     * @return 按执行顺序排列的迁移计划
+     */
+    private List<TableMigration> planUpgrade(CoreDatabase cdb) {
+        // 先取出老的表结构
+        List<String> originTableList = originTableList(cdb);
+        List<TableMigration> tableMigrations = new ArrayList<>();
+        // 如果存在执行升级，不存在执行创建
+        for (Map.Entry<Class, CoreDao> entry : coreDaoHashMap.entrySet()) {
+            CoreDao value = entry.getValue();
+            boolean remove = originTableList.remove(value.getTableName());
+            tableMigrations.add(remove ? value.planUpgrade(cdb) : value.planCreate());
+            retainJoinTables(originTableList, value);
+        }
+        // 剩下的删除表
+        for (String leftTableName : originTableList) {
+            tableMigrations.add(new TableMigration(leftTableName, TableMigration.Action.DROP, null, null, null, null));
+        }
+        Collections.sort(tableMigrations, new Comparator<TableMigration>() {
+            @Override
+            public int compare(TableMigration o1, TableMigration o2) {
+                return executeOrder(o1.getAction()) - executeOrder(o2.getAction());
+            }
+        });
+        return tableMigrations;
+    }
+
+    private static int executeOrder(TableMigration.Action action) {
+        switch (action) {
+            case DROP:
+                return 0;
+            case REBUILD:
+                return 2;
+            default:
+                return 1;
+        }
     }
 
     public void onDowngrade(CoreDatabase cdb, int oldVersion, int newVersion) {
@@ -135,6 +401,7 @@ public class CoreDatabaseManager {
             } else {
                 value.onDataBaseCreate(cdb);
             }
+            retainJoinTables(originTableList, value);
         }
         // 剩下的删除表
         for (String leftTableName : originTableList) {
@@ -142,6 +409,18 @@ public class CoreDatabaseManager {
         }
     }
 
+    /**
+     * 多对多中间表由所属的Dao创建，不在待删除的表中
+     *
+     * @param originTableList 数据库中剩余的表
+     * @param coreDao         Dao
+     */
+    private static void retainJoinTables(List<String> originTableList, CoreDao<?> coreDao) {
+        for (JoinTableProperty joinTable : coreDao.getJoinTables()) {
+            originTableList.remove(joinTable.name);
+        }
+    }
+
     private List<String> originTableList(CoreDatabase cdb) {
         List<String> nameList = new ArrayList<>();
         Cursor cursor = null;
@@ -160,4 +439,24 @@ public class CoreDatabaseManager {
         }
         return nameList;
     }
+
+    /**
+     * 线程持有的只读连接及嵌套使用的次数
+     */
+    private static final class ReaderLease {
+
+        final CoreDatabase cdb;
+
+        /**
+         * 是否由调用方持有，为true时引用计数归零后不放回连接池
+         */
+        final boolean attached;
+
+        int count;
+
+        ReaderLease(CoreDatabase cdb, boolean attached) {
+            this.cdb = cdb;
+            this.attached = attached;
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package com.coredata.core;
 
+import com.coredata.core.async.Callback;
 import com.coredata.core.db.UpdateDeleteSetInterface;
 import com.coredata.core.db.UpdateDeleteWhere;
+import com.coredata.utils.SqlUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Created by wangjinpeng on 2017/6/27.
@@ -16,7 +21,27 @@ public class DeleteSet<T> extends BaseSet<T> implements UpdateDeleteSetInterface
 
     @Override
     public boolean execute() {
-        return getCoreDao().updateDeleteInternal(getSql());
+        return getCoreDao().deleteInternal(getSql(), getKeySql(), getBindArgs(), null);
+    }
+
+    /**
+     * 查询将被删除对象主键的语句，条件与参数和删除语句相同
+     *
+     * @return sql
+     */
+    String getKeySql() {
+        return "SELECT " + SqlUtils.formatColumnName(getCoreDao().getPrimaryKeyName())
+                + " FROM " + getSql().substring("DELETE FROM ".length());
+    }
+
+    @Override
+    public Future<Boolean> executeAsync(Callback<Boolean> callback) {
+        return getCoreDao().async().write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return execute();
+            }
+        }, callback);
     }
 
     @Override
@@ -0,0 +1,135 @@
+package com.coredata.core;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实体对象缓存（identity map），以主键为key，每个Dao最多持有一个，通过
+ * {@link CoreData.Builder#entityCache(Class, int, boolean)}配置
+ * <p>
+ * 超过容量时淘汰最久未访问的对象，也可以使用软引用，内存不足时由虚拟机回收；
+ * 按主键查询时直接返回缓存中的同一个对象，调用方修改对象后需要重新{@link CoreDao#replace(Object)}
+ *
+ * @param <T> 实体类型
+ */
+public final class EntityCache<T> {
+
+    private final int maxSize;
+
+    private final boolean softReferences;
+
+    private final LinkedHashMap<Object, Object> entityMap;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * 每次失效都会递增，查询前记录，写入缓存时不一致说明查询期间数据发生过变化
+     */
+    private long generation;
+
+    EntityCache(final int maxSize, boolean softReferences) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.softReferences = softReferences;
+        entityMap = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 根据主键取出缓存的对象，并记录命中或未命中
+     *
+     * @param key 主键value
+     * @return 缓存的对象，没有时返回null
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T get(Object key) {
+        Object normalizedKey = normalizeKey(key);
+        Object value = entityMap.get(normalizedKey);
+        if (value instanceof SoftReference) {
+            value = ((SoftReference<?>) value).get();
+            if (value == null) {
+                entityMap.remove(normalizedKey);
+            }
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return (T) value;
+    }
+
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 放入查询到的对象，查询期间缓存已经失效过时放弃写入，避免缓存旧数据
+     *
+     * @param key        主键value
+     * @param entity     实体对象
+     * @param generation 查询前通过{@link #getGeneration()}取得的值
+     */
+    synchronized void put(Object key, T entity, long generation) {
+        if (key == null || entity == null || generation != this.generation) {
+            return;
+        }
+        entityMap.put(normalizeKey(key), softReferences ? new SoftReference<>(entity) : entity);
+    }
+
+    /**
+     * 移除给定主键对应的对象
+     *
+     * @param keys 主键values
+     */
+    synchronized void remove(Iterable<?> keys) {
+        generation++;
+        for (Object key : keys) {
+            entityMap.remove(normalizeKey(key));
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        generation++;
+        entityMap.clear();
+    }
+
+    public synchronized int size() {
+        return entityMap.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 整数类型的主键统一转为Long，使int主键和long参数可以互相命中
+     */
+    static Object normalizeKey(Object key) {
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+}
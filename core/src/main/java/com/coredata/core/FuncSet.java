@@ -4,9 +4,13 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 
+import com.coredata.core.async.Callback;
 import com.coredata.core.db.FuncWhere;
 import com.coredata.utils.SqlUtils;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
 /**
  * 函数集
  *
@@ -34,7 +38,7 @@ public class FuncSet<T> extends BaseSet<T> {
         ContentValues contentValues = new ContentValues();
         Cursor cursor = null;
         try {
-            cursor = getCoreDao().querySqlCursor(getSql());
+            cursor = getCoreDao().querySqlCursor(getSql(), getBindArgs());
             if (cursor.moveToNext()) {
                 DatabaseUtils.cursorRowToContentValues(cursor, contentValues);
             }
@@ -46,6 +50,30 @@ public class FuncSet<T> extends BaseSet<T> {
         return contentValues;
     }
 
+    /**
+     * 在读线程池中获取结果
+     *
+     * @return 返回给定类型的结果
+     */
+    public Future<ContentValues> resultAsync() {
+        return resultAsync(null);
+    }
+
+    /**
+     * 在读线程池中获取结果
+     *
+     * @param callback 结果回调
+     * @return 返回给定类型的结果
+     */
+    public Future<ContentValues> resultAsync(Callback<ContentValues> callback) {
+        return getCoreDao().async().read(new Callable<ContentValues>() {
+            @Override
+            public ContentValues call() throws Exception {
+                return result();
+            }
+        }, callback);
+    }
+
     private void appendFunc(String funcStr, String asName) {
         if (funcAdded) {
             append(", ");
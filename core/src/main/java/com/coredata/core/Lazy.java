@@ -0,0 +1,186 @@
+package com.coredata.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟加载的关联对象，对应{@code @Relation(fetch = FetchType.LAZY)}的字段
+ * <p>
+ * 查询时只记录关联对象的主键，第一次调用{@link #get()}时才查询；
+ * 同一批查询出的数据共用一个{@link Loader}，其中任意一个被访问时，整批未加载的主键合并为一次查询
+ *
+ * @param <T> 关联对象的类型
+ */
+public final class Lazy<T> {
+
+    /**
+     * 创建一个已经加载的关联对象，用于写入
+     *
+     * @param value 关联对象，可以为null
+     * @param <T>   关联对象的类型
+     * @return 已加载的Lazy
+     */
+    public static <T> Lazy<T> of(T value) {
+        return new Lazy<>(null, null, value);
+    }
+
+    /**
+     * 只通过主键创建关联对象，访问时单独查询
+     *
+     * @param coreDao 关联对象的Dao
+     * @param key     关联对象的主键
+     * @param <T>     关联对象的类型
+     * @return 未加载的Lazy
+     */
+    public static <T> Lazy<T> ofKey(CoreDao<T> coreDao, Object key) {
+        return loader(coreDao).add(key);
+    }
+
+    /**
+     * 创建一批Lazy共用的加载器, 内部使用
+     *
+     * @param coreDao 关联对象的Dao
+     * @param <T>     关联对象的类型
+     * @return 加载器
+     */
+    public static <T> Loader<T> loader(CoreDao<T> coreDao) {
+        return new Loader<>(coreDao);
+    }
+
+    /**
+     * 加载器，为null时表示已经加载
+     */
+    private final Loader<T> loader;
+
+    private final Object key;
+
+    private boolean loaded;
+
+    private T value;
+
+    private Lazy(Loader<T> loader, Object key, T value) {
+        this.loader = loader;
+        this.key = key;
+        this.value = value;
+        this.loaded = loader == null;
+    }
+
+    /**
+     * 获取关联对象，未加载时与同一批的其他Lazy一起查询；
+     * 查询失败时抛出异常且保持未加载，再次调用时重新查询
+     *
+     * @return 关联对象，数据库中不存在时为null
+     */
+    public T get() {
+        if (loader == null) {
+            return value;
+        }
+        synchronized (loader) {
+            if (!loaded) {
+                loader.load();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 是否已经加载
+     *
+     * @return true为已加载
+     */
+    public boolean isLoaded() {
+        if (loader == null) {
+            return true;
+        }
+        synchronized (loader) {
+            return loaded;
+        }
+    }
+
+    /**
+     * 获取已经加载的关联对象，不会触发查询
+     *
+     * @return 关联对象，未加载时为null
+     */
+    public T peek() {
+        if (loader == null) {
+            return value;
+        }
+        synchronized (loader) {
+            return value;
+        }
+    }
+
+    /**
+     * 获取关联对象的主键，不会触发查询, 内部使用
+     *
+     * @param coreDao 关联对象的Dao
+     * @return 主键，没有关联对象时为null
+     */
+    public Object getKey(CoreDao<T> coreDao) {
+        if (loader == null) {
+            return value == null ? null : coreDao.getPrimaryKeyValue(value);
+        }
+        synchronized (loader) {
+            if (loaded) {
+                return value == null ? null : coreDao.getPrimaryKeyValue(value);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * 一批Lazy共用的加载器，在生成的bindCursor中为每个延迟加载的关联字段创建
+     *
+     * @param <T> 关联对象的类型
+     */
+    public static final class Loader<T> {
+
+        private final CoreDao<T> coreDao;
+
+        private List<Lazy<T>> pending = new ArrayList<>();
+
+        private Loader(CoreDao<T> coreDao) {
+            this.coreDao = coreDao;
+        }
+
+        /**
+         * 添加一个待加载的主键, 内部使用
+         *
+         * @param key 关联对象的主键
+         * @return 未加载的Lazy
+         */
+        public synchronized Lazy<T> add(Object key) {
+            Lazy<T> lazy = new Lazy<>(this, key, null);
+            pending.add(lazy);
+            return lazy;
+        }
+
+        /**
+         * 一次查询出所有未加载的主键，调用时需持有当前加载器的锁；查询失败时抛出异常，所有Lazy保持未加载
+         */
+        private void load() {
+            Map<Object, Object> keyMap = new LinkedHashMap<>();
+            for (Lazy<T> lazy : pending) {
+                if (lazy.key != null) {
+                    keyMap.put(EntityCache.normalizeKey(lazy.key), lazy.key);
+                }
+            }
+            Map<Object, T> entityMap = new HashMap<>();
+            if (!keyMap.isEmpty()) {
+                for (T t : coreDao.queryByKeys(keyMap.values().toArray(), true)) {
+                    entityMap.put(EntityCache.normalizeKey(coreDao.getPrimaryKeyValue(t)), t);
+                }
+            }
+            List<Lazy<T>> batch = pending;
+            pending = new ArrayList<>();
+            for (Lazy<T> lazy : batch) {
+                lazy.value = lazy.key == null ? null : entityMap.get(EntityCache.normalizeKey(lazy.key));
+                lazy.loaded = true;
+            }
+        }
+    }
+}
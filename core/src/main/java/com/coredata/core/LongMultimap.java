@@ -0,0 +1,155 @@
+package com.coredata.core;
+
+import java.util.Arrays;
+
+/**
+ * 以long为key的一对多映射，在生成的bindCursor中按关联对象的主键记录引用它的对象
+ * <p>
+ * key不装箱，不为每个元素创建Entry；同一个key的元素按加入顺序串成链表，通过下标遍历：
+ * <pre>
+ * for (int i = map.first(key); i &gt;= 0; i = map.next(i)) {
+ *     T t = map.valueAt(i);
+ * }
+ * </pre>
+ *
+ * @param <T> 元素的类型
+ */
+public final class LongMultimap<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 开放寻址的哈希表，heads为0表示空位，否则为链表第一个元素的下标+1
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private int[] heads = new int[INITIAL_CAPACITY];
+
+    private int[] tails = new int[INITIAL_CAPACITY];
+
+    private int keyCount;
+
+    /**
+     * 所有元素，nexts为同一个key的下一个元素的下标，-1为结尾
+     */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int[] nexts = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * 加入一个元素
+     *
+     * @param key   key
+     * @param value 元素
+     */
+    public void put(long key, T value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+            nexts = Arrays.copyOf(nexts, size << 1);
+        }
+        int index = size++;
+        values[index] = value;
+        nexts[index] = -1;
+        int slot = findSlot(key);
+        if (heads[slot] == 0) {
+            keys[slot] = key;
+            heads[slot] = index + 1;
+            tails[slot] = index;
+            if (++keyCount << 1 > keys.length) {
+                rehash();
+            }
+        } else {
+            nexts[tails[slot]] = index;
+            tails[slot] = index;
+        }
+    }
+
+    /**
+     * 获取key对应的第一个元素的下标
+     *
+     * @param key key
+     * @return 下标，没有元素时为-1
+     */
+    public int first(long key) {
+        return heads[findSlot(key)] - 1;
+    }
+
+    /**
+     * 获取同一个key的下一个元素的下标
+     *
+     * @param index 当前元素的下标
+     * @return 下标，没有更多元素时为-1
+     */
+    public int next(int index) {
+        return nexts[index];
+    }
+
+    /**
+     * 获取下标对应的元素
+     *
+     * @param index 下标
+     * @return 元素
+     */
+    @SuppressWarnings("unchecked")
+    public T valueAt(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * 获取所有不重复的key，用于批量查询
+     *
+     * @return key数组
+     */
+    public Object[] keyArray() {
+        Object[] keyArray = new Object[keyCount];
+        int i = 0;
+        for (int slot = 0; slot < heads.length; slot++) {
+            if (heads[slot] != 0) {
+                keyArray[i++] = keys[slot];
+            }
+        }
+        return keyArray;
+    }
+
+    /**
+     * 不重复的key的数量
+     *
+     * @return 数量
+     */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (heads[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        int[] oldTails = tails;
+        keys = new long[oldKeys.length << 1];
+        heads = new int[oldKeys.length << 1];
+        tails = new int[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+                tails[slot] = oldTails[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.coredata.core;
+
+import java.util.List;
+
+/**
+ * 数据库升级进度，通过{@link CoreData.Builder#migrationListener(MigrationListener)}设置
+ * <p>
+ * 回调在打开数据库的线程中、升级事务内执行，不能在回调中操作数据库
+ */
+public interface MigrationListener {
+
+    /**
+     * 所有表的迁移计划已经计算完成，即将开始执行
+     *
+     * @param migrations 按执行顺序排列的迁移计划
+     */
+    void onStart(List<TableMigration> migrations);
+
+    /**
+     * 一个表迁移完成
+     *
+     * @param migration     完成的迁移，包含耗时
+     * @param finishedCount 已完成的表数
+     * @param totalCount    总表数
+     */
+    void onProgress(TableMigration migration, int finishedCount, int totalCount);
+
+    /**
+     * 所有表迁移完成
+     *
+     * @param migrations 所有迁移，包含各自的耗时
+     * @param costMillis 总耗时，单位毫秒
+     */
+    void onFinish(List<TableMigration> migrations, long costMillis);
+}
@@ -0,0 +1,105 @@
+package com.coredata.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 以对象为key的一对多映射，关联对象的主键不是整数(如String)时代替{@link LongMultimap}，用法相同
+ * <p>
+ * key与{@link EntityCache}一样经过归一化，整数类型的key统一转为Long，put和查找时的类型不同也能命中
+ *
+ * @param <T> 元素的类型
+ */
+public final class ObjectMultimap<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * key对应链表的第一个和最后一个元素的下标
+     */
+    private final Map<Object, int[]> heads = new HashMap<>();
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int[] nexts = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * 加入一个元素
+     *
+     * @param key   key，为null时忽略
+     * @param value 元素
+     */
+    public void put(Object key, T value) {
+        if (key == null) {
+            return;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+            nexts = Arrays.copyOf(nexts, size << 1);
+        }
+        int index = size++;
+        values[index] = value;
+        nexts[index] = -1;
+        Object normalizedKey = EntityCache.normalizeKey(key);
+        int[] chain = heads.get(normalizedKey);
+        if (chain == null) {
+            heads.put(normalizedKey, new int[]{index, index});
+        } else {
+            nexts[chain[1]] = index;
+            chain[1] = index;
+        }
+    }
+
+    /**
+     * 获取key对应的第一个元素的下标
+     *
+     * @param key key
+     * @return 下标，没有元素时为-1
+     */
+    public int first(Object key) {
+        int[] chain = heads.get(EntityCache.normalizeKey(key));
+        return chain != null ? chain[0] : -1;
+    }
+
+    /**
+     * 获取同一个key的下一个元素的下标
+     *
+     * @param index 当前元素的下标
+     * @return 下标，没有更多元素时为-1
+     */
+    public int next(int index) {
+        return nexts[index];
+    }
+
+    /**
+     * 获取下标对应的元素
+     *
+     * @param index 下标
+     * @return 元素
+     */
+    @SuppressWarnings("unchecked")
+    public T valueAt(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * 获取所有不重复的key，用于批量查询
+     *
+     * @return key数组
+     */
+    public Object[] keyArray() {
+        return heads.keySet().toArray();
+    }
+
+    /**
+     * 不重复的key的数量
+     *
+     * @return 数量
+     */
+    public int keyCount() {
+        return heads.size();
+    }
+}
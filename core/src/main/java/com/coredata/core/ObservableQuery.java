@@ -0,0 +1,284 @@
+package com.coredata.core;
+
+import com.coredata.core.async.Callback;
+import com.coredata.core.db.RowObserver;
+import com.coredata.utils.SqlUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 可观察的查询，通过{@link ResultSet#observe(long, Callback)}或{@link ResultSet#observeDiff(long, Callback)}创建
+ * <p>
+ * 创建后立即查询一次，之后查询涉及的表(包含关联表)发生变化时重新查询，结果没有变化时不会回调；
+ * 变化后等待debounce时间再查询，期间的多次变化只会触发一次查询，查询在读线程池中执行，
+ * 不再需要时必须调用{@link #cancel()}
+ * <p>
+ * 写操作能确定变化的主键时，只重新读取这些主键对应的行并合并到上一次的结果中；
+ * 查询包含排序、分组、分页时行的位置或范围可能变化，仍然重新执行完整查询
+ *
+ * @param <T> 对应的实体类型
+ */
+public final class ObservableQuery<T> implements RowObserver {
+
+    /**
+     * 变化的主键超过此数量时直接重新执行完整查询
+     */
+    private static final int MAX_KEYED_REFRESH = 500;
+
+    private final CoreDao<T> coreDao;
+
+    private final String sql;
+
+    private final Object[] bindArgs;
+
+    private final boolean keyedRefresh;
+
+    private final long debounceMillis;
+
+    private final Callback<ResultDiff<T>> callback;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 等待处理的变化，由pendingLock保护
+     */
+    private final Object pendingLock = new Object();
+    private boolean pendingFull = true;
+    private boolean pendingRelationChanged;
+    private final Set<Object> pendingKeys = new HashSet<>();
+
+    /**
+     * 上一次的结果，只在查询任务中访问，由runLock保证同一时间只有一个查询
+     */
+    private final Object runLock = new Object();
+    private LinkedHashMap<Object, T> rows;
+    private HashMap<Object, Object[]> snapshots;
+
+    private final Runnable queryTask = new Runnable() {
+        @Override
+        public void run() {
+            // 先重置状态，查询期间发生的变化会触发下一次查询
+            scheduled.set(false);
+            if (cancelled) {
+                return;
+            }
+            coreDao.getCoreExecutor().submitRead(new Callable<ResultDiff<T>>() {
+                @Override
+                public ResultDiff<T> call() throws Exception {
+                    return refresh();
+                }
+            }, new Callback<ResultDiff<T>>() {
+                @Override
+                public void onSuccess(ResultDiff<T> result) {
+                    if (!cancelled && result != null) {
+                        callback.onSuccess(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    if (!cancelled) {
+                        callback.onFailure(throwable);
+                    }
+                }
+            });
+        }
+    };
+
+    ObservableQuery(CoreDao<T> coreDao, String sql, Object[] bindArgs, boolean keyedRefresh,
+                    long debounceMillis, Callback<ResultDiff<T>> callback) {
+        this.coreDao = coreDao;
+        this.sql = sql;
+        this.bindArgs = bindArgs;
+        this.keyedRefresh = keyedRefresh;
+        this.debounceMillis = debounceMillis;
+        this.callback = callback;
+    }
+
+    void start() {
+        coreDao.getInvalidationTracker().addObserver(coreDao.getRelationLockTables(), this);
+        scheduled.set(true);
+        coreDao.getCoreExecutor().scheduleRead(queryTask, 0);
+    }
+
+    @Override
+    public void onTablesChanged(Set<String> tables) {
+        synchronized (pendingLock) {
+            pendingFull = true;
+            pendingKeys.clear();
+            if (tables.size() > 1 || !tables.contains(coreDao.getTableName())) {
+                pendingRelationChanged = true;
+            }
+        }
+        schedule();
+    }
+
+    @Override
+    public void onRowsChanged(String table, Collection<?> keys) {
+        if (!table.equals(coreDao.getTableName())) {
+            // 结果中只有关联对象的主键，关联表的行变化时无法确定受影响的行
+            onTablesChanged(Collections.singleton(table));
+            return;
+        }
+        synchronized (pendingLock) {
+            if (!pendingFull) {
+                for (Object key : keys) {
+                    pendingKeys.add(EntityCache.normalizeKey(key));
+                }
+                if (!keyedRefresh || pendingKeys.size() > MAX_KEYED_REFRESH) {
+                    pendingFull = true;
+                    pendingKeys.clear();
+                }
+            }
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (!cancelled && scheduled.compareAndSet(false, true)) {
+            coreDao.getCoreExecutor().scheduleRead(queryTask, debounceMillis);
+        }
+    }
+
+    /**
+     * 停止观察，之后不会再回调
+     */
+    public void cancel() {
+        cancelled = true;
+        coreDao.getInvalidationTracker().removeObserver(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 根据等待处理的变化重新查询，并计算与上一次结果的差异
+     *
+     * @return 差异，没有变化时为null
+     */
+    private ResultDiff<T> refresh() {
+        synchronized (runLock) {
+            boolean full;
+            boolean relationChanged;
+            Object[] keys;
+            synchronized (pendingLock) {
+                full = pendingFull || rows == null;
+                relationChanged = pendingRelationChanged;
+                keys = pendingKeys.toArray();
+                pendingFull = false;
+                pendingRelationChanged = false;
+                pendingKeys.clear();
+            }
+            if (full) {
+                return refreshAll(relationChanged);
+            }
+            if (keys.length == 0) {
+                return null;
+            }
+            return refreshKeys(keys);
+        }
+    }
+
+    /**
+     * 重新执行完整查询
+     *
+     * @param relationChanged 关联表是否有变化，快照中只有关联对象的主键，
+     *                        关联表变化时无法判断具体哪些行受影响，两次都存在的行全部视为变化
+     */
+    private ResultDiff<T> refreshAll(boolean relationChanged) {
+        List<T> list = coreDao.querySqlInternal(sql, bindArgs);
+        boolean first = rows == null;
+        LinkedHashMap<Object, T> newRows = new LinkedHashMap<>();
+        HashMap<Object, Object[]> newSnapshots = new HashMap<>();
+        List<T> inserted = new ArrayList<>();
+        List<T> changed = new ArrayList<>();
+        for (T t : list) {
+            Object key = EntityCache.normalizeKey(coreDao.getPrimaryKeyValue(t));
+            Object[] snapshot = RowSnapshot.of(coreDao, t);
+            newRows.put(key, t);
+            newSnapshots.put(key, snapshot);
+            if (first || !rows.containsKey(key)) {
+                inserted.add(t);
+            } else if (relationChanged || !RowSnapshot.equals(snapshots.get(key), snapshot)) {
+                changed.add(t);
+            }
+        }
+        List<Object> removedKeys = new ArrayList<>();
+        if (!first) {
+            for (Object key : rows.keySet()) {
+                if (!newRows.containsKey(key)) {
+                    removedKeys.add(key);
+                }
+            }
+        }
+        rows = newRows;
+        snapshots = newSnapshots;
+        return createDiff(first, inserted, changed, removedKeys);
+    }
+
+    private ResultDiff<T> refreshKeys(Object[] keys) {
+        StringBuilder keySql = new StringBuilder("SELECT * FROM (")
+                .append(sql)
+                .append(") WHERE ")
+                .append(SqlUtils.formatColumnName(coreDao.getPrimaryKeyName()))
+                .append(" IN (");
+        Object[] args = new Object[bindArgs.length + keys.length];
+        System.arraycopy(bindArgs, 0, args, 0, bindArgs.length);
+        for (int i = 0; i < keys.length; i++) {
+            keySql.append(i == 0 ? "?" : ",?");
+            args[bindArgs.length + i] = keys[i];
+        }
+        keySql.append(")");
+        List<T> list = coreDao.querySqlInternal(keySql.toString(), args);
+
+        Map<Object, T> found = new HashMap<>();
+        for (T t : list) {
+            found.put(EntityCache.normalizeKey(coreDao.getPrimaryKeyValue(t)), t);
+        }
+        List<T> inserted = new ArrayList<>();
+        List<T> changed = new ArrayList<>();
+        List<Object> removedKeys = new ArrayList<>();
+        for (Object key : keys) {
+            T t = found.get(key);
+            if (t == null) {
+                if (rows.remove(key) != null) {
+                    snapshots.remove(key);
+                    removedKeys.add(key);
+                }
+                continue;
+            }
+            Object[] snapshot = RowSnapshot.of(coreDao, t);
+            if (rows.containsKey(key)) {
+                if (!RowSnapshot.equals(snapshots.get(key), snapshot)) {
+                    changed.add(t);
+                }
+            } else {
+                // 没有排序的查询，新出现的行放到最后
+                inserted.add(t);
+            }
+            rows.put(key, t);
+            snapshots.put(key, snapshot);
+        }
+        return createDiff(false, inserted, changed, removedKeys);
+    }
+
+    private ResultDiff<T> createDiff(boolean first, List<T> inserted, List<T> changed, List<Object> removedKeys) {
+        if (!first && inserted.isEmpty() && changed.isEmpty() && removedKeys.isEmpty()) {
+            return null;
+        }
+        return new ResultDiff<>(new ArrayList<>(rows.values()), inserted, changed, removedKeys);
+    }
+}
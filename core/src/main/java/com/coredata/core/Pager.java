@@ -0,0 +1,216 @@
+package com.coredata.core;
+
+import com.coredata.core.db.Order;
+import com.coredata.utils.SqlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 基于游标位置（keyset）的分页器，每页都以上一页最后一条数据的排序列值作为起点，
+ * 查询代价与翻页深度无关
+ * <p>
+ * 每个分页器的sql结构是固定的，只有"?"参数在变化，数据库可以复用已编译的语句；
+ * 可以通过{@link #prefetch(Executor)}在后台提前加载下一页。分页器本身不是线程安全的
+ *
+ * @param <T> 实体类型
+ */
+public final class Pager<T> {
+
+    private final CoreDao<T> coreDao;
+
+    private final int pageSize;
+
+    /**
+     * 排序列即主键时只需一列定位，否则额外以主键区分列值相同的数据
+     */
+    private final String[] keyColumns;
+
+    private final String firstPageSql;
+
+    private final String nextPageSql;
+
+    /**
+     * 上一页最后一条数据的排序列为NULL时的下一页sql，排序列即主键时为null
+     */
+    private final String nextPageAfterNullSql;
+
+    private Object[] lastKeys;
+
+    private boolean hasNext = true;
+
+    private FutureTask<PageResult<T>> prefetchTask;
+
+    Pager(CoreDao<T> coreDao, String columnName, Order order, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.coreDao = coreDao;
+        this.pageSize = pageSize;
+        String primaryKeyName = coreDao.getPrimaryKeyName();
+        String column = coreDao.qualifyColumn(SqlUtils.formatColumnName(columnName));
+        String op = order == Order.ASC ? " > " : " < ";
+        String orderBy;
+        String seek;
+        String seekAfterNull = null;
+        if (columnName.equals(primaryKeyName)) {
+            keyColumns = new String[]{columnName};
+            orderBy = column + " " + order.name();
+            seek = column + op + "?";
+        } else {
+            String pk = coreDao.qualifyColumn(SqlUtils.formatColumnName(primaryKeyName));
+            keyColumns = new String[]{columnName, primaryKeyName};
+            orderBy = column + " " + order.name() + "," + pk + " " + order.name();
+            // SQLite中NULL比任何值都小：升序时排在最前，降序时排在最后
+            if (order == Order.ASC) {
+                seek = "(" + column + op + "? OR (" + column + " = ? AND " + pk + op + "?))";
+                seekAfterNull = "((" + column + " IS NULL AND " + pk + op + "?) OR " + column + " IS NOT NULL)";
+            } else {
+                seek = "(" + column + op + "? OR (" + column + " = ? AND " + pk + op + "?) OR " + column + " IS NULL)";
+                seekAfterNull = "(" + column + " IS NULL AND " + pk + op + "?)";
+            }
+        }
+        String tail = " ORDER BY " + orderBy + " LIMIT " + pageSize;
+        String from = coreDao.getSelectSql();
+        firstPageSql = from + tail;
+        nextPageSql = from + " WHERE " + seek + tail;
+        nextPageAfterNullSql = seekAfterNull == null ? null : from + " WHERE " + seekAfterNull + tail;
+    }
+
+    /**
+     * 从给定的位置之后开始分页，会丢弃已经预加载的数据
+     *
+     * @param keys 排序列的值，按非主键列排序时还需要给出主键值，排序列的值可以为null；为null时从第一页开始
+     * @return 当前分页器
+     */
+    public Pager<T> startAfter(Object... keys) {
+        if (keys != null && keys.length == 1 && keys[0] == null) {
+            keys = null;
+        }
+        if (keys != null && keys.length != keyColumns.length) {
+            throw new IllegalArgumentException("expected " + keyColumns.length + " keys, got " + keys.length);
+        }
+        cancelPrefetch();
+        lastKeys = keys;
+        hasNext = true;
+        return this;
+    }
+
+    /**
+     * 回到第一页
+     *
+     * @return 当前分页器
+     */
+    public Pager<T> reset() {
+        return startAfter((Object[]) null);
+    }
+
+    /**
+     * 是否可能还有下一页，上一页不满时返回false
+     *
+     * @return 是否还有下一页
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * 加载下一页，已经预加载时直接使用预加载的结果
+     *
+     * @return 下一页数据，没有更多数据时为空
+     */
+    public List<T> next() {
+        if (!hasNext) {
+            return new ArrayList<>();
+        }
+        PageResult<T> result = null;
+        if (prefetchTask != null) {
+            FutureTask<PageResult<T>> task = prefetchTask;
+            prefetchTask = null;
+            try {
+                result = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        if (result == null) {
+            result = load(lastKeys);
+        }
+        if (result.lastKeys != null) {
+            lastKeys = result.lastKeys;
+        }
+        hasNext = result.list.size() >= pageSize;
+        return result.list;
+    }
+
+    /**
+     * 在给定的线程池中提前加载下一页，下一次调用{@link #next()}时直接取用
+     *
+     * @param executor 执行加载的线程池
+     * @return 当前分页器
+     */
+    public Pager<T> prefetch(Executor executor) {
+        if (hasNext && prefetchTask == null) {
+            final Object[] keys = lastKeys;
+            prefetchTask = new FutureTask<>(new Callable<PageResult<T>>() {
+                @Override
+                public PageResult<T> call() throws Exception {
+                    return load(keys);
+                }
+            });
+            executor.execute(prefetchTask);
+        }
+        return this;
+    }
+
+    /**
+     * 获取用于定位下一页的列值，可以保存起来，之后通过{@link #startAfter(Object...)}恢复
+     *
+     * @return 上一页最后一条数据的排序列值，尚未加载时为null
+     */
+    public Object[] getLastKeys() {
+        return lastKeys == null ? null : lastKeys.clone();
+    }
+
+    private void cancelPrefetch() {
+        if (prefetchTask != null) {
+            prefetchTask.cancel(false);
+            prefetchTask = null;
+        }
+    }
+
+    private PageResult<T> load(Object[] keys) {
+        if (keys == null) {
+            return coreDao.queryPageInternal(firstPageSql, null, keyColumns);
+        }
+        if (keyColumns.length == 1) {
+            return coreDao.queryPageInternal(nextPageSql, new Object[]{keys[0]}, keyColumns);
+        }
+        if (keys[0] == null) {
+            // 排序列为NULL时不能作为参数比较，只以主键定位
+            return coreDao.queryPageInternal(nextPageAfterNullSql, new Object[]{keys[1]}, keyColumns);
+        }
+        return coreDao.queryPageInternal(nextPageSql, new Object[]{keys[0], keys[0], keys[1]}, keyColumns);
+    }
+
+    /**
+     * 一页的查询结果
+     */
+    static final class PageResult<T> {
+
+        final List<T> list;
+
+        final Object[] lastKeys;
+
+        PageResult(List<T> list, Object[] lastKeys) {
+            this.list = list;
+            this.lastKeys = lastKeys;
+        }
+    }
+}
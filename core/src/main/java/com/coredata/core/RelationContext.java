@@ -0,0 +1,214 @@
+package com.coredata.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次读写操作中关联对象的上下文，按线程保存，最外层的操作结束时清除
+ * <p>
+ * 读取时记录已经实例化的对象，同一行无论被多少个父对象引用都只查询、实例化一次，
+ * 关联成环时在已加载的对象处停止，同时限制关联加载的层数；
+ * 写入时记录已经写入的对象，关联成环时同一个对象只写入一次
+ */
+public final class RelationContext {
+
+    /**
+     * 不限制关联加载的层数
+     */
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<RelationContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 开始一次操作，当前线程已经在操作中时加入该操作，关联层数以最外层为准, 内部使用
+     *
+     * @return 当前线程的上下文，使用完毕后必须调用{@link #end()}
+     */
+    public static RelationContext begin() {
+        return begin(UNLIMITED_DEPTH);
+    }
+
+    /**
+     * 开始一次操作，当前线程已经在操作中时加入该操作，关联层数以最外层为准
+     *
+     * @param maxDepth 最多加载的关联层数，0为不加载关联
+     * @return 当前线程的上下文，使用完毕后必须调用{@link #end()}
+     */
+    static RelationContext begin(int maxDepth) {
+        RelationContext context = CURRENT.get();
+        if (context == null) {
+            context = new RelationContext(maxDepth);
+            CURRENT.set(context);
+        }
+        context.refCount++;
+        return context;
+    }
+
+    /**
+     * 获取当前线程正在进行的操作
+     *
+     * @return 上下文，不在操作中时为null
+     */
+    static RelationContext current() {
+        return CURRENT.get();
+    }
+
+    private final int maxDepth;
+
+    private int depth;
+
+    private int refCount;
+
+    private boolean truncated;
+
+    private final Map<CoreDao<?>, Map<Object, Object>> loadedMap = new HashMap<>();
+
+    private final Map<CoreDao<?>, Set<Object>> writtenMap = new HashMap<>();
+
+    private final Set<String> writtenJoinTables = new HashSet<>();
+
+    private RelationContext(int maxDepth) {
+        this.maxDepth = maxDepth < 0 ? 0 : maxDepth;
+    }
+
+    /**
+     * 结束一次操作，最外层的操作结束时清除上下文, 内部使用
+     */
+    public void end() {
+        if (--refCount == 0) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * 进入下一层关联的加载, 内部使用
+     *
+     * @return 未超过层数限制时为true，此时加载完成后必须调用{@link #exitRelations()}
+     */
+    public boolean enterRelations() {
+        if (depth >= maxDepth) {
+            truncated = true;
+            return false;
+        }
+        depth++;
+        return true;
+    }
+
+    /**
+     * 本次操作是否因为层数限制跳过了关联的加载，此时读出的对象可能不完整，不能放入对象缓存
+     *
+     * @return true为跳过过
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 当前层关联加载完成, 内部使用
+     */
+    public void exitRelations() {
+        depth--;
+    }
+
+    /**
+     * 获取本次操作中已经实例化的对象, 内部使用
+     *
+     * @param coreDao 对象对应的Dao
+     * @param key     主键
+     * @param <T>     实体类型
+     * @return 已经实例化的对象，没有时为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getLoaded(CoreDao<T> coreDao, Object key) {
+        if (key == null) {
+            return null;
+        }
+        Map<Object, Object> loaded = loadedMap.get(coreDao);
+        return loaded != null ? (T) loaded.get(EntityCache.normalizeKey(key)) : null;
+    }
+
+    /**
+     * 记录本次操作中实例化的对象，同一主键已经有对象时以先记录的为准, 内部使用
+     *
+     * @param coreDao 对象对应的Dao
+     * @param key     主键
+     * @param t       实体对象
+     * @param <T>     实体类型
+     * @return 本次操作中该主键对应的对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T putLoaded(CoreDao<T> coreDao, Object key, T t) {
+        if (key == null) {
+            return t;
+        }
+        Map<Object, Object> loaded = loadedMap.get(coreDao);
+        if (loaded == null) {
+            loaded = new HashMap<>();
+            loadedMap.put(coreDao, loaded);
+        }
+        Object normalizedKey = EntityCache.normalizeKey(key);
+        Object exist = loaded.get(normalizedKey);
+        if (exist != null) {
+            return (T) exist;
+        }
+        loaded.put(normalizedKey, t);
+        return t;
+    }
+
+    /**
+     * 过滤出本次操作中还没有写入的对象，并记录为已写入
+     *
+     * @param coreDao     对象对应的Dao
+     * @param tCollection 待写入的对象
+     * @param <T>         实体类型
+     * @return 需要写入的对象
+     */
+    <T> List<T> filterUnwritten(CoreDao<T> coreDao, Collection<T> tCollection) {
+        Set<Object> written = writtenMap.get(coreDao);
+        if (written == null) {
+            written = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            writtenMap.put(coreDao, written);
+        }
+        List<T> tList = new ArrayList<>(tCollection.size());
+        for (T t : tCollection) {
+            if (t != null && written.add(t)) {
+                tList.add(t);
+            }
+        }
+        return tList;
+    }
+
+    /**
+     * 本次操作中写入的对象
+     *
+     * @return 以Dao为key的已写入对象
+     */
+    Map<CoreDao<?>, Set<Object>> getWrittenMap() {
+        return writtenMap;
+    }
+
+    /**
+     * 记录本次操作中写入了关联的中间表
+     *
+     * @param joinTable 中间表名
+     */
+    void markJoinTableWritten(String joinTable) {
+        writtenJoinTables.add(joinTable);
+    }
+
+    /**
+     * 本次操作中写入了关联的中间表
+     *
+     * @return 中间表名
+     */
+    Set<String> getWrittenJoinTables() {
+        return writtenJoinTables;
+    }
+}
@@ -0,0 +1,40 @@
+package com.coredata.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对多关联的分组查询结果，以父对象的主键分组，在生成的bindCursor中使用
+ *
+ * @param <T> 子对象的类型
+ */
+public final class RelationGroups<T> {
+
+    private final Map<Object, List<T>> groups = new HashMap<>();
+
+    RelationGroups() {
+    }
+
+    void add(Object key, T t) {
+        Object groupKey = EntityCache.normalizeKey(key);
+        List<T> group = groups.get(groupKey);
+        if (group == null) {
+            group = new ArrayList<>();
+            groups.put(groupKey, group);
+        }
+        group.add(t);
+    }
+
+    /**
+     * 获取父对象对应的子对象, 内部使用
+     *
+     * @param key 父对象的主键
+     * @return 子对象列表，没有子对象时为空列表
+     */
+    public List<T> get(Object key) {
+        List<T> group = groups.get(EntityCache.normalizeKey(key));
+        return group != null ? group : new ArrayList<T>();
+    }
+}
@@ -0,0 +1,62 @@
+package com.coredata.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 可观察查询两次结果之间的差异，以主键区分每一行
+ *
+ * @param <T> 对应的实体类型
+ */
+public final class ResultDiff<T> {
+
+    private final List<T> result;
+
+    private final List<T> inserted;
+
+    private final List<T> changed;
+
+    private final List<Object> removedKeys;
+
+    ResultDiff(List<T> result, List<T> inserted, List<T> changed, List<Object> removedKeys) {
+        this.result = Collections.unmodifiableList(result);
+        this.inserted = Collections.unmodifiableList(inserted);
+        this.changed = Collections.unmodifiableList(changed);
+        this.removedKeys = Collections.unmodifiableList(removedKeys);
+    }
+
+    /**
+     * 本次的完整结果
+     */
+    public List<T> getResult() {
+        return result;
+    }
+
+    /**
+     * 本次新出现的行，第一次查询时为全部结果
+     */
+    public List<T> getInserted() {
+        return inserted;
+    }
+
+    /**
+     * 两次结果中都存在但内容发生变化的行
+     */
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    /**
+     * 不再出现在结果中的行的主键
+     */
+    public List<Object> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    /**
+     * 与上一次结果相比是否没有变化
+     */
+    public boolean isEmpty() {
+        return inserted.isEmpty() && changed.isEmpty() && removedKeys.isEmpty();
+    }
+}
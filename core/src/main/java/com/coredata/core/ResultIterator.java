@@ -0,0 +1,97 @@
+package com.coredata.core;
+
+import android.database.Cursor;
+
+import com.coredata.core.db.CoreDatabase;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于游标的结果迭代器，按批从游标中绑定数据，已经取出的对象不再被持有
+ * <p>
+ * 每批最多{@link #BATCH_SIZE}条，关联数据按批统一查询；
+ * 迭代结束时自动关闭，提前结束迭代时必须调用{@link #close()}；
+ * 开启WAL模式时，迭代器在关闭前一直占用一个只读连接
+ *
+ * @param <T> 实体类型
+ */
+public final class ResultIterator<T> implements Iterator<T>, Closeable {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final CoreDao<T> coreDao;
+
+    private CoreDatabase cdb;
+
+    private Cursor cursor;
+
+    private List<T> batch = Collections.emptyList();
+
+    private int batchIndex;
+
+    private final int maxDepth;
+
+    ResultIterator(CoreDao<T> coreDao, CoreDatabase cdb, Cursor cursor, int maxDepth) {
+        this.coreDao = coreDao;
+        this.cdb = cdb;
+        this.cursor = cursor;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (batchIndex < batch.size()) {
+            return true;
+        }
+        if (cursor == null) {
+            return false;
+        }
+        try {
+            batch = coreDao.bindCursorBatch(cdb, cursor, BATCH_SIZE, maxDepth);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        batchIndex = 0;
+        if (batch.isEmpty()) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T t = batch.get(batchIndex);
+        // 取出后释放引用
+        batch.set(batchIndex, null);
+        batchIndex++;
+        return t;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (cursor != null) {
+            coreDao.closeCursor(cursor);
+            cursor = null;
+        }
+        if (cdb != null) {
+            coreDao.releaseIterateDatabase(cdb);
+            cdb = null;
+        }
+        batch = Collections.emptyList();
+        batchIndex = 0;
+    }
+}
@@ -1,9 +1,13 @@
 package com.coredata.core;
 
+import com.coredata.core.async.Callback;
+import com.coredata.core.db.Consumer;
 import com.coredata.core.db.Order;
 import com.coredata.core.db.QueryWhere;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * 结果集，在这里对结果进行筛选，排序等等操作
@@ -13,13 +17,141 @@ import java.util.List;
 public class ResultSet<T> extends BaseSet<T> {
 
 
+    /**
+     * 查询是否只有筛选条件，只有筛选条件时可观察查询可以只重新读取变化的行
+     */
+    private boolean filterOnly = true;
+
+    /**
+     * 最多加载的关联层数
+     */
+    private int depth = RelationContext.UNLIMITED_DEPTH;
+
     ResultSet(CoreDao<T> coreDao) {
         super(coreDao);
-        append("SELECT * FROM ").append(coreDao.getTableName());
+        append(coreDao.getSelectSql());
     }
 
     public List<T> result() {
-        return getCoreDao().querySqlInternal(getSql());
+        return result(false);
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param throwOnError 查询失败时是否抛出异常，为false时返回空列表
+     * @return 查询结果
+     */
+    List<T> result(boolean throwOnError) {
+        RelationContext context = RelationContext.begin(depth);
+        try {
+            return getCoreDao().querySqlInternal(getSql(), getBindArgs(), throwOnError);
+        } finally {
+            context.end();
+        }
+    }
+
+    /**
+     * 限制关联加载的层数，默认不限制；关联成环时无论是否限制，同一行都只加载一次
+     * <p>
+     * 只限制需要额外查询的关联，{@link com.coredata.annotation.Relation.FetchType#JOIN}的关联随当前查询读出，
+     * {@link com.coredata.annotation.Relation.FetchType#LAZY}的关联在访问时单独查询
+     *
+     * @param depth 层数，0为不加载关联，1为只加载直接关联的对象
+     * @return 当前结果集
+     */
+    public ResultSet<T> depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * 在读线程池中查询结果
+     *
+     * @return 查询结果
+     */
+    public Future<List<T>> resultAsync() {
+        return resultAsync(null);
+    }
+
+    /**
+     * 在读线程池中查询结果
+     *
+     * @param callback 结果回调
+     * @return 查询结果
+     */
+    public Future<List<T>> resultAsync(Callback<List<T>> callback) {
+        return getCoreDao().async().read(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return result();
+            }
+        }, callback);
+    }
+
+    /**
+     * 以游标的方式逐条读取结果，不会一次性将所有结果加载到内存中
+     *
+     * @return 结果迭代器，提前结束迭代时必须调用{@link ResultIterator#close()}
+     */
+    public ResultIterator<T> iterate() {
+        return getCoreDao().iterateSqlInternal(getSql(), getBindArgs(), depth);
+    }
+
+    /**
+     * 逐条处理结果，处理完毕后自动释放游标
+     *
+     * @param consumer 每条结果的回调
+     */
+    public void forEach(Consumer<T> consumer) {
+        ResultIterator<T> iterator = iterate();
+        try {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    /**
+     * 观察查询结果，立即查询一次，之后涉及的表发生变化时重新查询
+     *
+     * @param debounceMillis 表变化后等待多久再查询，期间的变化合并为一次查询
+     * @param callback       每次查询结果的回调
+     * @return 可观察的查询，不再需要时调用{@link ObservableQuery#cancel()}
+     */
+    public ObservableQuery<T> observe(long debounceMillis, final Callback<List<T>> callback) {
+        return observeDiff(debounceMillis, new Callback<ResultDiff<T>>() {
+            @Override
+            public void onSuccess(ResultDiff<T> result) {
+                callback.onSuccess(result.getResult());
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                callback.onFailure(throwable);
+            }
+        });
+    }
+
+    /**
+     * 观察查询结果的变化，立即查询一次，之后涉及的表发生变化时重新查询，并以主键对比上一次的结果
+     *
+     * @param debounceMillis 表变化后等待多久再查询，期间的变化合并为一次查询
+     * @param callback       每次结果变化的回调，第一次回调时所有行都在{@link ResultDiff#getInserted()}中
+     * @return 可观察的查询，不再需要时调用{@link ObservableQuery#cancel()}
+     */
+    public ObservableQuery<T> observeDiff(long debounceMillis, Callback<ResultDiff<T>> callback) {
+        ObservableQuery<T> query = new ObservableQuery<>(getCoreDao(), getSql(), getBindArgs(), filterOnly,
+                debounceMillis, callback);
+        query.start();
+        return query;
+    }
+
+    @Override
+    public String qualifyColumn(String column) {
+        return getCoreDao().qualifyColumn(column);
     }
 
     public QueryWhere<ResultSet<T>, T> where(String columnName) {
@@ -27,8 +159,9 @@ public class ResultSet<T> extends BaseSet<T> {
     }
 
     public ResultSet<T> groupBy(String expression) {
+        filterOnly = false;
         append(" GROUP BY ")
-                .append(expression);
+                .append(getCoreDao().qualifyColumn(expression));
         return this;
     }
 
@@ -37,20 +170,23 @@ public class ResultSet<T> extends BaseSet<T> {
     }
 
     public ResultSet<T> orderBy(String expression, Order order) {
+        filterOnly = false;
         append(" ORDER BY ")
-                .append(expression)
+                .append(getCoreDao().qualifyColumn(expression))
                 .append(" ")
                 .append(order.name());
         return this;
     }
 
     public ResultSet<T> limit(int size) {
+        filterOnly = false;
         append(" LIMIT ")
                 .append(String.valueOf(size));
         return this;
     }
 
     public ResultSet<T> offset(int offset) {
+        filterOnly = false;
         append(" OFFSET ")
                 .append(String.valueOf(offset));
         return this;
@@ -0,0 +1,96 @@
+package com.coredata.core;
+
+import com.coredata.core.db.CoreStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 记录实体绑定到插入语句上的值，用于判断同一主键的两个实体内容是否相同
+ * <p>
+ * 复用生成的bindStatement，与实际写入数据库的列保持一致；
+ * 关联对象只记录其主键，关联对象本身的变化需要通过关联表的变化判断
+ */
+final class RowSnapshot extends CoreStatement {
+
+    private final ArrayList<Object> values = new ArrayList<>();
+
+    private void set(int index, Object value) {
+        while (values.size() < index) {
+            values.add(null);
+        }
+        values.set(index - 1, value);
+    }
+
+    /**
+     * 获取实体的快照
+     *
+     * @param coreDao 实体对应的Dao
+     * @param entity  实体
+     * @param <T>     实体类型
+     * @return 按列顺序排列的值
+     */
+    static <T> Object[] of(CoreDao<T> coreDao, T entity) {
+        RowSnapshot snapshot = new RowSnapshot();
+        coreDao.bindStatement(snapshot, entity);
+        return snapshot.values.toArray();
+    }
+
+    static boolean equals(Object[] a, Object[] b) {
+        return Arrays.deepEquals(a, b);
+    }
+
+    /**
+     * 比较单列的值，byte[]按内容比较
+     */
+    static boolean valueEquals(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int executeUpdateDelete() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long executeInsert() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void bindNull(int index) {
+        set(index, null);
+    }
+
+    @Override
+    public void bindLong(int index, long value) {
+        set(index, value);
+    }
+
+    @Override
+    public void bindDouble(int index, double value) {
+        set(index, value);
+    }
+
+    @Override
+    public void bindString(int index, String value) {
+        set(index, value);
+    }
+
+    @Override
+    public void bindBlob(int index, byte[] value) {
+        set(index, value);
+    }
+
+    @Override
+    public void clearBindings() {
+        values.clear();
+    }
+
+    @Override
+    public void close() {
+    }
+}
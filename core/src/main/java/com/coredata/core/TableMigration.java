@@ -0,0 +1,99 @@
+package com.coredata.core;
+
+import com.coredata.db.DbProperty;
+
+import java.util.List;
+
+/**
+ * 升级时单个表的迁移计划，在执行任何修改前统一计算，执行后记录耗时
+ */
+public final class TableMigration {
+
+    /**
+     * 迁移方式
+     */
+    public enum Action {
+        /**
+         * 表结构没有变化，只检查索引
+         */
+        NONE,
+        /**
+         * 新建表
+         */
+        CREATE,
+        /**
+         * 只新增了列，通过ALTER TABLE ADD COLUMN修改，不需要复制数据
+         */
+        ADD_COLUMNS,
+        /**
+         * 重建表并复制数据
+         */
+        REBUILD,
+        /**
+         * 实体已不存在，删除表
+         */
+        DROP
+    }
+
+    private final String tableName;
+
+    private final Action action;
+
+    /**
+     * 对应的Dao，删除表时为null
+     */
+    final CoreDao<?> coreDao;
+
+    /**
+     * 数据库中原有的表结构
+     */
+    final List<DbProperty> dbProperties;
+
+    /**
+     * 实体对应的表结构
+     */
+    final List<DbProperty> newDbProperties;
+
+    /**
+     * 需要新增的列，只在{@link Action#ADD_COLUMNS}时有值
+     */
+    final List<DbProperty> addedProperties;
+
+    private long costMillis = -1;
+
+    TableMigration(String tableName, Action action, CoreDao<?> coreDao,
+                   List<DbProperty> dbProperties, List<DbProperty> newDbProperties, List<DbProperty> addedProperties) {
+        this.tableName = tableName;
+        this.action = action;
+        this.coreDao = coreDao;
+        this.dbProperties = dbProperties;
+        this.newDbProperties = newDbProperties;
+        this.addedProperties = addedProperties;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * 执行耗时
+     *
+     * @return 毫秒，未执行时为-1
+     */
+    public long getCostMillis() {
+        return costMillis;
+    }
+
+    void setCostMillis(long costMillis) {
+        this.costMillis = costMillis;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + "(" + action + ", " + costMillis + "ms)";
+    }
+}
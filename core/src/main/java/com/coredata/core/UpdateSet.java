@@ -1,9 +1,13 @@
 package com.coredata.core;
 
+import com.coredata.core.async.Callback;
 import com.coredata.core.db.Update;
 import com.coredata.core.db.UpdateDeleteSetInterface;
 import com.coredata.core.db.UpdateDeleteWhere;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
 /**
  * 更新Set
  */
@@ -16,7 +20,17 @@ public class UpdateSet<T> extends BaseSet<T> implements UpdateDeleteSetInterface
 
     @Override
     public boolean execute() {
-        return getCoreDao().updateDeleteInternal(getSql());
+        return getCoreDao().updateDeleteInternal(getSql(), getBindArgs());
+    }
+
+    @Override
+    public Future<Boolean> executeAsync(Callback<Boolean> callback) {
+        return getCoreDao().async().write(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return execute();
+            }
+        }, callback);
     }
 
     @Override
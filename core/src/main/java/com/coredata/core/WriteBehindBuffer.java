@@ -0,0 +1,211 @@
+package com.coredata.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 延迟写入缓冲区，通过{@link CoreData.Builder#writeBehind(Class, int, long)}为实体开启
+ * <p>
+ * 开启后{@link CoreDao#replace(Object)}只把对象放入缓冲区，同一主键只保留最后一次写入的对象；
+ * 缓冲的对象数达到上限时在调用线程中立即写入，否则在延时到达后由写线程在一个事务中批量写入。
+ * 缓冲区中的数据在写入之前查询不到，需要读到最新数据时先调用{@link CoreDao#flush()}
+ * <p>
+ * 写入失败时对象放回缓冲区，按延时的倍数退避重试，最长间隔{@link #MAX_RETRY_DELAY_MILLIS}，
+ * 失败通过{@link WriteBehindListener}通知
+ *
+ * @param <T> 对应的实体类型
+ */
+public final class WriteBehindBuffer<T> {
+
+    /**
+     * 写入失败后第一次重试的最短延时，单位毫秒
+     */
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+
+    /**
+     * 写入失败后重试的最长延时，单位毫秒
+     */
+    public static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+
+    private final int maxPending;
+
+    private final long flushDelayMillis;
+
+    private CoreDao<T> coreDao;
+
+    /**
+     * 等待写入的对象，以主键为key，按写入顺序排列
+     */
+    private final LinkedHashMap<Object, T> pending = new LinkedHashMap<>();
+
+    private boolean flushScheduled;
+
+    /**
+     * 连续写入失败的次数，写入成功后清零
+     */
+    private int failureCount;
+
+    private WriteBehindListener listener;
+
+    /**
+     * 保证先取出的批次先写入
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * 是否正在写入，只在flushLock内访问
+     */
+    private boolean flushing;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (Exception e) {
+                // 失败的对象已经放回缓冲区并安排重试，失败已通知listener
+                if (listener == null) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    };
+
+    WriteBehindBuffer(int maxPending, long flushDelayMillis) {
+        this.maxPending = maxPending;
+        this.flushDelayMillis = flushDelayMillis;
+    }
+
+    void attach(CoreDao<T> coreDao) {
+        this.coreDao = coreDao;
+    }
+
+    void setListener(WriteBehindListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 放入缓冲区
+     *
+     * @param t 实体对象
+     */
+    void add(T t) {
+        boolean flushNow;
+        boolean schedule = false;
+        synchronized (pending) {
+            Object key = coreDao.getPrimaryKeyValue(t);
+            // 先移除再放入，保证顺序为最后一次写入的顺序
+            pending.remove(key);
+            pending.put(key, t);
+            flushNow = pending.size() >= maxPending;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+        if (flushNow) {
+            flush();
+        } else if (schedule) {
+            coreDao.getCoreExecutor().scheduleWrite(flushTask, flushDelayMillis);
+        }
+    }
+
+    /**
+     * 获取等待写入的对象数
+     *
+     * @return 对象数
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 立即在当前线程中写入缓冲区中的所有对象，返回时数据已经提交；
+     * 写入失败时对象放回缓冲区并安排重试，异常继续抛给调用方
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (flushing) {
+                // 写入时级联写入关联对象又回到本缓冲区，剩余的数据留到下一次写入
+                return;
+            }
+            List<T> batch;
+            synchronized (pending) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            flushing = true;
+            try {
+                coreDao.replaceNow(batch);
+            } catch (RuntimeException e) {
+                onFlushFailed(batch, e);
+                throw e;
+            } finally {
+                flushing = false;
+            }
+            synchronized (pending) {
+                failureCount = 0;
+            }
+        }
+    }
+
+    /**
+     * 写入失败，放回缓冲区并按连续失败的次数退避后重试
+     */
+    private void onFlushFailed(List<T> batch, RuntimeException e) {
+        requeue(batch);
+        int failures;
+        int pendingCount;
+        long retryDelay;
+        boolean schedule = false;
+        synchronized (pending) {
+            failures = ++failureCount;
+            pendingCount = pending.size();
+            retryDelay = retryDelayMillis(failures);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            coreDao.getCoreExecutor().scheduleWrite(flushTask, retryDelay);
+        }
+        WriteBehindListener listener = this.listener;
+        if (listener != null) {
+            listener.onFlushFailed(coreDao.getTableName(), pendingCount, failures, retryDelay, e);
+        }
+    }
+
+    private long retryDelayMillis(int failures) {
+        long delay = Math.max(flushDelayMillis, MIN_RETRY_DELAY_MILLIS);
+        for (int i = 1; i < failures && delay < MAX_RETRY_DELAY_MILLIS; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * 写入失败时将对象放回缓冲区，期间又写入了相同主键的对象时保留新的对象
+     */
+    private void requeue(List<T> batch) {
+        synchronized (pending) {
+            LinkedHashMap<Object, T> merged = new LinkedHashMap<>();
+            for (T t : batch) {
+                merged.put(coreDao.getPrimaryKeyValue(t), t);
+            }
+            for (Object key : pending.keySet()) {
+                merged.remove(key);
+            }
+            merged.putAll(pending);
+            pending.clear();
+            pending.putAll(merged);
+        }
+    }
+}
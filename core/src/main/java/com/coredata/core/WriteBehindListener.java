@@ -0,0 +1,20 @@
+package com.coredata.core;
+
+/**
+ * 延迟写入的失败回调，通过{@link CoreData.Builder#writeBehindListener(WriteBehindListener)}设置
+ * <p>
+ * 回调在执行写入的线程中执行，写入失败的对象已经放回缓冲区，将在retryDelayMillis后自动重试
+ */
+public interface WriteBehindListener {
+
+    /**
+     * 缓冲区中的数据写入失败
+     *
+     * @param tableName        实体对应的表名
+     * @param pendingCount     缓冲区中等待写入的对象数，包含写入失败的对象
+     * @param failureCount     连续失败的次数
+     * @param retryDelayMillis 距离下一次重试的时间，单位毫秒
+     * @param e                写入时的异常
+     */
+    void onFlushFailed(String tableName, int pendingCount, int failureCount, long retryDelayMillis, Exception e);
+}
@@ -0,0 +1,23 @@
+package com.coredata.core.async;
+
+/**
+ * 异步操作的结果回调，回调所在的线程由{@code CoreData.Builder.callbackExecutor}决定，默认为主线程
+ *
+ * @param <R> 结果类型
+ */
+public interface Callback<R> {
+
+    /**
+     * 操作成功
+     *
+     * @param result 操作结果
+     */
+    void onSuccess(R result);
+
+    /**
+     * 操作失败
+     *
+     * @param throwable 失败原因
+     */
+    void onFailure(Throwable throwable);
+}
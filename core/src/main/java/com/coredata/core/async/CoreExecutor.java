@@ -0,0 +1,215 @@
+package com.coredata.core.async;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CoreData的异步执行器，每个CoreData实例持有一个
+ * <p>
+ * 写操作全部提交到单个写线程，按提交顺序依次执行；
+ * 读操作提交到固定大小的读线程池并行执行，读取的是执行时已经提交的数据
+ */
+public final class CoreExecutor {
+
+    /**
+     * 线程空闲多久后回收
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor writeExecutor;
+
+    private final ThreadPoolExecutor readExecutor;
+
+    private final Executor callbackExecutor;
+
+    private final String tag;
+
+    /**
+     * 延时任务的计时线程，第一次提交延时任务时创建
+     */
+    private ScheduledExecutorService scheduler;
+
+    public CoreExecutor(String tag, int readerThreads, Executor callbackExecutor) {
+        this.tag = tag;
+        writeExecutor = createExecutor(1, "CoreData-" + tag + "-writer");
+        readExecutor = createExecutor(Math.max(1, readerThreads), "CoreData-" + tag + "-reader");
+        this.callbackExecutor = callbackExecutor != null ? callbackExecutor : defaultCallbackExecutor();
+    }
+
+    private static ThreadPoolExecutor createExecutor(int threads, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                createThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory createThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * 默认在主线程回调，没有主线程Looper时(例如在JVM上运行)直接在执行线程回调
+     */
+    private static Executor defaultCallbackExecutor() {
+        Looper mainLooper = Looper.getMainLooper();
+        if (mainLooper == null) {
+            return null;
+        }
+        final Handler handler = new Handler(mainLooper);
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    /**
+     * 提交读操作
+     *
+     * @param callable 读操作
+     * @param callback 结果回调，可以为null
+     * @param <R>      结果类型
+     * @return 可用于等待结果或取消
+     */
+    public <R> Future<R> submitRead(Callable<R> callable, Callback<R> callback) {
+        return submit(readExecutor, callable, callback);
+    }
+
+    /**
+     * 提交写操作，所有写操作按照提交顺序依次执行
+     *
+     * @param callable 写操作
+     * @param callback 结果回调，可以为null
+     * @param <R>      结果类型
+     * @return 可用于等待结果或取消
+     */
+    public <R> Future<R> submitWrite(Callable<R> callable, Callback<R> callback) {
+        return submit(writeExecutor, callable, callback);
+    }
+
+    /**
+     * 延时提交写操作，到时间后进入写线程的队列，与其他写操作按顺序执行
+     *
+     * @param runnable    写操作
+     * @param delayMillis 延时，单位毫秒
+     */
+    public void scheduleWrite(Runnable runnable, long delayMillis) {
+        schedule(writeExecutor, runnable, delayMillis);
+    }
+
+    /**
+     * 延时提交读操作，到时间后在读线程池中执行
+     *
+     * @param runnable    读操作
+     * @param delayMillis 延时，单位毫秒
+     */
+    public void scheduleRead(Runnable runnable, long delayMillis) {
+        schedule(readExecutor, runnable, delayMillis);
+    }
+
+    private void schedule(final ThreadPoolExecutor executor, final Runnable runnable, long delayMillis) {
+        if (delayMillis <= 0) {
+            executor.execute(runnable);
+            return;
+        }
+        synchronized (this) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(
+                        createThreadFactory("CoreData-" + tag + "-scheduler"));
+            }
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(runnable);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private <R> Future<R> submit(ThreadPoolExecutor executor, Callable<R> callable, Callback<R> callback) {
+        CallbackFutureTask<R> task = new CallbackFutureTask<>(callable, callback, callbackExecutor);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * 停止接收新的操作，已提交的操作会继续执行完
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        writeExecutor.shutdown();
+        readExecutor.shutdown();
+    }
+
+    /**
+     * 执行完成后分发回调的任务
+     */
+    private static final class CallbackFutureTask<R> extends FutureTask<R> {
+
+        private final Callback<R> callback;
+
+        private final Executor callbackExecutor;
+
+        CallbackFutureTask(Callable<R> callable, Callback<R> callback, Executor callbackExecutor) {
+            super(callable);
+            this.callback = callback;
+            this.callbackExecutor = callbackExecutor;
+        }
+
+        @Override
+        protected void done() {
+            if (callback == null || isCancelled()) {
+                return;
+            }
+            Runnable dispatch = new Runnable() {
+                @Override
+                public void run() {
+                    R result;
+                    try {
+                        result = get();
+                    } catch (ExecutionException e) {
+                        callback.onFailure(e.getCause());
+                        return;
+                    } catch (InterruptedException | CancellationException e) {
+                        callback.onFailure(e);
+                        return;
+                    }
+                    callback.onSuccess(result);
+                }
+            };
+            if (callbackExecutor != null) {
+                callbackExecutor.execute(dispatch);
+            } else {
+                dispatch.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.coredata.core.converter;
+
+import com.coredata.core.PropertyConverter;
+import com.coredata.core.io.BinaryCodec;
+import com.coredata.core.utils.ConvertUtils;
+
+import java.io.Serializable;
+
+/**
+ * Serializable 二进制数据转换器，以BLOB存储，使用编译器生成的编解码器，
+ * 使用方式：@Convert(converter = BinaryConverter.class, dbType = byte[].class)
+ * <p>
+ * 可以直接替换{@link SerializableConverter}，旧的Base64数据仍然可以读出，重新写入时转为二进制格式
+ */
+public class BinaryConverter<T extends Serializable> implements PropertyConverter<T, byte[]> {
+
+    private final BinaryCodec<T> codec;
+
+    public BinaryConverter(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] convertToProperty(T t) {
+        return ConvertUtils.toBytes(codec, t);
+    }
+
+    @Override
+    public T convertToValue(byte[] bytes) {
+        return ConvertUtils.fromBytes(bytes, codec);
+    }
+}
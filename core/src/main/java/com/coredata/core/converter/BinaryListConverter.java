@@ -0,0 +1,34 @@
+package com.coredata.core.converter;
+
+import com.coredata.core.PropertyConverter;
+import com.coredata.core.io.BinaryCodec;
+import com.coredata.core.utils.ConvertUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Serializable List 二进制数据转换器，以BLOB存储，使用编译器生成的编解码器，
+ * 使用方式：@Convert(converter = BinaryListConverter.class, dbType = byte[].class)
+ * <p>
+ * 可以直接替换{@link SerializableListConverter}，旧的Base64数据仍然可以读出，重新写入时转为二进制格式
+ */
+public class BinaryListConverter<T extends Serializable>
+        implements PropertyConverter<List<T>, byte[]> {
+
+    private final BinaryCodec<T> codec;
+
+    public BinaryListConverter(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] convertToProperty(List<T> tList) {
+        return ConvertUtils.listToBytes(codec, tList);
+    }
+
+    @Override
+    public List<T> convertToValue(byte[] bytes) {
+        return ConvertUtils.listFromBytes(bytes, codec);
+    }
+}
@@ -0,0 +1,11 @@
+package com.coredata.core.db;
+
+/**
+ * 逐条处理查询结果的回调
+ *
+ * @param <T> 实体类型
+ */
+public interface Consumer<T> {
+
+    void accept(T t);
+}
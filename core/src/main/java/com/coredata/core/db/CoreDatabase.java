@@ -9,12 +9,35 @@ import android.database.Cursor;
 
 public abstract class CoreDatabase {
 
+    /**
+     * 每个连接缓存的预编译语句数量
+     */
+    private static final int STATEMENT_CACHE_SIZE = 25;
+
+    private final StatementCache statementCache = new StatementCache(STATEMENT_CACHE_SIZE);
+
     public abstract void beginTransaction();
 
     public abstract void setTransactionSuccessful();
 
     public abstract void endTransaction();
 
+    /**
+     * 在读连接上开始一个不加写锁的读事务，WAL模式下事务中的多次查询读取同一个快照，
+     * 结束时调用{@link #endReadTransaction()}
+     * <p>
+     * 默认不做任何事：Android的SQLiteDatabase只提供IMMEDIATE/EXCLUSIVE事务，且会拦截直接执行的BEGIN，
+     * 此时多次查询之间仍可能读到其他连接提交的数据
+     */
+    public void beginReadTransaction() {
+    }
+
+    /**
+     * 结束{@link #beginReadTransaction()}开始的读事务
+     */
+    public void endReadTransaction() {
+    }
+
     public abstract Cursor rawQuery(String sql, String[] selectionArgs);
 
     public abstract CoreStatement compileStatement(String sql);
@@ -22,4 +45,40 @@ public abstract class CoreDatabase {
     public abstract void execSQL(String sql);
 
     public abstract long replace(String table, String nullColumnHack, ContentValues initialValues);
+
+    /**
+     * 从当前连接的缓存中取出预编译语句，没有缓存时重新编译，
+     * 使用完毕后必须调用{@link #releaseStatement(String, CoreStatement)}放回
+     *
+     * @param sql sql语句
+     * @return 预编译语句
+     */
+    public CoreStatement acquireStatement(String sql) {
+        CoreStatement statement = statementCache.remove(sql);
+        if (statement == null) {
+            statement = compileStatement(sql);
+        }
+        return statement;
+    }
+
+    /**
+     * 清空绑定参数并将语句放回缓存
+     *
+     * @param sql       sql语句
+     * @param statement {@link #acquireStatement(String)}取出的语句
+     */
+    public void releaseStatement(String sql, CoreStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        statement.clearBindings();
+        statementCache.put(sql, statement);
+    }
+
+    /**
+     * 关闭当前连接缓存的所有预编译语句，连接不再使用时调用
+     */
+    public void clearStatementCache() {
+        statementCache.clear();
+    }
 }
@@ -19,4 +19,65 @@ public abstract class CoreStatement {
     public abstract void bindString(int index, String value);
 
     public abstract void bindBlob(int index, byte[] value);
+
+    /**
+     * 按参数类型依次绑定参数，下标从1开始
+     *
+     * @param bindArgs 参数数组，可以为null
+     */
+    public void bindAllArgs(Object[] bindArgs) {
+        if (bindArgs == null) {
+            return;
+        }
+        for (int i = 0; i < bindArgs.length; i++) {
+            bindObject(i + 1, bindArgs[i]);
+        }
+    }
+
+    /**
+     * 按参数类型绑定单个参数
+     *
+     * @param index 下标，从1开始
+     * @param arg   参数，可以为null
+     */
+    public void bindObject(int index, Object arg) {
+        if (arg == null) {
+            bindNull(index);
+        } else if (arg instanceof Boolean) {
+            bindLong(index, (Boolean) arg ? 1 : 0);
+        } else if (arg instanceof Long || arg instanceof Integer
+                || arg instanceof Short || arg instanceof Byte) {
+            bindLong(index, ((Number) arg).longValue());
+        } else if (arg instanceof Float || arg instanceof Double) {
+            bindDouble(index, ((Number) arg).doubleValue());
+        } else if (arg instanceof byte[]) {
+            bindBlob(index, (byte[]) arg);
+        } else {
+            bindString(index, arg.toString());
+        }
+    }
+
+    /**
+     * 将当前绑定的参数作为一次插入加入批处理，
+     * 默认立即执行，支持批量提交的实现可以缓存后在{@link #executeBatch()}中一起执行
+     */
+    public void addBatch() {
+        executeInsert();
+    }
+
+    /**
+     * 执行批处理中尚未执行的语句，默认没有需要执行的语句
+     */
+    public void executeBatch() {
+    }
+
+    /**
+     * 清空已绑定的参数，语句复用前调用
+     */
+    public abstract void clearBindings();
+
+    /**
+     * 关闭语句，释放底层资源，关闭后不可再使用
+     */
+    public abstract void close();
 }
@@ -3,6 +3,9 @@ package com.coredata.core.db;
 import android.content.ContentValues;
 
 import com.coredata.core.FuncSet;
+import com.coredata.core.async.Callback;
+
+import java.util.concurrent.Future;
 
 public class FuncWhere<SET extends FuncSet<T>, T> extends Where<SET, T> {
 
@@ -19,6 +22,13 @@ public class FuncWhere<SET extends FuncSet<T>, T> extends Where<SET, T> {
         return set.result();
     }
 
+    /**
+     * @see FuncSet#resultAsync(Callback)
+     */
+    public Future<ContentValues> resultAsync(Callback<ContentValues> callback) {
+        return set.resultAsync(callback);
+    }
+
     @Override
     public FuncWhere<SET, T> and(String columnName) {
         super.and(columnName);
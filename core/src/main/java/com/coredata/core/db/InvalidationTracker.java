@@ -0,0 +1,128 @@
+package com.coredata.core.db;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 记录写操作涉及的表，并在写事务提交后通知监听了这些表的{@link TableObserver}
+ * <p>
+ * 只能感知到通过CoreDao进行的写操作，直接执行的sql不会触发通知
+ */
+public final class InvalidationTracker {
+
+    private final CopyOnWriteArrayList<ObserverEntry> observers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册监听
+     *
+     * @param tables   监听的表
+     * @param observer 监听
+     */
+    public void addObserver(String[] tables, TableObserver observer) {
+        String[] sortedTables = tables.clone();
+        Arrays.sort(sortedTables);
+        observers.add(new ObserverEntry(sortedTables, observer));
+    }
+
+    /**
+     * 移除监听
+     *
+     * @param observer {@link #addObserver(String[], TableObserver)}注册的监听
+     */
+    public void removeObserver(TableObserver observer) {
+        for (ObserverEntry entry : observers) {
+            if (entry.observer == observer) {
+                observers.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * 是否有注册的监听
+     *
+     * @return true为有
+     */
+    public boolean hasObservers() {
+        return !observers.isEmpty();
+    }
+
+    /**
+     * 写事务提交后调用，通知监听了变化的表的observer
+     *
+     * @param changedTables 发生变化的表
+     */
+    public void notifyTablesChanged(String[] changedTables) {
+        notifyTablesChanged(changedTables, null, null);
+    }
+
+    /**
+     * 写事务提交后调用，通知监听了变化的表的observer；
+     * 只有keyTable发生变化且主键已知时，{@link RowObserver}会收到具体变化的主键
+     *
+     * @param changedTables 发生变化的表
+     * @param keyTable      keys所属的表
+     * @param keys          keyTable中变化的主键，无法确定时为null
+     */
+    public void notifyTablesChanged(String[] changedTables, String keyTable, Collection<?> keys) {
+        Map<String, Collection<?>> changedKeys = new HashMap<>();
+        if (keyTable != null && keys != null) {
+            changedKeys.put(keyTable, keys);
+        }
+        notifyTablesChanged(changedTables, changedKeys);
+    }
+
+    /**
+     * 写事务提交后调用，通知监听了变化的表的observer；
+     * observer监听的表中只有一张发生变化且该表的主键已知时，{@link RowObserver}会收到具体变化的主键
+     *
+     * @param changedTables 发生变化的表
+     * @param changedKeys   以表名为key的变化的主键，不包含的表无法确定变化的主键
+     */
+    public void notifyTablesChanged(String[] changedTables, Map<String, ? extends Collection<?>> changedKeys) {
+        for (ObserverEntry entry : observers) {
+            Set<String> matched = null;
+            for (String table : changedTables) {
+                if (Arrays.binarySearch(entry.tables, table) >= 0) {
+                    if (matched == null) {
+                        matched = new HashSet<>();
+                    }
+                    matched.add(table);
+                }
+            }
+            if (matched != null) {
+                try {
+                    Collection<?> keys = null;
+                    String keyTable = null;
+                    if (matched.size() == 1 && entry.observer instanceof RowObserver) {
+                        keyTable = matched.iterator().next();
+                        keys = changedKeys.get(keyTable);
+                    }
+                    if (keys != null) {
+                        ((RowObserver) entry.observer).onRowsChanged(keyTable, keys);
+                    } else {
+                        entry.observer.onTablesChanged(matched);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static final class ObserverEntry {
+
+        private final String[] tables;
+
+        private final TableObserver observer;
+
+        ObserverEntry(String[] tables, TableObserver observer) {
+            this.tables = tables;
+            this.observer = observer;
+        }
+    }
+}
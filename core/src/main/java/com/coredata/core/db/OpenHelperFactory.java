@@ -0,0 +1,24 @@
+package com.coredata.core.db;
+
+import android.content.Context;
+
+/**
+ * 自定义{@link OpenHelperInterface}的创建方式，通过{@link com.coredata.core.CoreData.Builder#openHelperFactory(OpenHelperFactory)}设置，
+ * 用于替换默认的Sqlite实现，例如在JVM上使用JDBC
+ * <p>
+ * 创建出的OpenHelper在数据库创建、升级、降级时需要回调
+ * {@link com.coredata.core.CoreDatabaseManager}中对应的方法
+ */
+public interface OpenHelperFactory {
+
+    /**
+     * 创建OpenHelper
+     *
+     * @param context 初始化时传入的上下文，不在Android上运行时可能为null
+     * @param name    数据库名称
+     * @param version 数据库版本
+     * @param tag     CoreData实例的tag，可通过{@link com.coredata.core.CoreData#instance(String)}获取实例
+     * @return OpenHelper
+     */
+    OpenHelperInterface create(Context context, String name, int version, String tag);
+}
@@ -10,4 +10,20 @@ public interface OpenHelperInterface {
 
     CoreDatabase getReadableCoreDatabase();
 
+    /**
+     * 设置是否开启WAL(write-ahead logging)模式，需要在数据库第一次打开之前调用
+     *
+     * @param enabled 是否开启
+     */
+    void setWriteAheadLogging(boolean enabled);
+
+    /**
+     * 打开一个新的只读连接，供读连接池使用
+     * <p>
+     * 只有在WAL模式下，只读连接才能与写事务并发执行
+     *
+     * @return 新的只读数据库连接
+     */
+    CoreDatabase openReadOnlyCoreDatabase();
+
 }
@@ -1,8 +1,13 @@
 package com.coredata.core.db;
 
+import com.coredata.core.ObservableQuery;
+import com.coredata.core.ResultDiff;
+import com.coredata.core.ResultIterator;
 import com.coredata.core.ResultSet;
+import com.coredata.core.async.Callback;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Created by wangjinpeng on 2017/7/4.
@@ -18,6 +23,30 @@ public class QueryWhere<SET extends ResultSet<T>, T> extends Where<SET, T> {
         return set.result();
     }
 
+    public Future<List<T>> resultAsync() {
+        return set.resultAsync();
+    }
+
+    public Future<List<T>> resultAsync(Callback<List<T>> callback) {
+        return set.resultAsync(callback);
+    }
+
+    public ObservableQuery<T> observe(long debounceMillis, Callback<List<T>> callback) {
+        return set.observe(debounceMillis, callback);
+    }
+
+    public ObservableQuery<T> observeDiff(long debounceMillis, Callback<ResultDiff<T>> callback) {
+        return set.observeDiff(debounceMillis, callback);
+    }
+
+    public ResultIterator<T> iterate() {
+        return set.iterate();
+    }
+
+    public void forEach(Consumer<T> consumer) {
+        set.forEach(consumer);
+    }
+
     public ResultSet<T> groupBy(String expression) {
         return set.groupBy(expression);
     }
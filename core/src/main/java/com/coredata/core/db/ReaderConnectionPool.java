@@ -0,0 +1,98 @@
+package com.coredata.core.db;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只读连接池，WAL模式下读操作从池中取出独立的只读连接，可以与写事务并发执行
+ * <p>
+ * 连接按需创建，最多创建{@link #maxSize}个，全部被占用时等待其他读操作归还，
+ * 超过{@link #ACQUIRE_TIMEOUT_SECONDS}秒仍未取到时抛出异常，不会无限等待
+ */
+public final class ReaderConnectionPool {
+
+    /**
+     * 等待其他读操作归还连接的最长时间，单位秒
+     */
+    public static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private final OpenHelperInterface openHelper;
+
+    private final int maxSize;
+
+    private final LinkedBlockingQueue<CoreDatabase> idleQueue = new LinkedBlockingQueue<>();
+
+    private int createdSize;
+
+    private final long timeoutMillis;
+
+    public ReaderConnectionPool(OpenHelperInterface openHelper, int maxSize) {
+        this(openHelper, maxSize, TimeUnit.SECONDS.toMillis(ACQUIRE_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * @param openHelper    OpenHelper
+     * @param maxSize       最大连接数
+     * @param timeoutMillis 等待其他读操作归还连接的最长时间
+     */
+    public ReaderConnectionPool(OpenHelperInterface openHelper, int maxSize, long timeoutMillis) {
+        this.openHelper = openHelper;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 取出一个只读连接，使用完毕后必须调用{@link #release(CoreDatabase)}归还
+     *
+     * @return 只读连接
+     * @throws IllegalStateException 等待超时或被中断
+     */
+    public CoreDatabase acquire() {
+        CoreDatabase cdb = idleQueue.poll();
+        if (cdb != null) {
+            return cdb;
+        }
+        if (tryReserve()) {
+            try {
+                // 确保数据库已经完成创建或升级，只读连接无法执行建表语句
+                openHelper.getWritableCoreDatabase();
+                return openHelper.openReadOnlyCoreDatabase();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    createdSize--;
+                }
+                throw e;
+            }
+        }
+        try {
+            cdb = idleQueue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a reader connection", e);
+        }
+        if (cdb == null) {
+            throw new IllegalStateException("timed out after " + timeoutMillis
+                    + "ms waiting for a reader connection, all " + maxSize + " connections are in use");
+        }
+        return cdb;
+    }
+
+    /**
+     * 归还只读连接
+     *
+     * @param cdb {@link #acquire()}取出的连接
+     */
+    public void release(CoreDatabase cdb) {
+        if (cdb != null) {
+            idleQueue.offer(cdb);
+        }
+    }
+
+    private synchronized boolean tryReserve() {
+        if (createdSize < maxSize) {
+            createdSize++;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.coredata.core.db;
+
+import java.util.Collection;
+
+/**
+ * 可以接收具体变化主键的{@link TableObserver}
+ * <p>
+ * 监听的表中只有一张发生变化且写操作能确定该表变化的主键时才会回调{@link #onRowsChanged(String, Collection)}，
+ * 其他情况仍然回调{@link #onTablesChanged(java.util.Set)}
+ */
+public interface RowObserver extends TableObserver {
+
+    /**
+     * 表中给定主键的行被插入、更新或删除
+     *
+     * @param table 发生变化的表
+     * @param keys  变化的主键
+     */
+    void onRowsChanged(String table, Collection<?> keys);
+}
@@ -7,4 +7,19 @@ package com.coredata.core.db;
 public interface SetInterface<T> {
 
     SetInterface<T> append(String e);
+
+    /**
+     * 添加一个"?"占位符对应的绑定参数，参数顺序需与占位符在sql中的顺序一致
+     *
+     * @param arg 参数值，不能为null
+     * @return 当前集合
+     */
+    SetInterface<T> appendBindArg(Object arg);
+
+    /**
+     * 当前已添加的绑定参数个数
+     *
+     * @return 参数个数
+     */
+    int getBindArgCount();
 }
@@ -0,0 +1,69 @@
+package com.coredata.core.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预编译语句的LRU缓存，以sql为key，每个数据库连接持有一个
+ * <p>
+ * 语句在使用期间从缓存中移除，使用完毕后放回，因此同一条语句不会被多个线程同时使用；
+ * 被淘汰或被替换的语句会立即关闭
+ */
+final class StatementCache {
+
+    private final LinkedHashMap<String, CoreStatement> statementMap;
+
+    StatementCache(final int maxSize) {
+        statementMap = new LinkedHashMap<String, CoreStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CoreStatement> eldest) {
+                if (size() > maxSize) {
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 取出缓存的语句，取出后缓存中不再持有
+     *
+     * @param sql sql语句
+     * @return 缓存的语句，没有时返回null
+     */
+    synchronized CoreStatement remove(String sql) {
+        return statementMap.remove(sql);
+    }
+
+    /**
+     * 放回语句，如果已经存在相同sql的语句，关闭旧的语句
+     *
+     * @param sql       sql语句
+     * @param statement 预编译语句
+     */
+    synchronized void put(String sql, CoreStatement statement) {
+        CoreStatement old = statementMap.put(sql, statement);
+        if (old != null && old != statement) {
+            closeStatement(old);
+        }
+    }
+
+    /**
+     * 关闭并清空所有缓存的语句
+     */
+    synchronized void clear() {
+        for (CoreStatement statement : statementMap.values()) {
+            closeStatement(statement);
+        }
+        statementMap.clear();
+    }
+
+    private static void closeStatement(CoreStatement statement) {
+        try {
+            statement.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.coredata.core.db;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 表级读写锁管理，每个CoreData实例持有一个，以表名为key
+ * <p>
+ * 读操作之间可以并行，写操作只会阻塞涉及到相同表的读写操作；
+ * 多张表同时加锁时，调用方需保证表名已排序，统一按顺序加锁，避免死锁
+ * <p>
+ * 表锁只决定操作能否开始，真正的并行还取决于连接：默认未开启WAL时Android上所有读写共用一个连接，
+ * SQLite仍然串行执行，只有开启{@code CoreData.Builder.writeAheadLogging(true)}后读操作才在独立的
+ * 只读连接上与写事务并行，见benchmark中的TableLockBenchmark
+ */
+public final class TableLockManager {
+
+    private final ConcurrentHashMap<String, ReentrantReadWriteLock> lockMap = new ConcurrentHashMap<>();
+
+    private ReentrantReadWriteLock getLock(String tableName) {
+        ReentrantReadWriteLock lock = lockMap.get(tableName);
+        if (lock == null) {
+            ReentrantReadWriteLock newLock = new ReentrantReadWriteLock();
+            lock = lockMap.putIfAbsent(tableName, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * 对给定的表加读锁
+     *
+     * @param tableNames 排好序的表名
+     */
+    public void lockRead(String[] tableNames) {
+        for (String tableName : tableNames) {
+            getLock(tableName).readLock().lock();
+        }
+    }
+
+    /**
+     * 释放给定表的读锁
+     *
+     * @param tableNames 与{@link #lockRead(String[])}相同的表名
+     */
+    public void unlockRead(String[] tableNames) {
+        for (int i = tableNames.length - 1; i >= 0; i--) {
+            getLock(tableNames[i]).readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前线程是否持有给定表的写锁
+     *
+     * @param tableName 表名
+     * @return true为持有
+     */
+    public boolean isWriteLockedByCurrentThread(String tableName) {
+        ReentrantReadWriteLock lock = lockMap.get(tableName);
+        return lock != null && lock.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * 对给定的表加写锁
+     *
+     * @param tableNames 排好序的表名
+     */
+    public void lockWrite(String[] tableNames) {
+        for (String tableName : tableNames) {
+            getLock(tableName).writeLock().lock();
+        }
+    }
+
+    /**
+     * 释放给定表的写锁
+     *
+     * @param tableNames 与{@link #lockWrite(String[])}相同的表名
+     */
+    public void unlockWrite(String[] tableNames) {
+        for (int i = tableNames.length - 1; i >= 0; i--) {
+            getLock(tableNames[i]).writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.coredata.core.db;
+
+import java.util.Set;
+
+/**
+ * 表数据变化的监听，通过{@link InvalidationTracker#addObserver(String[], TableObserver)}注册
+ */
+public interface TableObserver {
+
+    /**
+     * 监听的表中有数据变化，每个提交的写事务回调一次，在执行写操作的线程中回调，不要执行耗时操作
+     *
+     * @param tables 发生变化且被监听的表
+     */
+    void onTablesChanged(Set<String> tables);
+}
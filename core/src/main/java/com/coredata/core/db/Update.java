@@ -2,7 +2,9 @@ package com.coredata.core.db;
 
 import com.coredata.core.BaseSet;
 import com.coredata.core.UpdateSet;
-import com.coredata.utils.SqlUtils;
+import com.coredata.core.async.Callback;
+
+import java.util.concurrent.Future;
 
 /**
  * Created by wangjinpeng on 2017/7/1.
@@ -18,7 +20,12 @@ public class Update<T> {
     }
 
     public Update<T> value(Object o) {
-        set.append(" = ").append(SqlUtils.formatValue(o));
+        set.append(" = ");
+        if (o == null) {
+            set.append("NULL");
+        } else {
+            set.append("?").appendBindArg(o);
+        }
         return this;
     }
 
@@ -34,4 +41,8 @@ public class Update<T> {
     public boolean execute() {
         return set.execute();
     }
+
+    public Future<Boolean> executeAsync(Callback<Boolean> callback) {
+        return set.executeAsync(callback);
+    }
 }
@@ -1,6 +1,9 @@
 package com.coredata.core.db;
 
 import com.coredata.core.BaseSet;
+import com.coredata.core.async.Callback;
+
+import java.util.concurrent.Future;
 
 /**
  * Created by wangjinpeng on 2017/7/4.
@@ -10,5 +13,13 @@ public interface UpdateDeleteSetInterface<T> extends SetInterface<T> {
 
     boolean execute();
 
+    /**
+     * 在写线程中执行，与其他写操作按提交顺序依次执行
+     *
+     * @param callback 结果回调，可以为null
+     * @return 是否有数据发生变化
+     */
+    Future<Boolean> executeAsync(Callback<Boolean> callback);
+
     UpdateDeleteWhere<UpdateDeleteSetInterface<T>, ? extends BaseSet<T>, T> where(String columnName);
 }
@@ -1,6 +1,9 @@
 package com.coredata.core.db;
 
 import com.coredata.core.BaseSet;
+import com.coredata.core.async.Callback;
+
+import java.util.concurrent.Future;
 
 /**
  * Created by wangjinpeng on 2017/7/4.
@@ -19,6 +22,11 @@ public class UpdateDeleteWhere<SI extends UpdateDeleteSetInterface<T>, SET exten
         return setInterface.execute();
     }
 
+    @SuppressWarnings("unchecked")
+    public Future<Boolean> executeAsync(Callback<Boolean> callback) {
+        return setInterface.executeAsync(callback);
+    }
+
     @Override
     public UpdateDeleteWhere<SI, SET, T> and(String columnName) {
         super.and(columnName);
@@ -10,21 +10,58 @@ abstract class Where<SET extends BaseSet<T>, T> {
     public Where(SET set, String columnName) {
         this.set = set;
         set.append(" WHERE ")
-                .append(columnName);
+                .append(set.qualifyColumn(columnName));
     }
 
     public Where<SET, T> and(String columnName) {
         set.append(" AND ");
-        set.append(SqlUtils.formatColumnName(columnName));
+        set.append(set.qualifyColumn(SqlUtils.formatColumnName(columnName)));
         return this;
     }
 
     public Where<SET, T> or(String columnName) {
         set.append(" OR ");
-        set.append(SqlUtils.formatColumnName(columnName));
+        set.append(set.qualifyColumn(SqlUtils.formatColumnName(columnName)));
         return this;
     }
 
+    /**
+     * 添加一个值，非null的值以"?"占位并作为绑定参数，
+     * 相同结构的sql可以复用预编译的语句，也不会因为字符串中的引号导致语句错误
+     *
+     * @param o 值
+     */
+    private void appendValue(Object o) {
+        if (o == null) {
+            set.append("NULL");
+        } else {
+            set.append("?");
+            set.appendBindArg(o);
+        }
+    }
+
+    /**
+     * 添加值列表，如果参数个数会超出sqlite的绑定参数上限，则退回到拼接字面量
+     *
+     * @param values 值列表
+     */
+    private void appendValues(Object[] values) {
+        boolean bind = set.getBindArgCount() + values.length <= SqlUtils.MAX_BIND_ARGS;
+        boolean isFirst = true;
+        for (Object val : values) {
+            if (isFirst) {
+                isFirst = false;
+            } else {
+                set.append(",");
+            }
+            if (bind) {
+                appendValue(val);
+            } else {
+                set.append(SqlUtils.formatValue(val));
+            }
+        }
+    }
+
     /**
      * 相等
      *
@@ -32,8 +69,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> eq(Object o) {
-        set.append(" = ")
-                .append(SqlUtils.formatValue(o));
+        set.append(" = ");
+        appendValue(o);
         return this;
     }
 
@@ -44,42 +81,22 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> noteq(Object o) {
-        set.append(" <> ")
-                .append(SqlUtils.formatValue(o));
+        set.append(" <> ");
+        appendValue(o);
         return this;
     }
 
     public Where<SET, T> in(Object[] values) {
-        StringBuilder append = new StringBuilder();
-        boolean isFirst = true;
-        for (Object val : values) {
-            if (isFirst) {
-                isFirst = false;
-            } else {
-                append.append(",");
-            }
-            append.append(SqlUtils.formatValue(val));
-        }
-        set.append(" IN (")
-                .append(append.toString())
-                .append(")");
+        set.append(" IN (");
+        appendValues(values);
+        set.append(")");
         return this;
     }
 
     public Where<SET, T> notIn(Object[] values) {
-        StringBuilder append = new StringBuilder();
-        boolean isFirst = true;
-        for (Object val : values) {
-            if (isFirst) {
-                isFirst = false;
-            } else {
-                append.append(",");
-            }
-            append.append(SqlUtils.formatValue(val));
-        }
-        set.append(" NOT IN (")
-                .append(append.toString())
-                .append(")");
+        set.append(" NOT IN (");
+        appendValues(values);
+        set.append(")");
         return this;
     }
 
@@ -111,10 +128,10 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> between(Object lv, Object rv) {
-        set.append(String.format(
-                " BETWEEN %1$s AND %2$S",
-                SqlUtils.formatValue(lv),
-                SqlUtils.formatValue(rv)));
+        set.append(" BETWEEN ");
+        appendValue(lv);
+        set.append(" AND ");
+        appendValue(rv);
         return this;
     }
 
@@ -125,7 +142,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> gt(Object value) {
-        set.append(" > ").append(SqlUtils.formatValue(value));
+        set.append(" > ");
+        appendValue(value);
         return this;
     }
 
@@ -136,7 +154,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> gte(Object value) {
-        set.append(" >= ").append(SqlUtils.formatValue(value));
+        set.append(" >= ");
+        appendValue(value);
         return this;
     }
 
@@ -147,7 +166,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> lt(Object value) {
-        set.append(" < ").append(SqlUtils.formatValue(value));
+        set.append(" < ");
+        appendValue(value);
         return this;
     }
 
@@ -158,7 +178,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> lte(Object value) {
-        set.append(" <= ").append(SqlUtils.formatValue(value));
+        set.append(" <= ");
+        appendValue(value);
         return this;
     }
 
@@ -169,7 +190,8 @@ abstract class Where<SET extends BaseSet<T>, T> {
      * @return
      */
     public Where<SET, T> like(String expression) {
-        set.append(String.format(" LIKE '%s'", expression));
+        set.append(" LIKE ");
+        appendValue(expression);
         return this;
     }
 }
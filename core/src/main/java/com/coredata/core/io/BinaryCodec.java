@@ -0,0 +1,30 @@
+package com.coredata.core.io;
+
+/**
+ * 二进制编解码器，由编译器为{@link com.coredata.core.converter.BinaryConverter}
+ * 所转换的类型生成
+ * <p>
+ * 每个字段以字段名和类型计算的标签及长度开头，读取时跳过不认识的字段，缺少的字段保持默认值，
+ * 类增删字段或修改字段类型后旧数据仍然可以读出
+ *
+ * @param <T> 编解码的类型
+ */
+public interface BinaryCodec<T> {
+
+    /**
+     * 写入对象，value不会为null
+     *
+     * @param writer 输出
+     * @param value  对象
+     */
+    void encode(BinaryWriter writer, T value);
+
+    /**
+     * 读出对象
+     *
+     * @param reader 输入
+     * @return 对象
+     * @throws IllegalStateException 数据不完整
+     */
+    T decode(BinaryReader reader);
+}
@@ -0,0 +1,178 @@
+package com.coredata.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/**
+ * {@link BinaryWriter}对应的输入，数据不完整时抛出{@link IllegalStateException}
+ */
+public final class BinaryReader {
+
+    private final byte[] data;
+
+    private int position;
+
+    public BinaryReader(byte[] data, int offset) {
+        this.data = data;
+        this.position = offset;
+    }
+
+    private void require(int count) {
+        if (position + count > data.length) {
+            throw new IllegalStateException("unexpected end of data at " + position);
+        }
+    }
+
+    public byte readByte() {
+        require(1);
+        return data[position++];
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() {
+        long raw = readUnsignedVarLong();
+        int value = (int) raw;
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readVarLong() {
+        long raw = readUnsignedVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private long readUnsignedVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("malformed varint at " + position);
+    }
+
+    public char readChar() {
+        return (char) readUnsignedVarLong();
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() {
+        long high = readFixedInt() & 0xFFFFFFFFL;
+        long low = readFixedInt() & 0xFFFFFFFFL;
+        return Double.longBitsToDouble((high << 32) | low);
+    }
+
+    private int readFixedInt() {
+        require(4);
+        byte[] data = this.data;
+        int p = position;
+        position = p + 4;
+        return ((data[p] & 0xFF) << 24)
+                | ((data[p + 1] & 0xFF) << 16)
+                | ((data[p + 2] & 0xFF) << 8)
+                | (data[p + 3] & 0xFF);
+    }
+
+    /**
+     * 读取{@link BinaryWriter#beginField(int)}写入的字段长度
+     *
+     * @return 字段结束的位置
+     */
+    public int readFieldEnd() {
+        int length = readFixedInt();
+        if (length < 0) {
+            throw new IllegalStateException("malformed field length at " + position);
+        }
+        require(length);
+        return position + length;
+    }
+
+    /**
+     * 跳到字段结束的位置，用于跳过不认识的字段或字段中没有读取的内容
+     *
+     * @param end {@link #readFieldEnd()}返回的位置
+     */
+    public void skipTo(int end) {
+        if (end < position || end > data.length) {
+            throw new IllegalStateException("field overrun at " + position + ", expected end " + end);
+        }
+        position = end;
+    }
+
+    public String readString() {
+        long length = readUnsignedVarLong();
+        if (length == 0) {
+            return null;
+        }
+        int byteCount = (int) (length - 1);
+        require(byteCount);
+        byte[] data = this.data;
+        char[] chars = new char[byteCount];
+        int charCount = 0;
+        int p = position;
+        int end = p + byteCount;
+        while (p < end) {
+            int b = data[p++] & 0xFF;
+            if (b < 0x80) {
+                chars[charCount++] = (char) b;
+            } else if (b < 0xE0) {
+                chars[charCount++] = (char) (((b & 0x1F) << 6) | (data[p++] & 0x3F));
+            } else if (b < 0xF0) {
+                chars[charCount++] = (char) (((b & 0x0F) << 12) | ((data[p++] & 0x3F) << 6) | (data[p++] & 0x3F));
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((data[p++] & 0x3F) << 12)
+                        | ((data[p++] & 0x3F) << 6) | (data[p++] & 0x3F);
+                // Character.highSurrogate在API 19以下不可用
+                chars[charCount++] = (char) ((codePoint >>> 10) + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+                chars[charCount++] = (char) ((codePoint & 0x3FF) + Character.MIN_LOW_SURROGATE);
+            }
+        }
+        position = end;
+        return new String(chars, 0, charCount);
+    }
+
+    public byte[] readBytes() {
+        long length = readUnsignedVarLong();
+        if (length == 0) {
+            return null;
+        }
+        int byteCount = (int) (length - 1);
+        require(byteCount);
+        byte[] value = new byte[byteCount];
+        System.arraycopy(data, position, value, 0, byteCount);
+        position += byteCount;
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readSerializable() {
+        byte[] bytes = readBytes();
+        if (bytes == null) {
+            return null;
+        }
+        ObjectInputStream ois = null;
+        try {
+            ois = new ObjectInputStreamWrap(new ByteArrayInputStream(bytes));
+            return (T) ois.readObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (ois != null) {
+                try {
+                    ois.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.coredata.core.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 紧凑的二进制输出，整数使用zigzag变长编码，字符串使用UTF-8
+ * <p>
+ * 每个线程复用一个缓冲区，通过{@link #obtain()}获取，用完后调用{@link #recycle()}归还
+ */
+public final class BinaryWriter {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 归还时超过此大小的缓冲区不再保留，避免偶尔的大对象长期占用内存
+     */
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<BinaryWriter> POOL = new ThreadLocal<BinaryWriter>() {
+        @Override
+        protected BinaryWriter initialValue() {
+            return new BinaryWriter();
+        }
+    };
+
+    /**
+     * 获取当前线程复用的输出，已被占用时返回一个新的实例
+     *
+     * @return 空的输出
+     */
+    public static BinaryWriter obtain() {
+        BinaryWriter writer = POOL.get();
+        if (writer.inUse) {
+            writer = new BinaryWriter();
+        }
+        writer.inUse = true;
+        writer.position = 0;
+        return writer;
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int position;
+
+    private boolean inUse;
+
+    private BinaryWriter() {
+    }
+
+    /**
+     * 归还到当前线程，归还后不能再使用
+     */
+    public void recycle() {
+        if (buffer.length > MAX_POOLED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        position = 0;
+        inUse = false;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int count) {
+        int required = position + count;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, required));
+        }
+    }
+
+    public void writeByte(byte value) {
+        ensureCapacity(1);
+        buffer[position++] = value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    public void writeVarInt(int value) {
+        writeUnsignedVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeChar(char value) {
+        writeUnsignedVarLong(value);
+    }
+
+    public void writeFloat(float value) {
+        writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        writeFixedInt((int) (bits >>> 32));
+        writeFixedInt((int) bits);
+    }
+
+    private void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 开始写入一个字段：写入字段标签并预留4字节的长度，字段内容写完后调用{@link #endField(int)}
+     *
+     * @param tag 字段标签
+     * @return 长度所在的位置
+     */
+    public int beginField(int tag) {
+        writeVarInt(tag);
+        ensureCapacity(4);
+        int mark = position;
+        position += 4;
+        return mark;
+    }
+
+    /**
+     * 字段内容写入完成，回填字段的长度，读取时可以据此跳过不认识的字段
+     *
+     * @param mark {@link #beginField(int)}返回的位置
+     */
+    public void endField(int mark) {
+        int end = position;
+        position = mark;
+        writeFixedInt(end - mark - 4);
+        position = end;
+    }
+
+    /**
+     * 写入字符串，长度为UTF-8字节数加1，0表示null
+     *
+     * @param value 字符串，可以为null
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeUnsignedVarLong(0);
+            return;
+        }
+        int length = value.length();
+        int byteCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byteCount++;
+            } else if (c < 0x800) {
+                byteCount += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                byteCount += 4;
+                i++;
+            } else {
+                byteCount += 3;
+            }
+        }
+        writeUnsignedVarLong(byteCount + 1L);
+        ensureCapacity(byteCount);
+        byte[] buffer = this.buffer;
+        int p = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[p++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[p++] = (byte) (0xC0 | (c >> 6));
+                buffer[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[p++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[p++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[p++] = (byte) (0xE0 | (c >> 12));
+                buffer[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = p;
+    }
+
+    /**
+     * 写入字节数组，长度加1，0表示null
+     *
+     * @param value 字节数组，可以为null
+     */
+    public void writeBytes(byte[] value) {
+        if (value == null) {
+            writeUnsignedVarLong(0);
+            return;
+        }
+        writeUnsignedVarLong(value.length + 1L);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * 无法生成编解码器的字段退回到Java序列化
+     *
+     * @param value 对象，可以为null
+     */
+    public void writeSerializable(Serializable value) {
+        if (value == null) {
+            writeBytes(null);
+            return;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = null;
+        try {
+            oos = new ObjectOutputStream(baos);
+            oos.writeObject(value);
+            oos.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (oos != null) {
+                try {
+                    oos.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        writeBytes(baos.toByteArray());
+    }
+}
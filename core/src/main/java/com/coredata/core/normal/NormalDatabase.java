@@ -19,6 +19,10 @@ public class NormalDatabase extends CoreDatabase {
         this.db = db;
     }
 
+    SQLiteDatabase getSQLiteDatabase() {
+        return db;
+    }
+
     @Override
     public void beginTransaction() {
         db.beginTransaction();
@@ -18,6 +18,13 @@ public class NormalOpenHelper extends SQLiteOpenHelper implements OpenHelperInte
 
     private String instanceTag;
 
+    private boolean writeAheadLogging;
+
+    /**
+     * 缓存的包装对象，底层SQLiteDatabase不变时复用，避免每次获取都创建新的包装
+     */
+    private NormalDatabase coreDatabase;
+
     public NormalOpenHelper(Context context, String name, int version, String tag) {
         super(context, name, null, version);
         this.instanceTag = tag;
@@ -43,12 +50,42 @@ public class NormalOpenHelper extends SQLiteOpenHelper implements OpenHelperInte
     }
 
     @Override
-    public CoreDatabase getWritableCoreDatabase() {
-        return new NormalDatabase(getWritableDatabase());
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (writeAheadLogging && !db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
     }
 
     @Override
-    public CoreDatabase getReadableCoreDatabase() {
-        return new NormalDatabase(getReadableDatabase());
+    public synchronized CoreDatabase getWritableCoreDatabase() {
+        return wrap(getWritableDatabase());
+    }
+
+    @Override
+    public synchronized CoreDatabase getReadableCoreDatabase() {
+        return wrap(getReadableDatabase());
+    }
+
+    @Override
+    public void setWriteAheadLogging(boolean enabled) {
+        this.writeAheadLogging = enabled;
+    }
+
+    @Override
+    public CoreDatabase openReadOnlyCoreDatabase() {
+        String path = getWritableDatabase().getPath();
+        return new NormalDatabase(SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY));
+    }
+
+    private NormalDatabase wrap(SQLiteDatabase db) {
+        if (coreDatabase == null || coreDatabase.getSQLiteDatabase() != db) {
+            if (coreDatabase != null) {
+                // 底层连接已经变更，旧连接上缓存的语句不再可用
+                coreDatabase.clearStatementCache();
+            }
+            coreDatabase = new NormalDatabase(db);
+        }
+        return coreDatabase;
     }
 }
@@ -50,4 +50,14 @@ public final class NormalStatement extends CoreStatement {
     public void bindBlob(int index, byte[] value) {
         statement.bindBlob(index, value);
     }
+
+    @Override
+    public void clearBindings() {
+        statement.clearBindings();
+    }
+
+    @Override
+    public void close() {
+        statement.close();
+    }
 }
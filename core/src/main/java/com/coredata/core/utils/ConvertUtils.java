@@ -2,6 +2,9 @@ package com.coredata.core.utils;
 
 import android.util.Base64;
 
+import com.coredata.core.io.BinaryCodec;
+import com.coredata.core.io.BinaryReader;
+import com.coredata.core.io.BinaryWriter;
 import com.coredata.core.io.ObjectInputStreamWrap;
 
 import java.io.ByteArrayInputStream;
@@ -73,6 +76,123 @@ public class ConvertUtils {
         return null;
     }
 
+    /**
+     * 二进制数据的首字节，Base64文本不会出现此值，以此区分旧的Base64数据
+     */
+    private static final byte BINARY_MAGIC = (byte) 0xB1;
+
+    /**
+     * 使用编解码器将对象写为二进制数据，格式为：标识字节、对象数据
+     *
+     * @param codec 编解码器
+     * @param value 对象
+     * @return 二进制数据，value为null时返回null
+     */
+    public static <T> byte[] toBytes(BinaryCodec<T> codec, T value) {
+        if (value == null) {
+            return null;
+        }
+        BinaryWriter writer = BinaryWriter.obtain();
+        try {
+            writer.writeByte(BINARY_MAGIC);
+            codec.encode(writer, value);
+            return writer.toByteArray();
+        } finally {
+            writer.recycle();
+        }
+    }
+
+    /**
+     * 使用编解码器将列表写为二进制数据，元素可以为null
+     *
+     * @param codec 元素的编解码器
+     * @param list  列表
+     * @return 二进制数据，list为null时返回null
+     */
+    public static <T> byte[] listToBytes(BinaryCodec<T> codec, Collection<T> list) {
+        if (list == null) {
+            return null;
+        }
+        BinaryWriter writer = BinaryWriter.obtain();
+        try {
+            writer.writeByte(BINARY_MAGIC);
+            writer.writeVarInt(list.size());
+            for (T t : list) {
+                writer.writeBoolean(t != null);
+                if (t != null) {
+                    codec.encode(writer, t);
+                }
+            }
+            return writer.toByteArray();
+        } finally {
+            writer.recycle();
+        }
+    }
+
+    /**
+     * 读取{@link #toBytes(BinaryCodec, Object)}写入的数据，不是二进制格式时按旧的Base64序列化数据读取
+     *
+     * <p>
+     * 数据损坏时抛出异常而不是返回null，避免对象被再次写入时以null覆盖原有数据
+     *
+     * @param data  数据库中的数据
+     * @param codec 编解码器
+     * @return 对象
+     * @throws IllegalStateException 数据不完整
+     */
+    public static <T> T fromBytes(byte[] data, BinaryCodec<T> codec) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] != BINARY_MAGIC) {
+            return fromLegacyBytes(data);
+        }
+        return codec.decode(new BinaryReader(data, 1));
+    }
+
+    /**
+     * 读取{@link #listToBytes(BinaryCodec, Collection)}写入的数据，不是二进制格式时按旧的Base64序列化数据读取
+     *
+     * <p>
+     * 数据损坏时抛出异常而不是返回null，避免对象被再次写入时以null覆盖原有数据
+     *
+     * @param data  数据库中的数据
+     * @param codec 元素的编解码器
+     * @return 列表
+     * @throws IllegalStateException 数据不完整
+     */
+    public static <T> List<T> listFromBytes(byte[] data, BinaryCodec<T> codec) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] != BINARY_MAGIC) {
+            return fromLegacyBytes(data);
+        }
+        BinaryReader reader = new BinaryReader(data, 1);
+        int size = reader.readVarInt();
+        if (size < 0) {
+            throw new IllegalStateException("malformed list size " + size);
+        }
+        // 每个元素至少占一个字节，损坏的长度不会分配过大的数组
+        List<T> list = new ArrayList<>(Math.min(size, data.length));
+        for (int i = 0; i < size; i++) {
+            list.add(reader.readBoolean() ? codec.decode(reader) : null);
+        }
+        return list;
+    }
+
+    /**
+     * 旧版本以TEXT存储的Base64数据，改为BLOB列后读出的是其ASCII字节
+     */
+    private static <T> T fromLegacyBytes(byte[] data) {
+        try {
+            return fromString(new String(data, "US-ASCII"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     public static List<String> listFromString(String s, String splitCharacter) {
         if (s != null) {
             String[] split = s.split(splitCharacter);
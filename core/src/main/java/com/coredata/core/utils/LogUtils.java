@@ -0,0 +1,33 @@
+package com.coredata.core.utils;
+
+import android.util.Log;
+
+/**
+ * 日志工具类，可以整体关闭
+ * <p>
+ * 每条sql都会输出日志，频繁读写时可以关闭以减少开销；
+ * 在JVM上运行时（如benchmark）android.util.Log的native方法不可用，必须关闭
+ */
+public class LogUtils {
+
+    private static volatile boolean enabled = true;
+
+    /**
+     * 设置是否输出日志，默认开启
+     *
+     * @param enabled 是否开启
+     */
+    public static void setEnabled(boolean enabled) {
+        LogUtils.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void d(String tag, String msg) {
+        if (enabled) {
+            Log.d(tag, msg);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import android.app.Application;
 import com.coredata.core.CoreData;
 import com.wanpg.core.test.model.Author;
 import com.wanpg.core.test.model.Book;
+import com.wanpg.core.test.model.Chapter;
 import com.wanpg.core.test.model.Magazine;
+import com.wanpg.core.test.model.Shelf;
 import com.wanpg.core.test.model.Time;
 
 import java.io.File;
@@ -27,8 +29,11 @@ public class BaseApplication extends Application {
                         Book.class,
                         Author.class,
                         Time.class,
-                        Magazine.class)
-                .version(13)
+                        Magazine.class,
+                        Chapter.class,
+                        Shelf.class)
+                .version(14)
+                .entityCache(Author.class, 500)
         );
     }
 }
@@ -10,14 +10,21 @@ import android.widget.Toast;
 
 import com.coredata.core.CoreDao;
 import com.coredata.core.CoreData;
+import com.coredata.core.async.Callback;
 import com.wanpg.core.test.model.Author;
 import com.wanpg.core.test.model.Book;
+import com.wanpg.core.test.model.Chapter;
 import com.wanpg.core.test.model.Desc;
 import com.wanpg.core.test.model.Tag;
+import com.wanpg.core.test.model.Time;
 import com.wanpg.coredata.R;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -30,33 +37,33 @@ public class MainActivity extends AppCompatActivity {
     private int index = 0;
 
     public void addBookClick(View view) {
-        new Thread() {
+        index++;
+        Book book = new Book();
+        book.id = index;
+        book.setName("book_" + index);
+        book.desc = new Desc("content" + index, "email" + index);
+        book.author = new Author(10000 + index, "author_" + index);
+        List<Tag> tags = new ArrayList<Tag>();
+        for (int i = 0; i < 2; i++) {
+            Tag tag = new Tag(10000000 + index * 1000 + i, "tag_" + index + "_" + i);
+            tags.add(tag);
+        }
+        book.tags = tags;
+        Log.d("wanpg", "开始插入一条数据");
+        final long start = System.currentTimeMillis();
+        final int bookIndex = index;
+        CoreData.defaultInstance().dao(Book.class).async().replace(book, new Callback<Boolean>() {
             @Override
-            public void run() {
-                index++;
-                Book book = new Book();
-                book.id = index;
-                book.setName("book_" + index);
-                book.desc = new Desc("content" + index, "email" + index);
-                book.author = new Author(10000 + index, "author_" + index);
-                List<Tag> tags = new ArrayList<Tag>();
-                for (int i = 0; i < 2; i++) {
-                    Tag tag = new Tag(10000000 + index * 1000 + i, "tag_" + index + "_" + i);
-                    tags.add(tag);
-                }
-                book.tags = tags;
-                Log.d("wanpg", "开始插入一条数据");
-                long start = System.currentTimeMillis();
-                CoreData.defaultInstance().dao(Book.class).replace(book);
+            public void onSuccess(Boolean result) {
                 Log.d("wanpg", "1条用时" + (System.currentTimeMillis() - start));
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        Toast.makeText(MainActivity.this, "插入数据库第" + index + "本书", Toast.LENGTH_SHORT).show();
-                    }
-                });
+                Toast.makeText(MainActivity.this, "插入数据库第" + bookIndex + "本书", Toast.LENGTH_SHORT).show();
             }
-        }.start();
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                Log.e("wanpg", "插入失败", throwable);
+            }
+        });
     }
 
     public void addBookListClick(View view) {
@@ -105,32 +112,166 @@ public class MainActivity extends AppCompatActivity {
     private int queryIndex = 0;
 
     public void queryBookAndDisplayClick(View view) {
-        ContentValues result = CoreData.defaultInstance().dao(Book.class)
+        CoreData.defaultInstance().dao(Book.class)
                 .func()
                 .count()
-                .result();
+                .resultAsync(new Callback<ContentValues>() {
+                    @Override
+                    public void onSuccess(ContentValues result) {
+                        Log.d("wanpg", "所有书的总数" + result.getAsInteger(CoreDao.RESULT_COUNT));
+                    }
 
-        Log.d("wanpg", "所有书的总数" + result.getAsInteger(CoreDao.RESULT_COUNT));
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        Log.e("wanpg", "查询总数失败", throwable);
+                    }
+                });
 
         queryIndex++;
         Log.d("wanpg", "开始读取一本书");
-        long start1 = System.currentTimeMillis();
-        Book book = CoreData.defaultInstance().dao(Book.class).queryByKey(queryIndex);
-        Log.d("wanpg", "读取一本书" + (System.currentTimeMillis() - start1));
-
-        Log.d("wanpg", "开始显示书名和作者名称");
-        long start2 = System.currentTimeMillis();
-        Author author = book.getAuthor();
-        Log.d("wanpg", "作者取出完毕耗时" + (System.currentTimeMillis() - start2));
-        if (author != null) {
-            TextView textView = (TextView) findViewById(R.id.book_display);
-            textView.setText("书名：" + book.getName() + "    作者：" + author.getName());
+        final long start1 = System.currentTimeMillis();
+        CoreData.defaultInstance().dao(Book.class).async().queryByKey(queryIndex, new Callback<Book>() {
+            @Override
+            public void onSuccess(Book book) {
+                Log.d("wanpg", "读取一本书" + (System.currentTimeMillis() - start1));
+                if (book == null) {
+                    return;
+                }
+                Author author = book.getAuthor();
+                if (author != null) {
+                    TextView textView = (TextView) findViewById(R.id.book_display);
+                    textView.setText("书名：" + book.getName() + "    作者：" + author.getName());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                Log.e("wanpg", "读取失败", throwable);
+            }
+        });
+    }
+
+    /**
+     * 并发读写测试：一个线程写入10000本书，同时多个线程读取不相关的Time表，统计写入期间的读取吞吐
+     */
+    public void contentionBenchmarkClick(View view) {
+        new Thread() {
+            @Override
+            public void run() {
+                final int readerCount = 4;
+                final List<Book> books = new ArrayList<Book>();
+                for (int index = 0; index < 10000; index++) {
+                    Book book = new Book();
+                    book.id = index;
+                    book.setName("book_" + index);
+                    book.desc = new Desc("content" + index, "email" + index);
+                    books.add(book);
+                }
+                final AtomicBoolean writing = new AtomicBoolean(true);
+                final AtomicInteger readTimes = new AtomicInteger();
+                final CountDownLatch readerLatch = new CountDownLatch(readerCount);
+                for (int i = 0; i < readerCount; i++) {
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            CoreDao<Time> timeCoreDao = CoreData.defaultInstance().dao(Time.class);
+                            int key = 0;
+                            while (writing.get()) {
+                                timeCoreDao.queryByKey(key++ % 100);
+                                readTimes.incrementAndGet();
+                            }
+                            readerLatch.countDown();
+                        }
+                    }.start();
+                }
+                Log.d("wanpg", "开始并发读写测试");
+                long start = System.currentTimeMillis();
+                CoreData.defaultInstance().dao(Book.class).replace(books);
+                long writeTime = System.currentTimeMillis() - start;
+                writing.set(false);
+                try {
+                    readerLatch.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                Log.d("wanpg", "写入10000本书用时" + writeTime
+                        + "，期间读取Time" + readTimes.get() + "次，"
+                        + "吞吐" + (readTimes.get() * 1000L / Math.max(writeTime, 1)) + "次/秒");
+            }
+        }.start();
+    }
+
+    /**
+     * WAL读写测试：分别在普通模式和WAL模式的实例上，一个线程写入10000本书，
+     * 同时多个线程读取书籍，对比写入期间的读取吞吐
+     */
+    public void walBenchmarkClick(View view) {
+        new Thread() {
+            @Override
+            public void run() {
+                readWriteBenchmark(benchmarkInstance("benchmark_normal", false));
+                readWriteBenchmark(benchmarkInstance("benchmark_wal", true));
+            }
+        }.start();
+    }
+
+    private CoreData benchmarkInstance(String tag, boolean writeAheadLogging) {
+        synchronized (MainActivity.class) {
+            try {
+                return CoreData.instance(tag);
+            } catch (IllegalStateException e) {
+                CoreData.init(getApplication(), CoreData.Builder.builder()
+                        .name(getExternalCacheDir() + File.separator + tag + ".db")
+                        .register(Book.class, Author.class, Chapter.class)
+                        .version(1)
+                        .tag(tag)
+                        .writeAheadLogging(writeAheadLogging));
+                return CoreData.instance(tag);
+            }
         }
+    }
 
-        Log.d("wanpg", "再尝试取一次吧");
-        long start3 = System.currentTimeMillis();
-        Author author1 = book.getAuthor();
-        Log.d("wanpg", "再尝试取一次吧耗时" + (System.currentTimeMillis() - start3));
+    private void readWriteBenchmark(final CoreData coreData) {
+        final int readerCount = 4;
+        final List<Book> books = new ArrayList<Book>();
+        for (int index = 0; index < 10000; index++) {
+            Book book = new Book();
+            book.id = index;
+            book.setName("book_" + index);
+            book.desc = new Desc("content" + index, "email" + index);
+            book.author = new Author(10000 + index, "author_" + index);
+            books.add(book);
+        }
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicInteger readTimes = new AtomicInteger();
+        final CountDownLatch readerLatch = new CountDownLatch(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    CoreDao<Book> bookCoreDao = coreData.dao(Book.class);
+                    int key = 0;
+                    while (writing.get()) {
+                        bookCoreDao.queryByKey(key++ % 10000);
+                        readTimes.incrementAndGet();
+                    }
+                    readerLatch.countDown();
+                }
+            }.start();
+        }
+        long start = System.currentTimeMillis();
+        coreData.dao(Book.class).replace(books);
+        long writeTime = System.currentTimeMillis() - start;
+        writing.set(false);
+        try {
+            readerLatch.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        Log.d("wanpg", "WAL:" + coreData.getCoreDataBase().isWriteAheadLogging()
+                + "，写入10000本书用时" + writeTime
+                + "，期间读取书籍" + readTimes.get() + "次，"
+                + "吞吐" + (readTimes.get() * 1000L / Math.max(writeTime, 1)) + "次/秒");
     }
 
     public void deleteAllClick(View view) {
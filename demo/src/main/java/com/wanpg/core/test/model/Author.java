@@ -2,8 +2,11 @@ package com.wanpg.core.test.model;
 
 import com.coredata.annotation.Entity;
 import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
 import com.coredata.core.PropertyConverter;
 
+import java.util.List;
+
 /**
  * Created by wangjinpeng on 2017/3/21.
  */
@@ -17,6 +20,12 @@ public class Author {
 
     boolean isDirector;
 
+    /**
+     * 与Book.author构成环形关联，同一次查询中每一行只加载一次
+     */
+    @Relation(mappedBy = "author_id")
+    private List<Book> books;
+
     public Author() {
     }
 
@@ -61,4 +70,12 @@ public class Author {
     public void setDirector(boolean director) {
         isDirector = director;
     }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<Book> books) {
+        this.books = books;
+    }
 }
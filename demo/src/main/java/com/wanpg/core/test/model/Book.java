@@ -4,10 +4,11 @@ import com.coredata.annotation.ColumnInfo;
 import com.coredata.annotation.Convert;
 import com.coredata.annotation.Embedded;
 import com.coredata.annotation.Entity;
+import com.coredata.annotation.Index;
 import com.coredata.annotation.PrimaryKey;
 import com.coredata.annotation.Relation;
+import com.coredata.core.converter.BinaryListConverter;
 import com.coredata.core.converter.SerializableConverter;
-import com.coredata.core.converter.SerializableListConverter;
 import com.coredata.core.converter.StringArrayConverter;
 import com.coredata.core.converter.StringListConverter;
 
@@ -16,7 +17,7 @@ import java.util.List;
 /**
  * Created by wangjinpeng on 2017/6/1.
  */
-@Entity
+@Entity(trackChanges = true, indices = @Index(value = {"name", "author_id"}))
 public class Book {
 
     @PrimaryKey
@@ -24,13 +25,14 @@ public class Book {
 
     private String name;
 
-    @Convert(converter = SerializableListConverter.class, dbType = String.class)
+    @Convert(converter = BinaryListConverter.class, dbType = byte[].class)
     public List<Tag> tags;
 
     @Convert(converter = StringArrayConverter.class, dbType = String.class)
     public String[] permissions;
 
     @Relation
+    @Index
     @ColumnInfo(name = "author_id")
     public Author author;
 
@@ -46,6 +48,12 @@ public class Book {
     @Convert(converter = StringListConverter.class, dbType = String.class)
     public List<String> testList;
 
+    /**
+     * 一对多关联，Chapter表中的book_id列保存Book的主键
+     */
+    @Relation(mappedBy = "book_id")
+    public List<Chapter> chapters;
+
     String tag1;
     String tag2;
     String tag3;
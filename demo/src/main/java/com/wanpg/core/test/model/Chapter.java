@@ -0,0 +1,31 @@
+package com.wanpg.core.test.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.Index;
+import com.coredata.annotation.PrimaryKey;
+
+/**
+ * 书的章节，通过book_id关联到{@link Book#chapters}
+ */
+@Entity
+public class Chapter {
+
+    @PrimaryKey
+    public long id;
+
+    @Index
+    @ColumnInfo(name = "book_id")
+    public long bookId;
+
+    public String title;
+
+    public Chapter() {
+    }
+
+    public Chapter(long id, long bookId, String title) {
+        this.id = id;
+        this.bookId = bookId;
+        this.title = title;
+    }
+}
@@ -3,6 +3,8 @@ package com.wanpg.core.test.model;
 import com.coredata.annotation.ColumnInfo;
 import com.coredata.annotation.Entity;
 import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+import com.coredata.core.Lazy;
 
 /**
  * Created by wangjinpeng on 2017/6/27.
@@ -13,6 +15,9 @@ public class Magazine extends Book {
     @ColumnInfo(name = "magazine_id")
     private long magazineId;
 
+    @Relation(fetch = Relation.FetchType.LAZY)
+    @ColumnInfo(name = "editor_id")
+    private Lazy<Author> editor;
 
     public long getMagazineId() {
         return magazineId;
@@ -21,4 +26,12 @@ public class Magazine extends Book {
     public void setMagazineId(long magazineId) {
         this.magazineId = magazineId;
     }
+
+    public Lazy<Author> getEditor() {
+        return editor;
+    }
+
+    public void setEditor(Lazy<Author> editor) {
+        this.editor = editor;
+    }
 }
@@ -0,0 +1,22 @@
+package com.wanpg.core.test.model;
+
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+
+import java.util.List;
+
+/**
+ * 书架，与Book多对多关联，关联关系保存在中间表shelf_book中
+ */
+@Entity
+public class Shelf {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    @Relation(joinTable = "shelf_book", joinColumn = "shelf_id", inverseJoinColumn = "book_id")
+    public List<Book> books;
+}
@@ -0,0 +1,169 @@
+package com.coredata.jdbc;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于JDBC查询结果的Cursor，查询时一次性读取所有行
+ * <p>
+ * 取值时按照SQLite的规则进行类型转换，与Android的SQLiteCursor行为保持一致，
+ * 生成的bindCursor不需要区分运行环境
+ */
+public final class JdbcCursor extends AbstractCursor {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String[] columnNames;
+
+    private final List<Object[]> rows;
+
+    private JdbcCursor(String[] columnNames, List<Object[]> rows) {
+        this.columnNames = columnNames;
+        this.rows = rows;
+    }
+
+    /**
+     * 读取查询结果中的所有行
+     *
+     * @param resultSet 查询结果，读取后不会关闭
+     * @return Cursor
+     * @throws SQLException 读取失败
+     */
+    static JdbcCursor read(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnLabel(i + 1);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        while (resultSet.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            rows.add(row);
+        }
+        return new JdbcCursor(columnNames, rows);
+    }
+
+    private Object get(int column) {
+        if (column < 0 || column >= columnNames.length) {
+            throw new IllegalArgumentException("requested column: " + column + ", # of columns: " + columnNames.length);
+        }
+        int position = getPosition();
+        if (position < 0 || position >= rows.size()) {
+            throw new IllegalStateException("cursor position " + position + " out of bounds, count " + rows.size());
+        }
+        return rows.get(position)[column];
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public String getString(int column) {
+        Object value = get(column);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, UTF_8);
+        }
+        return value.toString();
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        Object value = get(column);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return (long) parseDouble((String) value);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        Object value = get(column);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            return parseDouble((String) value);
+        }
+        return 0;
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        Object value = get(column);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return value.toString().getBytes(UTF_8);
+    }
+
+    @Override
+    public int getType(int column) {
+        Object value = get(column);
+        if (value == null) {
+            return Cursor.FIELD_TYPE_NULL;
+        } else if (value instanceof byte[]) {
+            return Cursor.FIELD_TYPE_BLOB;
+        } else if (value instanceof Float || value instanceof Double) {
+            return Cursor.FIELD_TYPE_FLOAT;
+        } else if (value instanceof Number) {
+            return Cursor.FIELD_TYPE_INTEGER;
+        }
+        return Cursor.FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return get(column) == null;
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.coredata.jdbc;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.core.db.CoreStatement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于JDBC连接的CoreDatabase
+ * <p>
+ * 事务按照Android的语义实现：支持嵌套，任意一层没有调用{@link #setTransactionSuccessful()}
+ * 整个事务都会回滚；与SQLiteDatabase相同，事务进行中其他线程的操作会等待事务结束。
+ * 查询结果会被完整读取到{@link JdbcCursor}中
+ */
+public class JdbcDatabase extends CoreDatabase {
+
+    private final Connection connection;
+
+    /**
+     * 连接的独占锁，事务从开始到结束一直持有
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int transactionDepth;
+
+    private boolean markedSuccessful;
+
+    private boolean transactionFailed;
+
+    public JdbcDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 关闭连接及其缓存的预编译语句
+     */
+    public void close() {
+        clearStatementCache();
+        closeQuietly(connection);
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public void beginTransaction() {
+        lock.lock();
+        try {
+            if (transactionDepth == 0) {
+                connection.setAutoCommit(false);
+                transactionFailed = false;
+            }
+        } catch (java.sql.SQLException e) {
+            lock.unlock();
+            throw new SQLException(e.getMessage(), e);
+        }
+        transactionDepth++;
+        markedSuccessful = false;
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        markedSuccessful = true;
+    }
+
+    @Override
+    public void endTransaction() {
+        if (!lock.isHeldByCurrentThread() || transactionDepth == 0) {
+            throw new IllegalStateException("no transaction pending");
+        }
+        try {
+            if (!markedSuccessful) {
+                transactionFailed = true;
+            }
+            markedSuccessful = false;
+            transactionDepth--;
+            if (transactionDepth > 0) {
+                return;
+            }
+            if (transactionFailed) {
+                connection.rollback();
+            } else {
+                connection.commit();
+            }
+            connection.setAutoCommit(true);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * sqlite-jdbc关闭自动提交时以DEFERRED方式开始事务，第一次查询时才取得读快照，不加写锁
+     */
+    @Override
+    public void beginReadTransaction() {
+        beginTransaction();
+    }
+
+    @Override
+    public void endReadTransaction() {
+        setTransactionSuccessful();
+        endTransaction();
+    }
+
+    @Override
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        lock.lock();
+        try {
+            statement = connection.prepareStatement(sql);
+            if (selectionArgs != null) {
+                for (int i = 0; i < selectionArgs.length; i++) {
+                    statement.setString(i + 1, selectionArgs[i]);
+                }
+            }
+            resultSet = statement.executeQuery();
+            return JdbcCursor.read(resultSet);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CoreStatement compileStatement(String sql) {
+        try {
+            return new JdbcStatement(this, connection.prepareStatement(sql));
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void execSQL(String sql) {
+        Statement statement = null;
+        lock.lock();
+        try {
+            statement = connection.createStatement();
+            statement.execute(sql);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            closeQuietly(statement);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long replace(String table, String nullColumnHack, ContentValues initialValues) {
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO `").append(table).append("`(");
+        StringBuilder values = new StringBuilder();
+        Object[] bindArgs = new Object[initialValues.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : initialValues.valueSet()) {
+            if (i > 0) {
+                sql.append(',');
+                values.append(',');
+            }
+            sql.append('`').append(entry.getKey()).append('`');
+            values.append('?');
+            bindArgs[i++] = entry.getValue();
+        }
+        sql.append(") VALUES (").append(values).append(')');
+        CoreStatement statement = compileStatement(sql.toString());
+        try {
+            statement.bindAllArgs(bindArgs);
+            return statement.executeInsert();
+        } finally {
+            statement.close();
+        }
+    }
+
+    static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.coredata.jdbc;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+import com.coredata.core.CoreData;
+import com.coredata.core.CoreDatabaseManager;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.core.db.OpenHelperInterface;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Properties;
+
+/**
+ * 基于sqlite-jdbc的OpenHelper，用于在JVM上使用CoreData
+ * <p>
+ * 与SQLiteOpenHelper一致，使用PRAGMA user_version记录数据库版本，
+ * 第一次打开时根据版本回调{@link CoreDatabaseManager}的创建、升级或降级；
+ * 写操作共用一个连接，开启WAL模式后读操作使用{@link com.coredata.core.db.ReaderConnectionPool}
+ * 中的只读连接，可以与写事务并发执行
+ */
+public class JdbcOpenHelper implements OpenHelperInterface {
+
+    /**
+     * sqlite-jdbc打开连接时的flag参数，对应SQLITE_OPEN_READONLY
+     */
+    private static final String OPEN_MODE = "open_mode";
+    private static final String OPEN_MODE_READ_ONLY = "1";
+
+    private final String path;
+
+    private final int version;
+
+    private final String instanceTag;
+
+    private boolean writeAheadLogging;
+
+    private JdbcDatabase coreDatabase;
+
+    public JdbcOpenHelper(String path, int version, String tag) {
+        this.path = path;
+        this.version = version;
+        this.instanceTag = tag;
+    }
+
+    @Override
+    public synchronized CoreDatabase getWritableCoreDatabase() {
+        if (coreDatabase == null) {
+            JdbcDatabase db = new JdbcDatabase(openConnection(new Properties()));
+            if (writeAheadLogging) {
+                db.execSQL("PRAGMA journal_mode=WAL");
+            }
+            onOpen(db);
+            coreDatabase = db;
+        }
+        return coreDatabase;
+    }
+
+    @Override
+    public CoreDatabase getReadableCoreDatabase() {
+        return getWritableCoreDatabase();
+    }
+
+    @Override
+    public void setWriteAheadLogging(boolean enabled) {
+        this.writeAheadLogging = enabled;
+    }
+
+    @Override
+    public CoreDatabase openReadOnlyCoreDatabase() {
+        Properties properties = new Properties();
+        properties.setProperty(OPEN_MODE, OPEN_MODE_READ_ONLY);
+        return new JdbcDatabase(openConnection(properties));
+    }
+
+    /**
+     * 关闭写连接，只读连接由连接池持有，不在此关闭
+     */
+    public synchronized void close() {
+        if (coreDatabase != null) {
+            coreDatabase.close();
+            coreDatabase = null;
+        }
+    }
+
+    private Connection openConnection(Properties properties) {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            return DriverManager.getConnection("jdbc:sqlite:" + path, properties);
+        } catch (Exception e) {
+            throw new SQLException("can not open database " + path, e);
+        }
+    }
+
+    private void onOpen(JdbcDatabase db) {
+        int oldVersion = getUserVersion(db);
+        if (oldVersion == version) {
+            return;
+        }
+        CoreDatabaseManager cdbManager = CoreData.instance(instanceTag).getCoreDataBase();
+        db.beginTransaction();
+        try {
+            if (oldVersion == 0) {
+                cdbManager.onCreate(db);
+            } else if (oldVersion < version) {
+                cdbManager.onUpgrade(db, oldVersion, version);
+            } else {
+                cdbManager.onDowngrade(db, oldVersion, version);
+            }
+            db.execSQL("PRAGMA user_version = " + version);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static int getUserVersion(JdbcDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA user_version", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
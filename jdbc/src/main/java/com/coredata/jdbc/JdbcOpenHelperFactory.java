@@ -0,0 +1,18 @@
+package com.coredata.jdbc;
+
+import android.content.Context;
+
+import com.coredata.core.db.OpenHelperFactory;
+import com.coredata.core.db.OpenHelperInterface;
+
+/**
+ * 在JVM上使用CoreData时，通过{@code CoreData.Builder.openHelperFactory(new JdbcOpenHelperFactory())}
+ * 将数据库替换为sqlite-jdbc，此时{@code CoreData.Builder.name}是数据库文件的路径
+ */
+public class JdbcOpenHelperFactory implements OpenHelperFactory {
+
+    @Override
+    public OpenHelperInterface create(Context context, String name, int version, String tag) {
+        return new JdbcOpenHelper(name, version, tag);
+    }
+}
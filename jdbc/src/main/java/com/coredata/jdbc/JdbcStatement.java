@@ -0,0 +1,163 @@
+package com.coredata.jdbc;
+
+import android.database.SQLException;
+
+import com.coredata.core.db.CoreStatement;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * 基于PreparedStatement的CoreStatement
+ * <p>
+ * 支持批量插入，{@link #addBatch()}只缓存参数，累计到{@link #MAX_BATCH_SIZE}条
+ * 或调用{@link #executeBatch()}时一次提交
+ */
+public class JdbcStatement extends CoreStatement {
+
+    /**
+     * 一次批处理最多缓存的语句数量
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final JdbcDatabase database;
+
+    private final PreparedStatement statement;
+
+    private int batchSize;
+
+    JdbcStatement(JdbcDatabase database, PreparedStatement statement) {
+        this.database = database;
+        this.statement = statement;
+    }
+
+    @Override
+    public int executeUpdateDelete() {
+        database.lock();
+        try {
+            return statement.executeUpdate();
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            database.unlock();
+        }
+    }
+
+    @Override
+    public long executeInsert() {
+        database.lock();
+        try {
+            if (statement.executeUpdate() <= 0) {
+                return -1;
+            }
+            Statement rowIdStatement = database.getConnection().createStatement();
+            ResultSet resultSet = null;
+            try {
+                resultSet = rowIdStatement.executeQuery("SELECT last_insert_rowid()");
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            } finally {
+                JdbcDatabase.closeQuietly(resultSet);
+                JdbcDatabase.closeQuietly(rowIdStatement);
+            }
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            database.unlock();
+        }
+    }
+
+    @Override
+    public void bindNull(int index) {
+        try {
+            statement.setNull(index, Types.NULL);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindLong(int index, long value) {
+        try {
+            statement.setLong(index, value);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindDouble(int index, double value) {
+        try {
+            statement.setDouble(index, value);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindString(int index, String value) {
+        try {
+            statement.setString(index, value);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void bindBlob(int index, byte[] value) {
+        try {
+            statement.setBytes(index, value);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void addBatch() {
+        try {
+            statement.addBatch();
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        batchSize++;
+        if (batchSize >= MAX_BATCH_SIZE) {
+            executeBatch();
+        }
+    }
+
+    @Override
+    public void executeBatch() {
+        if (batchSize == 0) {
+            return;
+        }
+        batchSize = 0;
+        database.lock();
+        try {
+            statement.executeBatch();
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        } finally {
+            database.unlock();
+        }
+    }
+
+    @Override
+    public void clearBindings() {
+        try {
+            if (batchSize > 0) {
+                // 没有提交的批处理直接丢弃，通常是批量插入过程中出现了异常
+                statement.clearBatch();
+                batchSize = 0;
+            }
+            statement.clearParameters();
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        JdbcDatabase.closeQuietly(statement);
+    }
+}
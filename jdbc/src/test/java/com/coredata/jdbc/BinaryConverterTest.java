@@ -0,0 +1,76 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.utils.ConvertUtils;
+import com.coredata.jdbc.model.Note;
+import com.coredata.jdbc.model.NoteBinaryCodec;
+import com.coredata.jdbc.model.Notebook;
+import com.coredata.jdbc.model.OldNote;
+import com.coredata.jdbc.model.OldNoteBinaryCodec;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * 二进制转换器的读写及类结构变化后的兼容
+ */
+public class BinaryConverterTest {
+
+    @Test
+    public void roundTrip() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Notebook.class));
+        CoreDao<Notebook> notebookDao = coreData.dao(Notebook.class);
+        Note note = new Note();
+        note.id = 1;
+        note.text = "text_1";
+        note.priority = 5;
+        Notebook notebook = new Notebook();
+        notebook.id = 1;
+        notebook.notes = Arrays.asList(note, null);
+        notebookDao.replace(notebook);
+
+        Notebook result = notebookDao.queryByKey(1L);
+        assertEquals(2, result.notes.size());
+        assertEquals("text_1", result.notes.get(0).text);
+        assertEquals(5, result.notes.get(0).priority);
+        assertNull(result.notes.get(1));
+        assertNull(result.oldNote);
+    }
+
+    @Test
+    public void readDataOfOldStructure() {
+        OldNote oldNote = new OldNote();
+        oldNote.id = 7;
+        oldNote.color = "red";
+        byte[] data = ConvertUtils.listToBytes(OldNoteBinaryCodec.INSTANCE, Collections.singletonList(oldNote));
+
+        // 同名同类型的字段读出，删除的字段被跳过，新增的字段保持默认值
+        List<Note> notes = ConvertUtils.listFromBytes(data, NoteBinaryCodec.INSTANCE);
+        assertEquals(1, notes.size());
+        assertEquals(7, notes.get(0).id);
+        assertNull(notes.get(0).text);
+        assertEquals(3, notes.get(0).priority);
+    }
+
+    @Test
+    public void corruptedDataThrows() {
+        Note note = new Note();
+        note.text = "text";
+        byte[] data = ConvertUtils.toBytes(NoteBinaryCodec.INSTANCE, note);
+        try {
+            ConvertUtils.fromBytes(Arrays.copyOf(data, data.length - 2), NoteBinaryCodec.INSTANCE);
+            fail("corrupted data should not be read as null");
+        } catch (IllegalStateException expected) {
+            // 数据损坏时抛出异常，不会以null覆盖原有数据
+        }
+    }
+}
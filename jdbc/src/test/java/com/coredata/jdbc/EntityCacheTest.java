@@ -0,0 +1,58 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Book;
+import com.coredata.jdbc.model.Review;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 对象缓存与关联层数限制
+ */
+public class EntityCacheTest {
+
+    private CoreDao<Review> reviewDao;
+
+    private CoreDao<Book> bookDao;
+
+    @Before
+    public void setUp() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Review.class, Book.class, Author.class)
+                .entityCache(Book.class, 100));
+        reviewDao = coreData.dao(Review.class);
+        bookDao = coreData.dao(Book.class);
+        reviewDao.replace(new Review(1, "review_1", new Book(1, "book_1", new Author(1, "author_1"))));
+    }
+
+    @Test
+    public void depthLimitedLoadIsNotCached() {
+        List<Review> reviews = reviewDao.query().depth(1).result();
+        assertEquals(1, reviews.size());
+        Book limitedBook = reviews.get(0).book;
+        assertNotNull(limitedBook);
+        // 第二层的关联没有加载
+        assertNull(limitedBook.author);
+
+        Book book = bookDao.queryByKey(1L);
+        assertNotNull(book.author);
+        assertEquals("author_1", book.author.name);
+    }
+
+    @Test
+    public void fullLoadIsCached() {
+        Book book = reviewDao.queryByKey(1L).book;
+        assertNotNull(book.author);
+        assertSame(book, bookDao.queryByKey(1L));
+    }
+}
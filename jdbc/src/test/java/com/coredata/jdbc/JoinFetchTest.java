@@ -0,0 +1,78 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.Pager;
+import com.coredata.core.db.Order;
+import com.coredata.jdbc.model.Article;
+import com.coredata.jdbc.model.Author;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * JOIN加载的关联对象随当前查询一起读出
+ */
+public class JoinFetchTest {
+
+    private CoreDao<Article> articleDao;
+
+    @Before
+    public void setUp() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Article.class, Author.class));
+        articleDao = coreData.dao(Article.class);
+        Author author = new Author(1, "author_1");
+        articleDao.replace(Arrays.asList(
+                new Article(1, "article_c", author),
+                new Article(2, "article_b", author),
+                new Article(3, "article_a", null)));
+    }
+
+    @Test
+    public void conditionOnColumnSharedWithRelation() {
+        // id、name在关联表中也存在，条件和排序中的列名不能有歧义
+        List<Article> articles = articleDao.query()
+                .where("name").like("article_%").and("id").lt(3)
+                .orderBy("name", Order.ASC)
+                .result();
+        assertEquals(2, articles.size());
+        assertEquals(2, articles.get(0).id);
+        assertEquals("author_1", articles.get(0).author.name);
+        assertEquals(1, articles.get(1).id);
+
+        Article article = articleDao.queryByKey(3L);
+        assertEquals("article_a", article.name);
+        assertNull(article.author);
+    }
+
+    @Test
+    public void sharedRelationIsOneInstance() {
+        List<Article> articles = articleDao.query()
+                .where("author_id").eq(1)
+                .result();
+        assertEquals(2, articles.size());
+        // 多行JOIN出同一个作者时只实例化一次
+        assertSame(articles.get(0).author, articles.get(1).author);
+    }
+
+    @Test
+    public void pagerWithJoin() {
+        Pager<Article> pager = articleDao.pager("name", Order.ASC, 2);
+        List<Article> first = pager.next();
+        assertEquals(2, first.size());
+        assertEquals(3, first.get(0).id);
+        assertEquals(2, first.get(1).id);
+        assertEquals("author_1", first.get(1).author.name);
+        List<Article> second = pager.next();
+        assertEquals(1, second.size());
+        assertEquals(1, second.get(0).id);
+    }
+}
@@ -0,0 +1,107 @@
+package com.coredata.jdbc;
+
+import android.database.Cursor;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.core.db.TableObserver;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Book;
+import com.coredata.jdbc.model.Shelf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 通过中间表保存的多对多关联
+ */
+public class JoinTableTest {
+
+    private static CoreData createShelves() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Shelf.class, Book.class, Author.class));
+        Author author = new Author(1, "author_1");
+        coreData.dao(Shelf.class).replace(new Shelf(1, "shelf_1", Arrays.asList(
+                new Book(1, "book_1", author), new Book(2, "book_2", author))));
+        return coreData;
+    }
+
+    private static int countJoinRows(CoreData coreData, long shelfId) {
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        Cursor cursor = cdb.rawQuery("SELECT COUNT(*) FROM shelf_book WHERE shelf_id = ?",
+                new String[]{String.valueOf(shelfId)});
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void failedGroupQueryLoadsNoEmptyList() {
+        CoreData coreData = createShelves();
+        CoreDao<Shelf> shelfDao = coreData.dao(Shelf.class);
+
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        // 关联表不存在时分组查询失败
+        cdb.execSQL("ALTER TABLE book RENAME TO book_missing");
+        List<Shelf> shelves = shelfDao.queryAll();
+        // 查询失败不能当作书架上没有书，否则再次保存会删除中间表中的关联
+        assertTrue(shelves.isEmpty());
+        assertEquals(2, countJoinRows(coreData, 1));
+
+        cdb.execSQL("ALTER TABLE book_missing RENAME TO book");
+        Shelf shelf = shelfDao.queryByKey(1L);
+        assertEquals(2, shelf.books.size());
+    }
+
+    @Test
+    public void deleteRemovesJoinRows() {
+        CoreData coreData = createShelves();
+        CoreDao<Shelf> shelfDao = coreData.dao(Shelf.class);
+        shelfDao.replace(new Shelf(2, "shelf_2", Arrays.asList(coreData.dao(Book.class).queryByKey(1L))));
+        final List<Set<String>> changes = new ArrayList<>();
+        coreData.getCoreDataBase().getInvalidationTracker().addObserver(new String[]{"shelf_book"},
+                new TableObserver() {
+                    @Override
+                    public void onTablesChanged(Set<String> tables) {
+                        changes.add(tables);
+                    }
+                });
+
+        assertTrue(shelfDao.deleteByKey(1L));
+        assertEquals(0, countJoinRows(coreData, 1));
+        // 中间表的监听者同样收到通知
+        assertEquals(1, changes.size());
+        assertEquals(1, countJoinRows(coreData, 2));
+        // 书本身不受影响
+        assertEquals(2, coreData.dao(Book.class).queryAll().size());
+
+        // 按条件删除时同样删除关联
+        assertTrue(shelfDao.delete().where("name").eq("shelf_2").execute());
+        assertEquals(0, countJoinRows(coreData, 2));
+    }
+
+    @Test
+    public void deleteManyKeysRemovesJoinRows() {
+        // 分批删除和临时表关联删除两种情况
+        for (int count : new int[]{1000, 6000}) {
+            CoreData coreData = createShelves();
+            Object[] keys = new Object[count];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (long) i + 1;
+            }
+            assertTrue(coreData.dao(Shelf.class).deleteByKeys(keys));
+            assertEquals(0, countJoinRows(coreData, 1));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Magazine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 延迟加载的关联对象
+ */
+public class LazyTest {
+
+    @Test
+    public void failedLoadIsRetried() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Magazine.class, Author.class));
+        CoreDao<Magazine> magazineDao = coreData.dao(Magazine.class);
+        magazineDao.replace(new Magazine(1, "magazine_1", new Author(1, "editor_1")));
+        Magazine magazine = magazineDao.queryByKey(1L);
+        assertFalse(magazine.editor.isLoaded());
+
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        // 表不存在时查询失败
+        cdb.execSQL("ALTER TABLE author RENAME TO author_missing");
+        try {
+            magazine.editor.get();
+            fail();
+        } catch (RuntimeException expected) {
+            // 查询失败不能当作关联对象不存在
+        }
+        assertFalse(magazine.editor.isLoaded());
+
+        cdb.execSQL("ALTER TABLE author_missing RENAME TO author");
+        assertEquals("editor_1", magazine.editor.get().name);
+        assertTrue(magazine.editor.isLoaded());
+    }
+}
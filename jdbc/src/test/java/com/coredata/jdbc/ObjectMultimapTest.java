@@ -0,0 +1,30 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.ObjectMultimap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 以对象为key的一对多映射
+ */
+public class ObjectMultimapTest {
+
+    @Test
+    public void integralKeysOfDifferentTypesMatch() {
+        ObjectMultimap<String> multimap = new ObjectMultimap<>();
+        multimap.put(1, "a");
+        multimap.put(1L, "b");
+        multimap.put("1", "c");
+        // int和long的key归为同一个，与String的key不同
+        assertEquals(2, multimap.keyCount());
+
+        int index = multimap.first((short) 1);
+        assertEquals("a", multimap.valueAt(index));
+        index = multimap.next(index);
+        assertEquals("b", multimap.valueAt(index));
+        assertEquals(-1, multimap.next(index));
+        assertEquals("c", multimap.valueAt(multimap.first("1")));
+    }
+}
@@ -0,0 +1,94 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.ObservableQuery;
+import com.coredata.core.ResultDiff;
+import com.coredata.core.async.Callback;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Book;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 可观察查询在写操作后的差异计算
+ */
+public class ObservableQueryTest {
+
+    private CoreDao<Book> bookDao;
+
+    private CoreDao<Author> authorDao;
+
+    private ObservableQuery<Book> query;
+
+    private final BlockingQueue<ResultDiff<Book>> diffs = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Book.class, Author.class));
+        bookDao = coreData.dao(Book.class);
+        authorDao = coreData.dao(Author.class);
+        Author author = new Author(1, "author_1");
+        bookDao.replace(Arrays.asList(
+                new Book(1, "book_1", author),
+                new Book(2, "book_2", author),
+                new Book(3, "book_3", author)));
+        query = bookDao.query().observeDiff(0, new Callback<ResultDiff<Book>>() {
+            @Override
+            public void onSuccess(ResultDiff<Book> result) {
+                diffs.add(result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+        });
+        assertEquals(3, nextDiff().getInserted().size());
+    }
+
+    @After
+    public void tearDown() {
+        query.cancel();
+    }
+
+    @Test
+    public void keyedDiffWhenOnlyEntityTableWritten() throws Exception {
+        // 没有关联对象，只写入了book表
+        bookDao.replace(new Book(2, "book_2_new", null));
+        ResultDiff<Book> diff = nextDiff();
+        assertTrue(diff.getInserted().isEmpty());
+        assertTrue(diff.getRemovedKeys().isEmpty());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals(2, diff.getChanged().get(0).id);
+        assertEquals("book_2_new", diff.getChanged().get(0).name);
+        assertEquals(3, diff.getResult().size());
+    }
+
+    @Test
+    public void relationWriteRefreshesRows() throws Exception {
+        authorDao.replace(new Author(1, "author_1_new"));
+        ResultDiff<Book> diff = nextDiff();
+        // 关联表变化时无法确定受影响的行，保留的行全部视为变化
+        assertEquals(3, diff.getChanged().size());
+        assertEquals("author_1_new", diff.getChanged().get(0).author.name);
+    }
+
+    private ResultDiff<Book> nextDiff() throws InterruptedException {
+        ResultDiff<Book> diff = diffs.poll(10, TimeUnit.SECONDS);
+        assertNotNull(diff);
+        return diff;
+    }
+}
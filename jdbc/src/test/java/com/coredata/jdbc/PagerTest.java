@@ -0,0 +1,69 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.Pager;
+import com.coredata.core.db.Order;
+import com.coredata.jdbc.model.Event;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 基于游标位置的分页
+ */
+public class PagerTest {
+
+    private CoreDao<Event> eventDao;
+
+    @Before
+    public void setUp() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Event.class));
+        eventDao = coreData.dao(Event.class);
+        eventDao.replace(Arrays.asList(
+                new Event(1, "c"),
+                new Event(2, null),
+                new Event(3, "a"),
+                new Event(4, null),
+                new Event(5, "b"),
+                new Event(6, null),
+                new Event(7, "a")));
+    }
+
+    @Test
+    public void ascendingWithNullSortValues() {
+        // NULL排在最前，第一页最后一条的排序列为NULL
+        assertEquals(Arrays.asList(2L, 4L, 6L, 3L, 7L, 5L, 1L),
+                pageAll(eventDao.pager("name", Order.ASC, 2)));
+    }
+
+    @Test
+    public void descendingWithNullSortValues() {
+        // NULL排在最后，翻到NULL之后仍能继续
+        assertEquals(Arrays.asList(1L, 5L, 7L, 3L, 6L, 4L, 2L),
+                pageAll(eventDao.pager("name", Order.DESC, 2)));
+    }
+
+    @Test
+    public void startAfterNullSortValue() {
+        Pager<Event> pager = eventDao.pager("name", Order.ASC, 2).startAfter(null, 4L);
+        assertEquals(Arrays.asList(6L, 3L, 7L, 5L, 1L), pageAll(pager));
+    }
+
+    private static List<Long> pageAll(Pager<Event> pager) {
+        List<Long> ids = new ArrayList<>();
+        while (pager.hasNext()) {
+            for (Event event : pager.next()) {
+                ids.add(event.id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,108 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.jdbc.model.Event;
+import com.coredata.jdbc.model.ReadHookConverter;
+import com.coredata.jdbc.model.Sample;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 大量主键的查询只在只读连接上分批执行，不需要等待写连接，各批次读取同一个快照
+ */
+public class QueryByKeysTest {
+
+    private static final int EVENT_COUNT = 6000;
+
+    @Test(timeout = 10000)
+    public void queryManyKeysDuringWriteTransaction() throws Exception {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Event.class)
+                .writeAheadLogging(true)
+                .readerPoolSize(1));
+        final CoreDao<Event> eventDao = coreData.dao(Event.class);
+        List<Event> events = new ArrayList<>(EVENT_COUNT);
+        final Object[] keys = new Object[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            events.add(new Event(i, "event_" + i));
+            keys[i] = (long) i;
+        }
+        eventDao.replace(events);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CoreDatabase writer = coreData.getCoreDataBase().getWritableDatabase();
+        writer.beginTransaction();
+        try {
+            writer.execSQL("INSERT INTO event(id, name) VALUES(" + EVENT_COUNT + ", 'pending')");
+            List<Event> result = executor.submit(new Callable<List<Event>>() {
+                @Override
+                public List<Event> call() {
+                    return eventDao.queryByKeys(keys);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            assertEquals(EVENT_COUNT, result.size());
+        } finally {
+            writer.endTransaction();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void batchesReadOneSnapshot() throws Exception {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Sample.class)
+                .writeAheadLogging(true));
+        final CoreDao<Sample> sampleDao = coreData.dao(Sample.class);
+        final List<Sample> samples = new ArrayList<>(EVENT_COUNT);
+        Object[] keys = new Object[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            samples.add(new Sample(i, BigInteger.ONE));
+            keys[i] = (long) i;
+        }
+        sampleDao.replace(samples);
+        for (Sample sample : samples) {
+            sample.value = BigInteger.TEN;
+        }
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        // 第一批读出数据时，在另一个线程中提交修改所有行的写事务
+        ReadHookConverter.setHook(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            sampleDao.replace(samples);
+                        }
+                    }).get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        try {
+            List<Sample> result = sampleDao.queryByKeys(keys);
+            assertEquals(EVENT_COUNT, result.size());
+            for (Sample sample : result) {
+                assertEquals(BigInteger.ONE, sample.value);
+            }
+            assertEquals(BigInteger.TEN, sampleDao.queryByKey(EVENT_COUNT - 1L).value);
+        } finally {
+            ReadHookConverter.setHook(null);
+            executor.shutdownNow();
+        }
+    }
+}
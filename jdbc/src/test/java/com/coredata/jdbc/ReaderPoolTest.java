@@ -0,0 +1,94 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.ResultIterator;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 只读连接池只有一个连接时，关联加载复用当前线程的连接，不会等待连接池
+ */
+public class ReaderPoolTest {
+
+    private static final int BOOK_COUNT = 20;
+
+    private CoreDao<Book> bookDao;
+
+    @Before
+    public void setUp() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Book.class, Author.class)
+                .writeAheadLogging(true)
+                .readerPoolSize(1));
+        bookDao = coreData.dao(Book.class);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            books.add(new Book(i, "book_" + i, new Author(i % 5, "author_" + i % 5)));
+        }
+        bookDao.replace(books);
+    }
+
+    @Test(timeout = 10000)
+    public void queryWithRelations() {
+        List<Book> books = bookDao.queryAll();
+        assertEquals(BOOK_COUNT, books.size());
+        for (Book book : books) {
+            assertNotNull(book.author);
+            assertEquals(book.id % 5, book.author.id);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void iterateWithRelations() {
+        ResultIterator<Book> iterator = bookDao.query().iterate();
+        int count = 0;
+        try {
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                assertNotNull(book.author);
+                count++;
+            }
+        } finally {
+            iterator.close();
+        }
+        assertEquals(BOOK_COUNT, count);
+    }
+
+    @Test(timeout = 10000)
+    public void concurrentQueriesWithRelations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Book>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<List<Book>>() {
+                    @Override
+                    public List<Book> call() {
+                        return bookDao.queryAll();
+                    }
+                }));
+            }
+            for (Future<List<Book>> future : futures) {
+                List<Book> books = future.get(5, TimeUnit.SECONDS);
+                assertEquals(BOOK_COUNT, books.size());
+                assertNotNull(books.get(0).author);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.coredata.jdbc;
+
+import android.database.Cursor;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.jdbc.model.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 开启变化跟踪后save只写入变化的列
+ */
+public class SaveTest {
+
+    private CoreDao<Task> taskDao;
+
+    private CoreDatabase cdb;
+
+    @Before
+    public void setUp() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Task.class));
+        taskDao = coreData.dao(Task.class);
+        cdb = coreData.getCoreDataBase().getWritableDatabase();
+    }
+
+    @Test
+    public void saveUpdatesChangedColumnOnly() {
+        Task task = new Task(1, "title_1", "open");
+        assertTrue(taskDao.save(task));
+        // 绕过CoreData修改另一列，记录的列值不会失效
+        cdb.execSQL("UPDATE task SET title = 'external' WHERE id = 1");
+
+        task.status = "done";
+        assertTrue(taskDao.save(task));
+        // 只更新了变化的列，未变化的列保留数据库中的值
+        assertEquals("external", queryColumn("title", 1));
+        assertEquals("done", queryColumn("status", 1));
+    }
+
+    @Test
+    public void saveInsertsUnloadedEntity() {
+        cdb.execSQL("INSERT INTO task (id, title, status) VALUES (2, 'raw', 'raw')");
+        // 没有查询或写入过的数据整行写入
+        assertTrue(taskDao.save(new Task(2, "title_2", "open")));
+        assertEquals("title_2", queryColumn("title", 2));
+        assertEquals("open", queryColumn("status", 2));
+
+        assertTrue(taskDao.save(new Task(3, "title_3", "open")));
+        assertEquals("title_3", queryColumn("title", 3));
+        assertEquals("open", queryColumn("status", 3));
+    }
+
+    @Test
+    public void saveReinsertsDeletedRow() {
+        Task task = new Task(4, "title_4", "open");
+        assertTrue(taskDao.save(task));
+        // 绕过CoreData删除，记录的列值仍然存在
+        cdb.execSQL("DELETE FROM task WHERE id = 4");
+
+        task.status = "done";
+        assertTrue(taskDao.save(task));
+        // 更新不到数据时整行插入
+        assertEquals("title_4", queryColumn("title", 4));
+        assertEquals("done", queryColumn("status", 4));
+    }
+
+    @Test
+    public void saveWithoutChangesWritesNothing() {
+        Task task = new Task(5, "title_5", "open");
+        assertTrue(taskDao.save(task));
+        cdb.execSQL("CREATE TABLE write_count (n INTEGER)");
+        cdb.execSQL("INSERT INTO write_count VALUES (0)");
+        cdb.execSQL("CREATE TRIGGER task_update AFTER UPDATE ON task BEGIN UPDATE write_count SET n = n + 1; END");
+        cdb.execSQL("CREATE TRIGGER task_insert AFTER INSERT ON task BEGIN UPDATE write_count SET n = n + 1; END");
+
+        assertTrue(taskDao.save(task));
+        assertEquals(0, queryWriteCount());
+
+        task.title = "title_5_new";
+        assertTrue(taskDao.save(task));
+        assertEquals(1, queryWriteCount());
+    }
+
+    private String queryColumn(String column, long id) {
+        Cursor cursor = cdb.rawQuery("SELECT " + column + " FROM task WHERE id = ?",
+                new String[]{String.valueOf(id)});
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int queryWriteCount() {
+        Cursor cursor = cdb.rawQuery("SELECT n FROM write_count", null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
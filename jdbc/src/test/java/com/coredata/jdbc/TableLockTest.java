@@ -0,0 +1,119 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.CoreDatabaseManager;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.core.db.TableLockManager;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 表级读写锁与WAL模式下的读写并发
+ */
+public class TableLockTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 未开启WAL时读操作加表级读锁：读其他表不受写锁影响，读正在写的表需要等待写锁释放
+     * <p>
+     * 注意这里只验证表锁本身，Android上未开启WAL时所有读写共用一个连接，SQLite仍会串行执行
+     */
+    @Test
+    public void readOtherTableDuringWrite() throws Exception {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Author.class, Event.class));
+        final CoreDao<Author> authorDao = coreData.dao(Author.class);
+        final CoreDao<Event> eventDao = coreData.dao(Event.class);
+        eventDao.replace(new Event(1, "event_1"));
+
+        CoreDatabaseManager manager = coreData.getCoreDataBase();
+        TableLockManager lockManager = manager.getTableLockManager();
+        String[] writeTables = {"author"};
+        Future<List<Author>> authors;
+        lockManager.lockWrite(writeTables);
+        try {
+            assertEquals(1, executor.submit(queryAll(eventDao)).get(5, TimeUnit.SECONDS).size());
+
+            authors = executor.submit(queryAll(authorDao));
+            try {
+                authors.get(200, TimeUnit.MILLISECONDS);
+                fail("reading a table under write should wait for the write lock");
+            } catch (TimeoutException expected) {
+                // 写锁释放前读取被阻塞
+            }
+            manager.getWritableDatabase().execSQL("INSERT INTO author(id, name) VALUES(1, 'author_1')");
+        } finally {
+            lockManager.unlockWrite(writeTables);
+        }
+        assertEquals(1, authors.get(5, TimeUnit.SECONDS).size());
+    }
+
+    /**
+     * 开启WAL后读操作在只读连接上读取已提交的快照，读正在写的表也不需要等待写事务
+     */
+    @Test
+    public void readSnapshotDuringWriteTransaction() throws Exception {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Author.class, Event.class)
+                .writeAheadLogging(true));
+        CoreDao<Author> authorDao = coreData.dao(Author.class);
+        CoreDao<Event> eventDao = coreData.dao(Event.class);
+        eventDao.replace(new Event(1, "event_1"));
+        authorDao.replace(new Author(1, "author_1"));
+
+        CoreDatabaseManager manager = coreData.getCoreDataBase();
+        TableLockManager lockManager = manager.getTableLockManager();
+        String[] writeTables = {"author"};
+        CoreDatabase writer = manager.getWritableDatabase();
+        lockManager.lockWrite(writeTables);
+        writer.beginTransaction();
+        try {
+            writer.execSQL("INSERT INTO author(id, name) VALUES(2, 'author_2')");
+
+            assertEquals(1, executor.submit(queryAll(eventDao)).get(5, TimeUnit.SECONDS).size());
+            // 未提交的写入对只读连接不可见
+            assertEquals(1, executor.submit(queryAll(authorDao)).get(5, TimeUnit.SECONDS).size());
+            writer.setTransactionSuccessful();
+        } finally {
+            writer.endTransaction();
+            lockManager.unlockWrite(writeTables);
+        }
+        assertEquals(2, executor.submit(queryAll(authorDao)).get(5, TimeUnit.SECONDS).size());
+    }
+
+    private static <T> Callable<List<T>> queryAll(final CoreDao<T> coreDao) {
+        return new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return coreDao.queryAll();
+            }
+        };
+    }
+}
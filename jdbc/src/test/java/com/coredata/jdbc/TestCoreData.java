@@ -0,0 +1,44 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreData;
+import com.coredata.core.utils.LogUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 创建测试使用的CoreData实例，每个实例使用独立的临时数据库文件
+ */
+final class TestCoreData {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private TestCoreData() {
+    }
+
+    /**
+     * 补全数据库文件、版本、tag等配置后创建实例
+     *
+     * @param builder 注册了实体类及需要测试的配置
+     * @return 新的实例
+     */
+    static CoreData create(CoreData.Builder builder) {
+        // android.util.Log依赖native实现，在JVM上不可用
+        LogUtils.setEnabled(false);
+        File file;
+        try {
+            file = File.createTempFile("coredata_test", ".db");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        file.deleteOnExit();
+        String tag = "test_" + COUNTER.incrementAndGet();
+        CoreData.init(null, builder
+                .name(file.getAbsolutePath())
+                .version(1)
+                .openHelperFactory(new JdbcOpenHelperFactory())
+                .tag(tag));
+        return CoreData.instance(tag);
+    }
+}
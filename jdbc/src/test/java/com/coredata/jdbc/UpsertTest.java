@@ -0,0 +1,72 @@
+package com.coredata.jdbc;
+
+import android.database.Cursor;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.jdbc.model.Event;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * UPSERT写入与INSERT OR REPLACE写入的区别
+ */
+public class UpsertTest {
+
+    @Test
+    public void upsertKeepsUnmappedColumn() {
+        CoreData coreData = createWithExtraColumn(true);
+        coreData.dao(Event.class).replace(new Event(1, "event_1_new"));
+        // 原行只被更新，实体之外的列保留
+        assertEquals("kept", queryExtra(coreData, 1));
+        assertEquals("event_1_new", coreData.dao(Event.class).queryByKey(1L).name);
+    }
+
+    @Test
+    public void replaceDeletesUnmappedColumn() {
+        CoreData coreData = createWithExtraColumn(false);
+        coreData.dao(Event.class).replace(new Event(1, "event_1_new"));
+        // 原行被删除后重新插入，实体之外的列恢复为默认值
+        assertNull(queryExtra(coreData, 1));
+        assertEquals("event_1_new", coreData.dao(Event.class).queryByKey(1L).name);
+    }
+
+    @Test
+    public void upsertInsertsNewRows() {
+        CoreData coreData = createWithExtraColumn(true);
+        CoreDao<Event> eventDao = coreData.dao(Event.class);
+        eventDao.replace(Arrays.asList(new Event(1, "event_1_new"), new Event(2, "event_2")));
+        assertEquals(2, eventDao.queryAll().size());
+        assertEquals("event_2", eventDao.queryByKey(2L).name);
+        assertNull(queryExtra(coreData, 2));
+    }
+
+    private static CoreData createWithExtraColumn(boolean upsert) {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Event.class)
+                .upsert(upsert));
+        coreData.dao(Event.class).replace(new Event(1, "event_1"));
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        cdb.execSQL("ALTER TABLE event ADD COLUMN extra TEXT");
+        cdb.execSQL("UPDATE event SET extra = 'kept' WHERE id = 1");
+        return coreData;
+    }
+
+    private static String queryExtra(CoreData coreData, long id) {
+        Cursor cursor = coreData.getCoreDataBase().getWritableDatabase()
+                .rawQuery("SELECT extra FROM event WHERE id = ?", new String[]{String.valueOf(id)});
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
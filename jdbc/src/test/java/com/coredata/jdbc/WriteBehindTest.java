@@ -0,0 +1,73 @@
+package com.coredata.jdbc;
+
+import com.coredata.core.CoreDao;
+import com.coredata.core.CoreData;
+import com.coredata.core.WriteBehindListener;
+import com.coredata.core.db.CoreDatabase;
+import com.coredata.jdbc.model.Author;
+import com.coredata.jdbc.model.Book;
+import com.coredata.jdbc.model.Event;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 延迟写入的失败重试及级联写入前的缓冲区写入
+ */
+public class WriteBehindTest {
+
+    @Test(timeout = 10000)
+    public void requeueAndRetryAfterFailure() throws Exception {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicInteger failedPendingCount = new AtomicInteger();
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Event.class)
+                .writeBehind(Event.class, 100, 20)
+                .writeBehindListener(new WriteBehindListener() {
+                    @Override
+                    public void onFlushFailed(String tableName, int pendingCount, int failureCount,
+                                              long retryDelayMillis, Exception e) {
+                        failedPendingCount.set(pendingCount);
+                        failed.countDown();
+                    }
+                }));
+        CoreDao<Event> eventDao = coreData.dao(Event.class);
+        CoreDatabase cdb = coreData.getCoreDataBase().getWritableDatabase();
+        // 表不存在时写入失败
+        cdb.execSQL("ALTER TABLE event RENAME TO event_missing");
+
+        eventDao.replace(new Event(1, "event_1"));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, failedPendingCount.get());
+        assertEquals(1, eventDao.getWriteBehindBuffer().getPendingCount());
+
+        cdb.execSQL("ALTER TABLE event_missing RENAME TO event");
+        // 失败后自动重试，不需要再次写入或手动flush
+        while (eventDao.getWriteBehindBuffer().getPendingCount() > 0) {
+            Thread.sleep(20);
+        }
+        assertNotNull(eventDao.queryByKey(1L));
+    }
+
+    @Test
+    public void flushRelationBufferBeforeCascade() {
+        CoreData coreData = TestCoreData.create(CoreData.Builder.builder()
+                .register(Book.class, Author.class)
+                .writeBehind(Author.class, 100, 60 * 1000));
+        CoreDao<Book> bookDao = coreData.dao(Book.class);
+        CoreDao<Author> authorDao = coreData.dao(Author.class);
+
+        authorDao.replace(new Author(1, "old_name"));
+        bookDao.replace(new Book(1, "book_1", new Author(1, "new_name")));
+        // 缓冲区中较早的数据不能覆盖之后级联写入的数据
+        authorDao.flush();
+        assertEquals("new_name", authorDao.queryByKey(1).name);
+    }
+}
@@ -0,0 +1,31 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+
+/**
+ * 测试使用的文章，作者随文章一起JOIN查询
+ */
+@Entity(tableName = "article")
+public class Article {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    @Relation(fetch = Relation.FetchType.JOIN)
+    @ColumnInfo(name = "author_id")
+    public Author author;
+
+    public Article() {
+    }
+
+    public Article(long id, String name, Author author) {
+        this.id = id;
+        this.name = name;
+        this.author = author;
+    }
+}
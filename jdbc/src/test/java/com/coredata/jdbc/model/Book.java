@@ -0,0 +1,31 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+
+/**
+ * 测试使用的书，关联了作者
+ */
+@Entity(tableName = "book")
+public class Book {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    @Relation
+    @ColumnInfo(name = "author_id")
+    public Author author;
+
+    public Book() {
+    }
+
+    public Book(long id, String name, Author author) {
+        this.id = id;
+        this.name = name;
+        this.author = author;
+    }
+}
@@ -0,0 +1,32 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+import com.coredata.core.Lazy;
+
+/**
+ * 测试使用的杂志，延迟加载主编
+ */
+@Entity(tableName = "magazine")
+public class Magazine {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    @Relation(fetch = Relation.FetchType.LAZY)
+    @ColumnInfo(name = "editor_id")
+    public Lazy<Author> editor;
+
+    public Magazine() {
+    }
+
+    public Magazine(long id, String name, Author editor) {
+        this.id = id;
+        this.name = name;
+        this.editor = Lazy.of(editor);
+    }
+}
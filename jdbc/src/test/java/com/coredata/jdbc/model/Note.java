@@ -0,0 +1,17 @@
+package com.coredata.jdbc.model;
+
+import java.io.Serializable;
+
+/**
+ * 测试二进制编解码使用的笔记
+ */
+public class Note implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public long id;
+
+    public String text;
+
+    public int priority = 3;
+}
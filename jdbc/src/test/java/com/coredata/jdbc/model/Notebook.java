@@ -0,0 +1,25 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.Convert;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.core.converter.BinaryConverter;
+import com.coredata.core.converter.BinaryListConverter;
+
+import java.util.List;
+
+/**
+ * 测试二进制转换器使用的笔记本
+ */
+@Entity(tableName = "notebook")
+public class Notebook {
+
+    @PrimaryKey
+    public long id;
+
+    @Convert(converter = BinaryListConverter.class, dbType = byte[].class)
+    public List<Note> notes;
+
+    @Convert(converter = BinaryConverter.class, dbType = byte[].class)
+    public OldNote oldNote;
+}
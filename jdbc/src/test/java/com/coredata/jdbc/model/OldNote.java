@@ -0,0 +1,15 @@
+package com.coredata.jdbc.model;
+
+import java.io.Serializable;
+
+/**
+ * 模拟{@link Note}的旧版本结构：没有text和priority，多了已经删除的color
+ */
+public class OldNote implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public long id;
+
+    public String color;
+}
@@ -0,0 +1,37 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.core.PropertyConverter;
+
+import java.math.BigInteger;
+
+/**
+ * 读出数据时执行一次设置的回调，用于在查询过程中插入其他操作
+ */
+public class ReadHookConverter implements PropertyConverter<BigInteger, String> {
+
+    private static volatile Runnable hook;
+
+    /**
+     * 设置下一次读出数据时执行的回调
+     *
+     * @param runnable 回调，只执行一次
+     */
+    public static void setHook(Runnable runnable) {
+        hook = runnable;
+    }
+
+    @Override
+    public String convertToProperty(BigInteger value) {
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public BigInteger convertToValue(String property) {
+        Runnable runnable = hook;
+        if (runnable != null) {
+            hook = null;
+            runnable.run();
+        }
+        return property == null ? null : new BigInteger(property);
+    }
+}
@@ -0,0 +1,31 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.ColumnInfo;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+
+/**
+ * 测试使用的书评，关联了书，书又关联了作者
+ */
+@Entity(tableName = "review")
+public class Review {
+
+    @PrimaryKey
+    public long id;
+
+    public String content;
+
+    @Relation
+    @ColumnInfo(name = "book_id")
+    public Book book;
+
+    public Review() {
+    }
+
+    public Review(long id, String content, Book book) {
+        this.id = id;
+        this.content = content;
+        this.book = book;
+    }
+}
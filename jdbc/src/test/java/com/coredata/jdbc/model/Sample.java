@@ -0,0 +1,28 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.Convert;
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+
+import java.math.BigInteger;
+
+/**
+ * 测试使用的数据，读出时经过{@link ReadHookConverter}
+ */
+@Entity(tableName = "sample")
+public class Sample {
+
+    @PrimaryKey
+    public long id;
+
+    @Convert(converter = ReadHookConverter.class, dbType = String.class)
+    public BigInteger value;
+
+    public Sample() {
+    }
+
+    public Sample(long id, BigInteger value) {
+        this.id = id;
+        this.value = value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+import com.coredata.annotation.Relation;
+
+import java.util.List;
+
+/**
+ * 测试使用的书架，与书多对多关联，关联关系保存在中间表shelf_book中
+ */
+@Entity(tableName = "shelf")
+public class Shelf {
+
+    @PrimaryKey
+    public long id;
+
+    public String name;
+
+    @Relation(joinTable = "shelf_book", joinColumn = "shelf_id", inverseJoinColumn = "book_id")
+    public List<Book> books;
+
+    public Shelf() {
+    }
+
+    public Shelf(long id, String name, List<Book> books) {
+        this.id = id;
+        this.name = name;
+        this.books = books;
+    }
+}
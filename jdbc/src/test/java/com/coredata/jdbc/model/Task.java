@@ -0,0 +1,27 @@
+package com.coredata.jdbc.model;
+
+import com.coredata.annotation.Entity;
+import com.coredata.annotation.PrimaryKey;
+
+/**
+ * 测试使用的任务，开启变化跟踪
+ */
+@Entity(tableName = "task", trackChanges = true)
+public class Task {
+
+    @PrimaryKey
+    public long id;
+
+    public String title;
+
+    public String status;
+
+    public Task() {
+    }
+
+    public Task(long id, String title, String status) {
+        this.id = id;
+        this.title = title;
+        this.status = status;
+    }
+}